@@ -0,0 +1,214 @@
+/**
+ * This class is a bitboard index over a small collapse board.  Every
+ * tile color gets one 64 bit mask and there is one more mask for the
+ * occupied cells, so boards up to 8 by 8 fit in a handful of longs.
+ *
+ * The masks are column-major: the cell at (row, col) is bit col * 8 + row,
+ * which keeps every column of the board in its own byte.
+ *
+ * @author Erik Owen
+ * @version 1
+ */
+public class BitBoard
+{
+    /*Largest board dimension that fits in a 64 bit mask*/
+    public final static int kMaxSize = 8;
+    private final static int kStride = 8;
+    private final static long kTopRow = 0x0101010101010101L;
+    private final static long kBottomRow = 0x8080808080808080L;
+    private final static long kColumn = 0xFFL;
+    private long[] colorMasks;
+    private long occupied;
+    private int boardSize;
+
+    /**
+     * Constructor for objects of class BitBoard
+     *
+     * @param game the game whose board is indexed, at most kMaxSize wide
+     */
+    public BitBoard(CollapseGame game)
+    {
+        this.boardSize = game.getBoardSize();
+        this.colorMasks = new long[CollapsePiece.values().length - 1];
+
+        load(game);
+    }
+
+    /**
+     * Rebuilds all of the masks from the game's board.
+     *
+     * @param game the game whose board is indexed
+     */
+    public void load(CollapseGame game)
+    {
+        reload(game, 0, boardSize - 1);
+    }
+
+    /**
+     * Brings the masks up to date after a move, rebuilding only the range
+     * of columns the move changed.
+     *
+     * @param game the game whose board is indexed
+     * @param fromCol the first column that changed
+     * @param toCol the last column that changed
+     */
+    public void reload(CollapseGame game, int fromCol, int toCol)
+    {
+        /*Iterates through each column that changed*/
+        for(int colIter = fromCol; colIter <= toCol; colIter++)
+        {
+            long column = kColumn << (colIter * kStride);
+
+            occupied &= ~column;
+            /*Clears the column out of every color mask*/
+            for(int colorIter = 0; colorIter < colorMasks.length; colorIter++)
+            {
+                colorMasks[colorIter] &= ~column;
+            }
+
+            /*Iterates through each row of the column*/
+            for(int rowIter = 0; rowIter < boardSize; rowIter++)
+            {
+                CollapsePiece piece = game.getPiece(rowIter, colIter);
+
+                /*Only non-empty tiles get a bit*/
+                if(piece != CollapsePiece.empty)
+                {
+                    long bit = bitAt(rowIter, colIter);
+                    colorMasks[piece.ordinal()] |= bit;
+                    occupied |= bit;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the single bit mask of a cell.
+     *
+     * @param row the row of the cell
+     * @param col the column of the cell
+     *
+     * @return the mask with only that cell set
+     */
+    public static long bitAt(int row, int col)
+    {
+        return 1L << (col * kStride + row);
+    }
+
+    /**
+     * Gets the row of a bit index in a mask.
+     *
+     * @param bit the bit index
+     *
+     * @return the row the bit represents
+     */
+    public static int rowOf(int bit)
+    {
+        return bit % kStride;
+    }
+
+    /**
+     * Gets the column of a bit index in a mask.
+     *
+     * @param bit the bit index
+     *
+     * @return the column the bit represents
+     */
+    public static int columnOf(int bit)
+    {
+        return bit / kStride;
+    }
+
+    /**
+     * Grows a mask by one cell above, below, left and right.
+     *
+     * @param mask the cells being grown
+     *
+     * @return all of the cells next to the given ones
+     */
+    private static long neighbors(long mask)
+    {
+        return ((mask << 1) & ~kTopRow) | ((mask >>> 1) & ~kBottomRow)
+            | (mask << kStride) | (mask >>> kStride);
+    }
+
+    /**
+     * Gets the mask of the color a cell has.
+     *
+     * @param bit the single bit mask of the cell
+     *
+     * @return the mask of the cell's color, 0 if the cell is empty
+     */
+    private long colorMaskOf(long bit)
+    {
+        long mask = 0;
+
+        /*Looks for the color holding this cell*/
+        for(int colorIter = 0; colorIter < colorMasks.length && mask == 0; colorIter++)
+        {
+            /*Determines if the cell has the current color*/
+            if((colorMasks[colorIter] & bit) != 0)
+            {
+                mask = colorMasks[colorIter];
+            }
+        }
+
+        return mask;
+    }
+
+    /**
+     * Checks to see if any of the adjacent tiles are of the same type
+     *
+     * @param row the row of the tile
+     * @param col the column of the tile
+     *
+     * @return true if a neighbor has the same color as the tile
+     */
+    public boolean hasAdjacentTiles(int row, int col)
+    {
+        long bit = bitAt(row, col);
+
+        return (neighbors(bit) & colorMaskOf(bit)) != 0;
+    }
+
+    /**
+     * Finds the tile along with all of the connected tiles of the same color.
+     *
+     * @param row the row of the tile
+     * @param col the column of the tile
+     *
+     * @return the mask of the whole group, 0 if the tile is empty
+     */
+    public long getGroup(int row, int col)
+    {
+        long bit = bitAt(row, col);
+        long color = colorMaskOf(bit);
+        long group = bit & color;
+        long previous = 0;
+
+        /*Keeps growing the group while it picks up new tiles*/
+        while(group != previous)
+        {
+            previous = group;
+            group |= neighbors(group) & color;
+        }
+
+        return group;
+    }
+
+    /**
+     * Removes a group from every mask.
+     *
+     * @param group the mask of the tiles being removed
+     */
+    public void removeGroup(long group)
+    {
+        occupied &= ~group;
+
+        /*Clears the group out of every color mask*/
+        for(int colorIter = 0; colorIter < colorMasks.length; colorIter++)
+        {
+            colorMasks[colorIter] &= ~group;
+        }
+    }
+}
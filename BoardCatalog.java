@@ -0,0 +1,658 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class is a catalog of the statistics of every board of a size and
+ * number of colors, so that boards can be picked by how hard they are
+ * without generating them.  The catalog is built ahead of time by main, on
+ * every core, and written to a file of fixed size records that is mapped
+ * into memory when it is opened, so reading a board's statistics never
+ * copies the file.
+ *
+ * For each board the catalog holds the number of groups and the size of the
+ * largest group of the starting board, how many of its tiles are alone, the
+ * fewest moves any of a number of random games took to clear it, and a
+ * difficulty from easy to expert.  The difficulty ranks the boards by their
+ * fewest moves, boards no game cleared being the hardest, and splits them
+ * into equal parts.
+ *
+ * @author Erik Owen
+ * @version 1
+ */
+public class BoardCatalog
+{
+    /*Names of the difficulties, from easiest to hardest*/
+    public final static String[] kDifficulties = {"easy", "medium", "hard", "expert"};
+    /*Fewest moves of a board no random game cleared*/
+    public final static int kUnsolved = -1;
+    private final static String kCatalogDirPath = "collapse";
+    private final static int kMagic = 0x43434154;
+    private final static short kVersion = 1;
+    /*Magic, version, size, colors, board count and games per board*/
+    private final static int kHeaderBytes = 20;
+    /*Groups, largest group, lone tiles, fewest moves and difficulty*/
+    private final static int kRecordBytes = 17;
+    private final static int kGroupsOffset = 0;
+    private final static int kLargestOffset = 4;
+    private final static int kSinglesOffset = 8;
+    private final static int kMovesOffset = 12;
+    private final static int kDifficultyOffset = 16;
+    /*Boards a build task works through itself instead of splitting*/
+    private final static int kChunkSize = 16;
+    private final static int kDefaultGames = 32;
+    private int boardSize;
+    private int colors;
+    private int boardCount;
+    private MappedByteBuffer records;
+
+    /**
+     * Constructor for objects of class BoardCatalog
+     *
+     * @param boardSize the size of the boards
+     * @param colors the number of tile colors of the boards
+     * @param boardCount the number of boards, numbered from one
+     * @param records the mapped file
+     */
+    private BoardCatalog(int boardSize, int colors, int boardCount, MappedByteBuffer records)
+    {
+        this.boardSize = boardSize;
+        this.colors = colors;
+        this.boardCount = boardCount;
+        this.records = records;
+    }
+
+    /**
+     * Gets the path of the catalog file of a board size and number of colors.
+     *
+     * @param boardSize the size of the boards
+     * @param colors the number of tile colors of the boards
+     *
+     * @return the path of the catalog
+     */
+    public static String getPath(int boardSize, int colors)
+    {
+        return kCatalogDirPath + "/catalog-" + boardSize + "-" + colors + ".bin";
+    }
+
+    /**
+     * Opens the catalog of a board size and number of colors, if it has been
+     * built.
+     *
+     * @param boardSize the size of the boards
+     * @param colors the number of tile colors of the boards
+     *
+     * @return the catalog, null if there is none
+     *
+     * @throws IOException if the catalog can not be read
+     */
+    public static BoardCatalog open(int boardSize, int colors) throws IOException
+    {
+        File file = new File(getPath(boardSize, colors));
+
+        /*Boards without a catalog are picked by number only*/
+        if(!file.exists())
+        {
+            return null;
+        }
+
+        return open(file, boardSize, colors);
+    }
+
+    /**
+     * Opens a catalog file and maps it into memory.
+     *
+     * @param file the catalog file
+     * @param boardSize the size of the boards the catalog must be of
+     * @param colors the number of tile colors the catalog must be of
+     *
+     * @return the catalog
+     *
+     * @throws IOException if the file can not be read or is not a catalog
+     * of these boards
+     */
+    public static BoardCatalog open(File file, int boardSize, int colors) throws IOException
+    {
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+
+        try
+        {
+            FileChannel channel = input.getChannel();
+            MappedByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int count;
+
+            /*Checks the header before trusting any record*/
+            if(channel.size() < kHeaderBytes || records.getInt(0) != kMagic
+                || records.getShort(4) != kVersion || records.getShort(6) != boardSize
+                || records.getShort(8) != colors)
+            {
+                throw new IOException(file + " is not a catalog of " + boardSize
+                    + "x" + boardSize + " boards with " + colors + " colors");
+            }
+            count = records.getInt(12);
+            /*Checks that every record is there*/
+            if(channel.size() != kHeaderBytes + (long) count * kRecordBytes)
+            {
+                throw new IOException(file + " is truncated");
+            }
+
+            return new BoardCatalog(boardSize, colors, count, records);
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+
+    /**
+     * Getter method for the size of the boards of the catalog
+     *
+     * @return the board size
+     */
+    public int getBoardSize()
+    {
+        return boardSize;
+    }
+
+    /**
+     * Getter method for the number of colors of the boards of the catalog
+     *
+     * @return the number of colors
+     */
+    public int getColors()
+    {
+        return colors;
+    }
+
+    /**
+     * Getter method for the number of boards in the catalog
+     *
+     * @return the number of boards, numbered from one
+     */
+    public int getBoardCount()
+    {
+        return boardCount;
+    }
+
+    /**
+     * Gets how many groups a board starts with, lone tiles included.
+     *
+     * @param boardNumber the number of the board
+     *
+     * @return the number of groups
+     */
+    public int getGroupCount(int boardNumber)
+    {
+        return records.getInt(offset(boardNumber) + kGroupsOffset);
+    }
+
+    /**
+     * Gets the number of tiles of the largest group a board starts with.
+     *
+     * @param boardNumber the number of the board
+     *
+     * @return the size of the largest group
+     */
+    public int getLargestGroup(int boardNumber)
+    {
+        return records.getInt(offset(boardNumber) + kLargestOffset);
+    }
+
+    /**
+     * Gets how many tiles of a board start with no neighbor of their color.
+     *
+     * @param boardNumber the number of the board
+     *
+     * @return the number of lone tiles
+     */
+    public int getSingletonCount(int boardNumber)
+    {
+        return records.getInt(offset(boardNumber) + kSinglesOffset);
+    }
+
+    /**
+     * Gets the fewest moves a board is known to be cleared in.
+     *
+     * @param boardNumber the number of the board
+     *
+     * @return the fewest moves, kUnsolved if no game cleared the board
+     */
+    public int getBestMoves(int boardNumber)
+    {
+        return records.getInt(offset(boardNumber) + kMovesOffset);
+    }
+
+    /**
+     * Gets how hard a board is.
+     *
+     * @param boardNumber the number of the board
+     *
+     * @return the index of the difficulty in kDifficulties
+     */
+    public int getDifficulty(int boardNumber)
+    {
+        return records.get(offset(boardNumber) + kDifficultyOffset);
+    }
+
+    /**
+     * Finds the difficulty a player typed.
+     *
+     * @param name the name of the difficulty, in any case
+     *
+     * @return the index of the difficulty in kDifficulties, -1 if there is
+     * no difficulty by that name
+     */
+    public static int parseDifficulty(String name)
+    {
+        String trimmed = name.trim();
+
+        /*Compares the name with each difficulty*/
+        for(int levelNdx = 0; levelNdx < kDifficulties.length; levelNdx++)
+        {
+            /*Returns the difficulty with this name*/
+            if(kDifficulties[levelNdx].equalsIgnoreCase(trimmed))
+            {
+                return levelNdx;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Finds every board of a difficulty.
+     *
+     * @param difficulty the index of the difficulty in kDifficulties
+     *
+     * @return the numbers of the boards, in order
+     */
+    public int[] findBoards(int difficulty)
+    {
+        int[] boards = new int[boardCount];
+        int found = 0;
+
+        /*Keeps the boards of this difficulty*/
+        for(int boardNum = 1; boardNum <= boardCount; boardNum++)
+        {
+            /*Only boards of this difficulty are kept*/
+            if(getDifficulty(boardNum) == difficulty)
+            {
+                boards[found++] = boardNum;
+            }
+        }
+
+        return Arrays.copyOf(boards, found);
+    }
+
+    /**
+     * Picks a random board of a difficulty.
+     *
+     * @param difficulty the index of the difficulty in kDifficulties
+     * @param random the random numbers the board is picked with
+     *
+     * @return the number of the board, -1 if there are no boards of that
+     * difficulty
+     */
+    public int pickBoard(int difficulty, Random random)
+    {
+        int[] boards = findBoards(difficulty);
+
+        return boards.length == 0 ? -1 : boards[random.nextInt(boards.length)];
+    }
+
+    /**
+     * Describes the statistics of a board in one line.
+     *
+     * @param boardNumber the number of the board
+     *
+     * @return the description of the board
+     */
+    public String describe(int boardNumber)
+    {
+        int best = getBestMoves(boardNumber);
+
+        return "Board " + boardNumber + " (" + kDifficulties[getDifficulty(boardNumber)]
+            + "): " + getGroupCount(boardNumber) + " groups, largest "
+            + getLargestGroup(boardNumber) + ", " + getSingletonCount(boardNumber)
+            + " lone tiles, best known "
+            + (best == kUnsolved ? "none" : best + " moves");
+    }
+
+    /**
+     * Gets where the record of a board starts in the file.
+     *
+     * @param boardNumber the number of the board
+     *
+     * @return the offset of the record
+     */
+    private int offset(int boardNumber)
+    {
+        /*Only boards of the catalog have a record*/
+        if(boardNumber < 1 || boardNumber > boardCount)
+        {
+            throw new IndexOutOfBoundsException("Board " + boardNumber
+                + " is not in the catalog");
+        }
+
+        return kHeaderBytes + (boardNumber - 1) * kRecordBytes;
+    }
+
+    /**
+     * Works out the statistics of every board of a size on every core and
+     * writes them to a catalog file.
+     *
+     * @param file the catalog file, which is replaced
+     * @param boardSize the size of the boards
+     * @param colors the number of tile colors of the boards
+     * @param boardCount the number of boards, numbered from one
+     * @param gamesPerBoard how many random games each board is played to find
+     * the fewest moves it is cleared in
+     *
+     * @throws IOException if the file can not be written
+     */
+    public static void build(File file, int boardSize, int colors, int boardCount,
+        int gamesPerBoard) throws IOException
+    {
+        int[][] stats = new int[boardCount][];
+        ForkJoinPool pool = new ForkJoinPool();
+
+        try
+        {
+            pool.invoke(new BuildTask(boardSize, colors, gamesPerBoard, stats, 1, boardCount + 1));
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        write(file, boardSize, colors, gamesPerBoard, stats, rankDifficulties(stats));
+    }
+
+    /**
+     * Splits the boards into equal parts by their fewest moves, boards no
+     * game cleared being last and more lone tiles breaking ties.
+     *
+     * @param stats the statistics of each board
+     *
+     * @return the difficulty of each board
+     */
+    private static byte[] rankDifficulties(final int[][] stats)
+    {
+        Integer[] order = new Integer[stats.length];
+        byte[] levels = new byte[stats.length];
+
+        /*Lists the boards in order of number*/
+        for(int boardNdx = 0; boardNdx < stats.length; boardNdx++)
+        {
+            order[boardNdx] = boardNdx;
+        }
+        /*Sorts the boards by fewest moves, then lone tiles*/
+        Arrays.sort(order, new Comparator<Integer>()
+        {
+            public int compare(Integer first, Integer second)
+            {
+                int order = Long.compare(rankMoves(stats[first]), rankMoves(stats[second]));
+
+                return order != 0 ? order : Integer.compare(stats[first][2], stats[second][2]);
+            }
+        });
+
+        /*Hands out the difficulties in sorted order*/
+        for(int rank = 0; rank < order.length; rank++)
+        {
+            levels[order[rank]] = (byte) ((long) rank * kDifficulties.length / order.length);
+        }
+
+        return levels;
+    }
+
+    /**
+     * Gets the fewest moves of a board for ranking, boards no game cleared
+     * coming after every other board.
+     *
+     * @param board the statistics of the board
+     *
+     * @return the fewest moves to rank the board by
+     */
+    private static long rankMoves(int[] board)
+    {
+        return board[3] == kUnsolved ? Long.MAX_VALUE : board[3];
+    }
+
+    /**
+     * Writes the header and the records of a catalog.
+     *
+     * @param file the catalog file, which is replaced
+     * @param boardSize the size of the boards
+     * @param colors the number of tile colors of the boards
+     * @param gamesPerBoard how many random games each board was played
+     * @param stats the statistics of each board
+     * @param levels the difficulty of each board
+     *
+     * @throws IOException if the file can not be written
+     */
+    private static void write(File file, int boardSize, int colors, int gamesPerBoard,
+        int[][] stats, byte[] levels) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(kHeaderBytes + stats.length * kRecordBytes);
+        RandomAccessFile output;
+
+        buffer.putInt(kMagic).putShort(kVersion).putShort((short) boardSize)
+            .putShort((short) colors).putShort((short) 0)
+            .putInt(stats.length).putInt(gamesPerBoard);
+        /*Writes the record of each board*/
+        for(int boardNdx = 0; boardNdx < stats.length; boardNdx++)
+        {
+            buffer.putInt(stats[boardNdx][0]).putInt(stats[boardNdx][1])
+                .putInt(stats[boardNdx][2]).putInt(stats[boardNdx][3]).put(levels[boardNdx]);
+        }
+        buffer.flip();
+
+        file.delete();
+        output = new RandomAccessFile(file, "rw");
+        try
+        {
+            FileChannel channel = output.getChannel();
+
+            /*Writes until the whole buffer is out*/
+            while(buffer.hasRemaining())
+            {
+                channel.write(buffer);
+            }
+        }
+        finally
+        {
+            output.close();
+        }
+    }
+
+    /**
+     * A range of the boards whose statistics are worked out.
+     */
+    private static class BuildTask extends RecursiveAction
+    {
+        private int boardSize;
+        private int colors;
+        private int gamesPerBoard;
+        private int[][] stats;
+        private int from;
+        private int to;
+
+        /**
+         * Constructor for objects of class BuildTask
+         *
+         * @param boardSize the size of the boards
+         * @param colors the number of tile colors of the boards
+         * @param gamesPerBoard how many random games each board is played
+         * @param stats where the statistics of each board are put
+         * @param from the first board of the range
+         * @param to the board after the last one of the range
+         */
+        BuildTask(int boardSize, int colors, int gamesPerBoard, int[][] stats, int from, int to)
+        {
+            this.boardSize = boardSize;
+            this.colors = colors;
+            this.gamesPerBoard = gamesPerBoard;
+            this.stats = stats;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Works out the range, or splits it in half for other workers to
+         * steal.
+         */
+        @Override
+        protected void compute()
+        {
+            /*Small ranges are worked out by this worker on one game*/
+            if(to - from <= kChunkSize)
+            {
+                CollapseGame game = new CollapseGame(boardSize, from, colors);
+                GroupList groups = new GroupList();
+                PlayoutPolicy policy = new PlayoutRunner.RandomPolicy();
+
+                /*Works out the statistics of each board of the range*/
+                for(int boardNum = from; boardNum < to; boardNum++)
+                {
+                    stats[boardNum - 1] = measure(game, groups, policy, boardNum);
+                }
+            }
+            else
+            {
+                int middle = (from + to) >>> 1;
+
+                invokeAll(new BuildTask(boardSize, colors, gamesPerBoard, stats, from, middle),
+                    new BuildTask(boardSize, colors, gamesPerBoard, stats, middle, to));
+            }
+        }
+
+        /**
+         * Works out the statistics of one board.
+         *
+         * @param game the game the board is played on, reset in place
+         * @param groups the group list the game is listed into
+         * @param policy picks the moves of the random games
+         * @param boardNum the number of the board
+         *
+         * @return the groups, largest group, lone tiles and fewest moves
+         */
+        private int[] measure(CollapseGame game, GroupList groups, PlayoutPolicy policy,
+            int boardNum)
+        {
+            int[] board = {0, 0, 0, kUnsolved};
+            long random = CollapseGame.mix(boardNum);
+
+            game.reset(boardNum);
+            game.listGroups(groups);
+            board[0] = groups.getGroupCount();
+            /*Finds the largest group and the lone tiles*/
+            for(int groupNdx = 0; groupNdx < groups.getGroupCount(); groupNdx++)
+            {
+                board[1] = Math.max(board[1], groups.getGroupSize(groupNdx));
+                /*Groups of one tile are lone tiles*/
+                if(groups.getGroupSize(groupNdx) == 1)
+                {
+                    board[2]++;
+                }
+            }
+
+            /*Plays the board randomly, keeping the fewest moves that cleared it*/
+            for(int gameNdx = 0; gameNdx < gamesPerBoard; gameNdx++)
+            {
+                game.reset(boardNum);
+                /*Keeps playing while anything can still be removed*/
+                while(!game.isGameOver() && !game.isStuck()
+                    && (board[3] == kUnsolved || game.getNumberOfMoves() < board[3]))
+                {
+                    random += CollapseGame.kGamma;
+                    int groupNdx = policy.chooseGroup(game, game.listGroups(groups),
+                        CollapseGame.mix(random));
+
+                    game.takeTurn(groups.getGroupRow(groupNdx), groups.getGroupColumn(groupNdx));
+                }
+                /*Keeps the game if it cleared the board in fewer moves*/
+                if(game.isGameOver())
+                {
+                    board[3] = game.getNumberOfMoves();
+                }
+            }
+
+            return board;
+        }
+    }
+
+    /**
+     * Builds the catalogs of the board sizes given, and prints how many
+     * boards of each difficulty there are.
+     *
+     * @param args the board sizes, which default to the preferred size,
+     * then --colors, --boards and --games options, which default to the
+     * preferred colors, 5000 boards and 32 games
+     *
+     * @throws IOException if a catalog can not be written
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int[] sizes = new int[args.length + 1];
+        int sizeCount = 0;
+        int colors = Preferences.getPreferenceColors();
+        int boards = 5000;
+        int games = kDefaultGames;
+
+        /*Reads the sizes and the options*/
+        for(int argNdx = 0; argNdx < args.length; argNdx++)
+        {
+            /*Options take the argument after them*/
+            if(args[argNdx].equals("--colors"))
+            {
+                colors = Integer.parseInt(args[++argNdx]);
+            }
+            else if(args[argNdx].equals("--boards"))
+            {
+                boards = Integer.parseInt(args[++argNdx]);
+            }
+            else if(args[argNdx].equals("--games"))
+            {
+                games = Integer.parseInt(args[++argNdx]);
+            }
+            else
+            {
+                sizes[sizeCount++] = Integer.parseInt(args[argNdx]);
+            }
+        }
+        /*Builds the catalog of the preferred size if no size is given*/
+        if(sizeCount == 0)
+        {
+            sizes[sizeCount++] = Preferences.getPreferenceSize();
+        }
+
+        new File(kCatalogDirPath).mkdirs();
+        /*Builds and summarizes the catalog of each size*/
+        for(int sizeNdx = 0; sizeNdx < sizeCount; sizeNdx++)
+        {
+            long start = System.nanoTime();
+            File file = new File(getPath(sizes[sizeNdx], colors));
+            BoardCatalog catalog;
+
+            build(file, sizes[sizeNdx], colors, boards, games);
+            catalog = open(file, sizes[sizeNdx], colors);
+            System.out.printf("%s: %d boards in %.1f s%n", file, boards,
+                (System.nanoTime() - start) / 1e9);
+            /*Counts the boards of each difficulty*/
+            for(int levelNdx = 0; levelNdx < kDifficulties.length; levelNdx++)
+            {
+                System.out.printf("  %-6s %d%n", kDifficulties[levelNdx],
+                    catalog.findBoards(levelNdx).length);
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The test class BoardCatalogTest.
+ *
+ * @author  Erik Owen
+ * @version 1
+ */
+public class BoardCatalogTest extends junit.framework.TestCase
+{
+    /**
+     * Default constructor for test class BoardCatalogTest
+     */
+    public BoardCatalogTest()
+    {
+    }
+
+    /**
+     * Tests that a built catalog holds the statistics of every board
+     */
+    public void testBuild() throws IOException
+    {
+        File file = File.createTempFile("catalog", ".bin");
+        int boards = 40;
+
+        try
+        {
+            BoardCatalog.build(file, 4, 3, boards, 16);
+            BoardCatalog catalog = BoardCatalog.open(file, 4, 3);
+            int found = 0;
+
+            assertEquals(boards, catalog.getBoardCount());
+            /*Checks the statistics of each board against the board itself*/
+            for(int boardNum = 1; boardNum <= boards; boardNum++)
+            {
+                GroupList groups = new CollapseGame(4, boardNum).listGroups(new GroupList());
+                int best = catalog.getBestMoves(boardNum);
+
+                assertEquals(groups.getGroupCount(), catalog.getGroupCount(boardNum));
+                assertTrue(catalog.getLargestGroup(boardNum) >= 1);
+                assertTrue(catalog.getSingletonCount(boardNum) < groups.getGroupCount());
+                assertTrue(best == BoardCatalog.kUnsolved || best >= 1);
+            }
+            /*Every board has exactly one difficulty*/
+            for(int levelNdx = 0; levelNdx < BoardCatalog.kDifficulties.length; levelNdx++)
+            {
+                found += catalog.findBoards(levelNdx).length;
+                assertEquals(boards / BoardCatalog.kDifficulties.length,
+                    catalog.findBoards(levelNdx).length);
+            }
+            assertEquals(boards, found);
+            assertEquals(1, BoardCatalog.parseDifficulty(" Medium "));
+            assertEquals(-1, BoardCatalog.parseDifficulty("12"));
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    /**
+     * Tests that a catalog of other boards is not opened
+     */
+    public void testWrongBoards() throws IOException
+    {
+        File file = File.createTempFile("catalog", ".bin");
+
+        try
+        {
+            BoardCatalog.build(file, 4, 3, 4, 1);
+            BoardCatalog.open(file, 5, 3);
+            fail();
+        }
+        catch(IOException e)
+        {
+            assertTrue(e.getMessage().contains("not a catalog"));
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+}
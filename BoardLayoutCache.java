@@ -0,0 +1,148 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class keeps the starting layouts of the boards that were generated
+ * most recently, so that starting a board over is a copy of its packed
+ * columns and counts instead of running the random generator again.  The cache is bounded by
+ * the total number of cells it holds, and the layout used longest ago is
+ * dropped first.  It is shared by every game, so all of its methods are
+ * synchronized.
+ *
+ * @author Erik Owen
+ * @version 1
+ */
+public class BoardLayoutCache
+{
+    private LinkedHashMap<Long, Layout> layouts;
+    private long cells;
+    private long maxCells;
+
+    /**
+     * Constructor for objects of class BoardLayoutCache
+     *
+     * @param maxCells the most cells the cache holds at once
+     */
+    public BoardLayoutCache(long maxCells)
+    {
+        this.layouts = new LinkedHashMap<Long, Layout>(16, 0.75f, true);
+        this.maxCells = maxCells;
+    }
+
+    /**
+     * Gets the layout of a board if it is in the cache.  The layout is
+     * shared, so it must only be copied from and never changed.
+     *
+     * @param size the size of the board
+     * @param colors the number of tile colors of the board
+     * @param boardNumber the number of the board
+     *
+     * @return the starting layout of the board, null if it is not cached
+     */
+    public synchronized Layout get(int size, int colors, int boardNumber)
+    {
+        return layouts.get(key(size, colors, boardNumber));
+    }
+
+    /**
+     * Adds the layout of a board to the cache, dropping the layouts used
+     * longest ago until it fits.
+     *
+     * @param size the size of the board
+     * @param colors the number of tile colors of the board
+     * @param boardNumber the number of the board
+     * @param packed the packed columns of the board, which are copied
+     * @param columnCounts the tiles in each column, which are copied
+     * @param colorCounts the tiles of each color, which are copied
+     */
+    public synchronized void put(int size, int colors, int boardNumber, long[] packed,
+        int[] columnCounts, int[] colorCounts)
+    {
+        Iterator<Map.Entry<Long, Layout>> oldest = layouts.entrySet().iterator();
+
+        /*Only boards that fit in the cache at all are kept*/
+        if((long) size * size <= maxCells && !layouts.containsKey(key(size, colors, boardNumber)))
+        {
+            /*Drops the layouts used longest ago until there is room*/
+            while(cells + (long) size * size > maxCells)
+            {
+                Layout dropped = oldest.next().getValue();
+
+                cells -= (long) dropped.size * dropped.size;
+                oldest.remove();
+            }
+
+            layouts.put(key(size, colors, boardNumber),
+                new Layout(size, packed, columnCounts, colorCounts));
+            cells += (long) size * size;
+        }
+    }
+
+    /**
+     * Getter method for the number of layouts in the cache
+     *
+     * @return the number of cached boards
+     */
+    public synchronized int size()
+    {
+        return layouts.size();
+    }
+
+    /**
+     * Gets the key of a board.
+     *
+     * @param size the size of the board
+     * @param colors the number of tile colors of the board
+     * @param boardNumber the number of the board
+     *
+     * @return the size, colors and number in one long
+     */
+    private static long key(int size, int colors, int boardNumber)
+    {
+        return ((long) size << 8 | colors) << 32 | (boardNumber & 0xFFFFFFFFL);
+    }
+
+    /**
+     * The starting layout of a board: its packed columns, in the form
+     * CollapseGame keeps them, and its tile counts.
+     */
+    public static class Layout
+    {
+        private int size;
+        private long[] packed;
+        private int[] columnCounts;
+        private int[] colorCounts;
+
+        /**
+         * Constructor for objects of class Layout, which keeps its own copy
+         * of the arrays so the caller can keep changing them.
+         *
+         * @param size the size of the board
+         * @param packed the packed columns of the board
+         * @param columnCounts the tiles in each column
+         * @param colorCounts the tiles of each color
+         */
+        Layout(int size, long[] packed, int[] columnCounts, int[] colorCounts)
+        {
+            this.size = size;
+            this.packed = packed.clone();
+            this.columnCounts = columnCounts.clone();
+            this.colorCounts = colorCounts.clone();
+        }
+
+        /**
+         * Copies the layout into the arrays of a game, each in one copy.
+         *
+         * @param packed the packed columns being filled in
+         * @param columnCounts the tiles in each column being filled in
+         * @param colorCounts the tiles of each color being filled in
+         */
+        public void copyTo(long[] packed, int[] columnCounts, int[] colorCounts)
+        {
+            System.arraycopy(this.packed, 0, packed, 0, this.packed.length);
+            System.arraycopy(this.columnCounts, 0, columnCounts, 0, this.columnCounts.length);
+            System.arraycopy(this.colorCounts, 0, colorCounts, 0, this.colorCounts.length);
+        }
+    }
+}
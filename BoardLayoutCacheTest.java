@@ -0,0 +1,82 @@
+
+
+/**
+ * The test class BoardLayoutCacheTest.
+ *
+ * @author  Erik Owen
+ * @version 1
+ */
+public class BoardLayoutCacheTest extends junit.framework.TestCase
+{
+    /**
+     * Default constructor for test class BoardLayoutCacheTest
+     */
+    public BoardLayoutCacheTest()
+    {
+    }
+
+    /**
+     * Tests that the layout used longest ago is dropped when the cache is full
+     */
+    public void testEviction()
+    {
+        BoardLayoutCache cache = new BoardLayoutCache(32);
+        long[] packed = new long[4];
+        int[] counts = new int[4];
+        
+        cache.put(4, 3, 1, packed, counts, counts);
+        cache.put(4, 3, 2, packed, counts, counts);
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(4, 3, 1));
+        cache.put(4, 3, 3, packed, counts, counts);
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(4, 3, 1));
+        assertNull(cache.get(4, 3, 2));
+        assertNotNull(cache.get(4, 3, 3));
+        assertNull(cache.get(5, 3, 1));
+        assertNull(cache.get(4, 4, 1));
+        
+        cache.put(6, 3, 1, new long[6], new int[6], counts);
+        assertEquals(2, cache.size());
+        assertNull(cache.get(6, 3, 1));
+    }
+
+    /**
+     * Tests that the cache keeps its own copy of a layout
+     */
+    public void testCopy()
+    {
+        BoardLayoutCache cache = new BoardLayoutCache(100);
+        long[] packed = {0x12L, 0x21L};
+        int[] columnCounts = {2, 2};
+        int[] colorCounts = {2, 1, 1};
+        long[] copied = new long[2];
+        int[] copiedColumns = new int[2];
+        int[] copiedColors = new int[3];
+        
+        cache.put(2, 3, 7, packed, columnCounts, colorCounts);
+        packed[0] = 0;
+        columnCounts[0] = 0;
+        cache.get(2, 3, 7).copyTo(copied, copiedColumns, copiedColors);
+        assertEquals(0x12L, copied[0]);
+        assertEquals(2, copiedColumns[0]);
+        assertEquals(1, copiedColors[2]);
+    }
+
+    /**
+     * Tests that a restarted board matches a newly generated one
+     */
+    public void testRestart()
+    {
+        CollapseGame game = new CollapseGame(9, 321, 4);
+        CollapseGame fresh = new CollapseGame(9, 321, 4);
+        
+        game.takeTurn(0, 0);
+        game.reset(321);
+        assertEquals(fresh.getTilesLeft(), game.getTilesLeft());
+        assertEquals(fresh.getColumnsLeft(), game.getColumnsLeft());
+        assertEquals(fresh.positionHash(), game.positionHash());
+        assertEquals(new String(fresh.getCharacterBoard()[4]),
+            new String(game.getCharacterBoard()[4]));
+    }
+}
@@ -0,0 +1,444 @@
+/**
+ * This class is an immutable position of a collapse game, for searches that
+ * keep a great many positions.  Each column is an array of the tiles'
+ * ordinals from the top row down, and playing a move makes a new snapshot
+ * that copies only the columns the move removed tiles from.  Every other
+ * column, including the ones that only moved toward the center, is shared
+ * with the snapshot the move was played on, so a position reached by one
+ * move costs little more than the columns it changed.
+ *
+ * The columns are never written once a snapshot has been made, so
+ * snapshots can be shared between threads freely.  The hash is the same one
+ * CollapseGame keeps, so snapshots and games of the same position can share
+ * a transposition table.
+ *
+ * @author Erik Owen
+ * @version 1
+ */
+public final class BoardSnapshot
+{
+    private final static CollapsePiece[] kPieces = CollapsePiece.values();
+    private final static byte kEmpty = (byte) CollapsePiece.empty.ordinal();
+    //Stack of cells removeGroup works through, kept by each thread and
+    //grown as needed, so playing a move allocates only the columns it copies
+    private final static ThreadLocal<int[]> kStacks = new ThreadLocal<int[]>();
+    private final int boardSize;
+    private final int numColors;
+    private final int numMoves;
+    private final int tilesLeft;
+    private final long positionHash;
+    /*The tiles of each screen column by row, shared with other snapshots*/
+    private final byte[][] columns;
+    /*Zobrist hash of the tiles of each screen column*/
+    private final long[] columnHashes;
+
+    /**
+     * Constructor for objects of class BoardSnapshot, which takes the arrays
+     * it is given instead of copying them, so they must never be changed.
+     *
+     * @param columns the tiles of each column by row
+     * @param columnHashes the Zobrist hash of each column
+     * @param numColors the number of tile colors of the board
+     * @param numMoves the number of moves taken
+     * @param tilesLeft the number of tiles on the board
+     * @param positionHash the hash of the position
+     */
+    BoardSnapshot(byte[][] columns, long[] columnHashes, int numColors,
+        int numMoves, int tilesLeft, long positionHash)
+    {
+        this.boardSize = columns.length;
+        this.numColors = numColors;
+        this.columns = columns;
+        this.columnHashes = columnHashes;
+        this.numMoves = numMoves;
+        this.tilesLeft = tilesLeft;
+        this.positionHash = positionHash;
+    }
+
+    /**
+     * Accessor method to get the size of the board.
+     *
+     * @return the number of rows and columns on the board
+     */
+    public int getBoardSize()
+    {
+        return this.boardSize;
+    }
+
+    /**
+     * Accessor method to get the number of tile colors of the board.
+     *
+     * @return the number of colors, the first ones of CollapsePiece
+     */
+    public int getColors()
+    {
+        return this.numColors;
+    }
+
+    /**
+     * Accessor method to get a single tile of the board.
+     *
+     * @param row the row of the tile
+     * @param col the column of the tile
+     *
+     * @return the tile at that spot
+     */
+    public CollapsePiece getPiece(int row, int col)
+    {
+        return kPieces[columns[col][row]];
+    }
+
+    /**
+     * Accessor method to get the number of moves taken to reach the position.
+     *
+     * @return the number of moves
+     */
+    public int getNumberOfMoves()
+    {
+        return this.numMoves;
+    }
+
+    /**
+     * Accessor method to get the number of tiles on the board.
+     *
+     * @return the number of tiles left
+     */
+    public int getTilesLeft()
+    {
+        return this.tilesLeft;
+    }
+
+    /**
+     * Determines if every tile has been removed.
+     *
+     * @return true if the board is empty
+     */
+    public boolean isGameOver()
+    {
+        return tilesLeft == 0;
+    }
+
+    /**
+     * Gets the hash of the position, the same as CollapseGame.positionHash
+     * of a game with the same tiles.
+     *
+     * @return the 64 bit hash of the tiles and where they are
+     */
+    public long positionHash()
+    {
+        return this.positionHash;
+    }
+
+    /**
+     * Determines if clicking a cell would remove tiles, because the tile has
+     * a neighbor of the same color.
+     *
+     * @param row the row of the cell
+     * @param col the column of the cell
+     *
+     * @return true if the cell is part of a group of two or more tiles
+     */
+    public boolean isMove(int row, int col)
+    {
+        boolean move = false;
+
+        /*Only a tile on the board can be part of a group*/
+        if(row >= 0 && row < boardSize && col >= 0 && col < boardSize
+            && columns[col][row] != kEmpty)
+        {
+            byte color = columns[col][row];
+
+            move = row > 0 && columns[col][row - 1] == color
+                || row < boardSize - 1 && columns[col][row + 1] == color
+                || col > 0 && columns[col - 1][row] == color
+                || col < boardSize - 1 && columns[col + 1][row] == color;
+        }
+
+        return move;
+    }
+
+    /**
+     * Plays a move on a new snapshot, the same way CollapseGame.takeTurn
+     * plays it.  The group is removed, the tiles above it fall, and the
+     * columns left move toward the center if a column emptied.  Clicking a
+     * lone tile counts as a move that removes nothing, like it does in the
+     * game.
+     *
+     * @param row the row of the cell clicked
+     * @param col the column of the cell clicked
+     *
+     * @return the position after the move, or null if the cell is off the
+     * board or empty
+     */
+    public BoardSnapshot play(int row, int col)
+    {
+        BoardSnapshot next = null;
+
+        /*Only a tile on the board can be clicked*/
+        if(row >= 0 && row < boardSize && col >= 0 && col < boardSize
+            && columns[col][row] != kEmpty)
+        {
+            /*A lone tile changes nothing but the number of moves*/
+            if(!isMove(row, col))
+            {
+                next = new BoardSnapshot(columns, columnHashes, numColors,
+                    numMoves + 1, tilesLeft, positionHash);
+            }
+            else
+            {
+                next = removeGroup(row, col);
+            }
+        }
+
+        return next;
+    }
+
+    /**
+     * Helper method to play, removes the group of a cell and makes the
+     * snapshot of the board it leaves.
+     *
+     * @param row the row of a tile of the group
+     * @param col the column of a tile of the group
+     *
+     * @return the position after the group is removed
+     */
+    private BoardSnapshot removeGroup(int row, int col)
+    {
+        byte[][] nextColumns = columns.clone();
+        long[] nextHashes = columnHashes.clone();
+        int[] stack = kStacks.get();
+        byte color = columns[col][row];
+        int top = 0;
+        int removed = 0;
+        boolean emptied = false;
+        long hash = 0;
+
+        /*Makes the stack of the thread the first time, or when it is too small*/
+        if(stack == null || stack.length < boardSize * boardSize)
+        {
+            stack = new int[boardSize * boardSize];
+            kStacks.set(stack);
+        }
+
+        //Copies the column of the click and empties the cell, so a cell is
+        //on the stack only once and the copy is where the group is marked.
+        //A column that was copied is no longer the one of this snapshot
+        nextColumns[col] = columns[col].clone();
+        nextColumns[col][row] = kEmpty;
+        stack[top++] = col * boardSize + row;
+
+        /*Removes the group, one cell at a time*/
+        while(top > 0)
+        {
+            int cell = stack[--top];
+            int cellCol = cell / boardSize;
+            int cellRow = cell % boardSize;
+
+            removed++;
+            /*Iterates through each of the four neighbors of the cell*/
+            for(int dir = 0; dir < 4; dir++)
+            {
+                int nextRow = cellRow + (dir == 0 ? -1 : dir == 1 ? 1 : 0);
+                int nextCol = cellCol + (dir == 2 ? -1 : dir == 3 ? 1 : 0);
+
+                /*Only a neighbor of the same color on the board is removed*/
+                if(nextRow >= 0 && nextRow < boardSize && nextCol >= 0
+                    && nextCol < boardSize && nextColumns[nextCol][nextRow] == color)
+                {
+                    /*Copies a column the first time a tile is removed from it*/
+                    if(nextColumns[nextCol] == columns[nextCol])
+                    {
+                        nextColumns[nextCol] = columns[nextCol].clone();
+                    }
+                    nextColumns[nextCol][nextRow] = kEmpty;
+                    stack[top++] = nextCol * boardSize + nextRow;
+                }
+            }
+        }
+
+        /*Lets the tiles of each copied column fall and rehashes it*/
+        for(int colIter = 0; colIter < boardSize; colIter++)
+        {
+            /*Only the copied columns changed*/
+            if(nextColumns[colIter] != columns[colIter])
+            {
+                emptied |= fall(nextColumns[colIter]);
+                nextHashes[colIter] = hashColumn(nextColumns[colIter]);
+            }
+        }
+
+        /*Moves the columns left toward the center if one emptied*/
+        if(emptied)
+        {
+            center(nextColumns, nextHashes);
+        }
+
+        /*Adds up the keys of the columns where they now stand*/
+        for(int colIter = 0; colIter < boardSize; colIter++)
+        {
+            hash ^= CollapseGame.columnKey(nextHashes[colIter], colIter);
+        }
+
+        return new BoardSnapshot(nextColumns, nextHashes, numColors,
+            numMoves + 1, tilesLeft - removed, hash);
+    }
+
+    /**
+     * Lets the tiles of a column fall onto the bottom row, keeping their
+     * order.
+     *
+     * @param column the tiles of the column, which is changed
+     *
+     * @return true if the column has no tiles
+     */
+    private static boolean fall(byte[] column)
+    {
+        int writeRow = column.length - 1;
+
+        /*Packs the tiles onto the bottom, from the bottom up*/
+        for(int readRow = column.length - 1; readRow >= 0; readRow--)
+        {
+            /*Only tiles are moved*/
+            if(column[readRow] != kEmpty)
+            {
+                column[writeRow--] = column[readRow];
+            }
+        }
+        /*Empties the cells above the tiles*/
+        for(int rowIter = writeRow; rowIter >= 0; rowIter--)
+        {
+            column[rowIter] = kEmpty;
+        }
+
+        return writeRow == column.length - 1;
+    }
+
+    /**
+     * Gets the Zobrist hash of the tiles of a column.
+     *
+     * @param column the tiles of the column
+     *
+     * @return the hash, the same as CollapseGame keeps for the column
+     */
+    private static long hashColumn(byte[] column)
+    {
+        long hash = 0;
+
+        /*Iterates through each row of the column*/
+        for(int rowIter = 0; rowIter < column.length; rowIter++)
+        {
+            /*Only tiles are hashed, empty cells add nothing*/
+            if(column[rowIter] != kEmpty)
+            {
+                hash ^= CollapseGame.zobrist(rowIter, column[rowIter]);
+            }
+        }
+
+        return hash;
+    }
+
+    /**
+     * Packs the columns that have tiles onto the center, the same way
+     * CollapseGame does it.  Only the references to the columns move.
+     *
+     * @param nextColumns the columns, which are reordered
+     * @param nextHashes the hashes of the columns, reordered with them
+     */
+    private static void center(byte[][] nextColumns, long[] nextHashes)
+    {
+        int size = nextColumns.length;
+        int centerCol = size / 2;
+        int writeCol = centerCol;
+
+        /*Packs the non-empty columns right of the center onto the center*/
+        for(int readCol = centerCol; readCol < size; readCol++)
+        {
+            /*Determines if the current column has tiles*/
+            if(nextColumns[readCol][size - 1] != kEmpty)
+            {
+                swap(nextColumns, nextHashes, readCol, writeCol);
+                writeCol++;
+            }
+        }
+
+        //If the board is even sized, or the center column is taken, then
+        //the left half packs onto the column left of the center
+        if(size % 2 == 0 || nextColumns[centerCol][size - 1] != kEmpty)
+        {
+            centerCol--;
+        }
+        writeCol = centerCol;
+
+        /*Packs the non-empty columns left of the center onto the center*/
+        for(int readCol = centerCol; readCol >= 0; readCol--)
+        {
+            /*Determines if the current column has tiles*/
+            if(nextColumns[readCol][size - 1] != kEmpty)
+            {
+                swap(nextColumns, nextHashes, readCol, writeCol);
+                writeCol--;
+            }
+        }
+    }
+
+    /**
+     * Helper method to center, swaps two columns and their hashes.
+     *
+     * @param nextColumns the columns
+     * @param nextHashes the hashes of the columns
+     * @param fromCol the column being moved
+     * @param toCol the column it is moved to
+     */
+    private static void swap(byte[][] nextColumns, long[] nextHashes, int fromCol, int toCol)
+    {
+        byte[] column = nextColumns[toCol];
+        long hash = nextHashes[toCol];
+
+        nextColumns[toCol] = nextColumns[fromCol];
+        nextColumns[fromCol] = column;
+        nextHashes[toCol] = nextHashes[fromCol];
+        nextHashes[fromCol] = hash;
+    }
+
+    /**
+     * Determines if another snapshot has the same tiles in the same cells.
+     * The number of moves taken is not compared.
+     *
+     * @param other the object being compared
+     *
+     * @return true if it is a snapshot of the same position
+     */
+    @Override
+    public boolean equals(Object other)
+    {
+        boolean same = other instanceof BoardSnapshot;
+
+        /*Only snapshots of the same board with the same hash can be the same*/
+        if(same)
+        {
+            BoardSnapshot snapshot = (BoardSnapshot) other;
+
+            same = boardSize == snapshot.boardSize && positionHash == snapshot.positionHash
+                && tilesLeft == snapshot.tilesLeft;
+            /*Compares the columns, which are often the same arrays*/
+            for(int colIter = 0; same && colIter < boardSize; colIter++)
+            {
+                same = columns[colIter] == snapshot.columns[colIter]
+                    || java.util.Arrays.equals(columns[colIter], snapshot.columns[colIter]);
+            }
+        }
+
+        return same;
+    }
+
+    /**
+     * Gets a hash code that agrees with equals.
+     *
+     * @return the upper and lower halves of the position hash together
+     */
+    @Override
+    public int hashCode()
+    {
+        return (int) (positionHash ^ (positionHash >>> 32));
+    }
+}
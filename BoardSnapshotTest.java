@@ -0,0 +1,94 @@
+
+
+/**
+ * The test class BoardSnapshotTest.
+ *
+ * @author  Erik Owen
+ * @version 1
+ */
+public class BoardSnapshotTest extends junit.framework.TestCase
+{
+    /**
+     * Default constructor for test class BoardSnapshotTest
+     */
+    public BoardSnapshotTest()
+    {
+    }
+
+    /**
+     * Tests that moves played on snapshots leave the same positions as
+     * moves played on a game, and that the earlier snapshots do not change
+     */
+    public void testPlayMatchesGame()
+    {
+        java.util.Random clicks = new java.util.Random(17);
+
+        for(int size = 3; size <= 12; size++)
+        {
+            CollapseGame game = new CollapseGame(size, size * 31);
+            BoardSnapshot snapshot = game.snapshot();
+            BoardSnapshot start = snapshot;
+
+            while(!game.isGameOver() && !game.isStuck())
+            {
+                int row = clicks.nextInt(size);
+                int col = clicks.nextInt(size);
+                BoardSnapshot next = snapshot.play(row, col);
+
+                assertEquals(game.takeTurn(row, col), next != null);
+                if(next != null)
+                {
+                    snapshot = next;
+                }
+                assertSameTiles(game, snapshot);
+                assertEquals(game.positionHash(), snapshot.positionHash());
+                assertEquals(game.getTilesLeft(), snapshot.getTilesLeft());
+                assertEquals(game.getNumberOfMoves(), snapshot.getNumberOfMoves());
+                assertEquals(game.isGameOver(), snapshot.isGameOver());
+            }
+            assertSameTiles(new CollapseGame(size, size * 31), start);
+            assertEquals(0, start.getNumberOfMoves());
+        }
+    }
+
+    /**
+     * Tests that a game can be made from a snapshot and played on from it
+     */
+    public void testRestore()
+    {
+        CollapseGame game = new CollapseGame(9, 4);
+        game.takeTurn(8, 4);
+        game.takeTurn(8, 0);
+        BoardSnapshot snapshot = game.snapshot();
+        CollapseGame restored = new CollapseGame(snapshot);
+
+        assertSameTiles(restored, snapshot);
+        assertEquals(snapshot.positionHash(), restored.positionHash());
+        assertEquals(2, restored.getNumberOfMoves());
+        assertEquals(snapshot, restored.snapshot());
+        assertEquals(snapshot.hashCode(), restored.snapshot().hashCode());
+
+        int cell = 0;
+        while(!snapshot.isMove(cell / 9, cell % 9))
+        {
+            cell++;
+        }
+        game.takeTurn(cell / 9, cell % 9);
+        restored.takeTurn(cell / 9, cell % 9);
+        assertEquals(game.positionHash(), restored.positionHash());
+        assertFalse(snapshot.equals(game.snapshot()));
+        assertEquals(game.snapshot(), snapshot.play(cell / 9, cell % 9));
+    }
+
+    /* Checks that every tile of the game is the same in the snapshot */
+    private void assertSameTiles(CollapseGame game, BoardSnapshot snapshot)
+    {
+        for(int row = 0; row < game.getBoardSize(); row++)
+        {
+            for(int col = 0; col < game.getBoardSize(); col++)
+            {
+                assertEquals(game.getPiece(row, col), snapshot.getPiece(row, col));
+            }
+        }
+    }
+}
@@ -29,11 +29,18 @@ public class CollapseConsole
     private final static int kCheat = 5;
     private final static int kQuit = 6;
     private final static int kCharToInt = 65;
+    private final static int kLetters = 26;
+    /*Columns are at least a tile and two spaces wide*/
+    private final static int kCellWidth = 3;
+    /*Coordinates past this can not be on any board*/
+    private final static int kMaxCoordinate = CollapseGame.kMaxSize;
     private final static int kMaxNameLength = 20;
     private final static int kDefaultBoardSize = 8;
     private int boardNum;
     private CollapseGame game;
+    private BoardCatalog catalog;
     private int boardPrefSize;
+    private int boardPrefColors;
     
     /** Entry point for the application.
      *
@@ -57,6 +64,8 @@ public class CollapseConsole
         {
             this.boardNum = new Random().nextInt(kNumBoards);
             this.boardPrefSize = Preferences.getPreferenceSize();
+            this.boardPrefColors = Preferences.getPreferenceColors();
+            this.catalog = BoardCatalog.open(this.boardPrefSize, this.boardPrefColors);
         }
         catch(IOException e)
         {
@@ -74,13 +83,23 @@ public class CollapseConsole
         this.writer = new PrintWriter(wtr);
     }
 
+    /** Sets the game the console shows, without running the console.
+     *  @param game the game to show
+     *  @param boardNumber the number of the board of the game
+     */
+    void setGame(CollapseGame game, int boardNumber)
+    {
+        this.game = game;
+        this.boardNum = boardNumber;
+    }
+
     /** Run the console user interface, using the i/o streams provided by
      *  setIOsources();
      *  @pre setIOsources() has been called.
      */
     public void run()
     {
-        this.game = new CollapseGame(this.boardPrefSize, this.boardNum);
+        this.game = new CollapseGame(this.boardPrefSize, this.boardNum, this.boardPrefColors);
         String userInput = "";
         int userChoice = 0;
         boolean gameOver = false, validMove = false;
@@ -108,12 +127,10 @@ public class CollapseConsole
                 /*If the character enters more than one character*/
                 else if(userInput.length() > 1)
                 {
-                    userInput = userInput.substring(0, 2);
-                    int row = userInput.substring(0, 1)
-                        .toUpperCase().charAt(0) - kCharToInt;
-                    int column = Integer.parseInt(userInput.substring(1, 2)) - 1;
+                    TileCoordinates coords = parseCoordinates(userInput);
                     
-                    validMove = game.takeTurn(row, column);
+                    validMove = coords != null && game.takeTurn(
+                        coords.getRowCoordinate(), coords.getColumnCoordinate());
                     
                     /*Determines if the move is valid*/
                     if(validMove)
@@ -143,7 +160,7 @@ public class CollapseConsole
         {
             case kRestart:
                 //restart the game
-                this.game = new CollapseGame(this.boardPrefSize, this.boardNum);
+                this.game.reset(this.boardNum);
                 displayBoardAndOptions();
                 break;
             case kNewGame:
@@ -156,7 +173,7 @@ public class CollapseConsole
                 {
                     this.boardNum++;
                 }
-                this.game = new CollapseGame(this.boardPrefSize, this.boardNum);
+                this.game.reset(this.boardNum);
                 displayBoardAndOptions();
                 break;
             case kSelectGame:
@@ -168,6 +185,9 @@ public class CollapseConsole
                 //View high scores
                 writer.write("-- High Scores --\n");
                 writer.write(HighScores.getHighScores());
+                writer.write("-- Board " + this.boardNum + " Scores --\n");
+                writer.write(HighScores.getHighScores(this.game.getBoardSize(),
+                    this.game.getColors(), this.boardNum));
                 writer.flush();           
                 break;
             case kCheat:
@@ -188,6 +208,14 @@ public class CollapseConsole
     private void gameOver(Scanner scan) throws IOException
     {
         String input = "", name = "";
+        GameReplay replay = this.game.getReplay();
+        long replayOffset = ScoreRecord.kNoReplay;
+
+        /*Keeps the replay of every game that was won by playing it, once it checks out*/
+        if(replay != null && new ReplayVerifier().verify(replay, this.game.getNumberOfMoves()))
+        {
+            replayOffset = replay.appendTo(GameReplay.kReplayPath);
+        }
 
         writer.write("Game Won Notification: Game " + this.boardNum + " Cleared! \n");
         writer.write("Save your score? (y/n)\n");
@@ -219,7 +247,11 @@ public class CollapseConsole
                 name = name.substring(0, kMaxNameLength);
             }
                 
-            HighScores.addHighScore(name, this.game.getNumberOfMoves());
+            //A score without a confirmed replay is saved with kNoReplay,
+            //which marks it as unverified
+            HighScores.addHighScore(name, this.game.getNumberOfMoves(),
+                this.game.getBoardSize(), this.game.getColors(), this.boardNum,
+                replayOffset);
         }
     }
     
@@ -227,8 +259,18 @@ public class CollapseConsole
     {
         String boardNumberString = "-1";
         int boardNumber;
+        int difficulty = -1;
 
-        writer.write("Select Game: Enter desired game number (1 - 5000):\n");
+        /*Offers the difficulties only when there is a catalog of the boards*/
+        if(this.catalog == null)
+        {
+            writer.write("Select Game: Enter desired game number (1 - 5000):\n");
+        }
+        else
+        {
+            writer.write("Select Game: Enter desired game number (1 - 5000) or difficulty ("
+                + String.join(", ", BoardCatalog.kDifficulties) + "):\n");
+        }
         writer.flush();
         
         /*Only reads in from scanner if there is another line*/
@@ -237,69 +279,159 @@ public class CollapseConsole
             boardNumberString = scan.nextLine();
         }
         
-        boardNumber = Integer.parseInt(boardNumberString);
+        /*Looks up the difficulty only when there is a catalog of the boards*/
+        if(this.catalog != null)
+        {
+            difficulty = BoardCatalog.parseDifficulty(boardNumberString);
+        }
+        
+        /*A difficulty picks one of the catalog's boards of that difficulty*/
+        if(difficulty >= 0)
+        {
+            boardNumber = this.catalog.pickBoard(difficulty, new Random());
+            /*Tells the player about the board picked*/
+            if(boardNumber > 0)
+            {
+                writer.write(this.catalog.describe(boardNumber) + "\n");
+            }
+        }
+        else
+        {
+            boardNumber = Integer.parseInt(boardNumberString);
+        }
         
         /*Makes sure the board number is in the range of 1-5000*/
         if(boardNumber > 0 && boardNumber <= kNumBoards)
         {
-            this.game = new CollapseGame(this.boardPrefSize, boardNumber);
+            this.game.reset(boardNumber);
             this.boardNum = boardNumber;
         }
     }
     
-    private void displayBoardAndOptions()
+    /**
+     * Parses the cell a player typed, a row of letters followed by a column
+     * number, like a1 or AB12.  Rows after Z go on AA, AB and so on, and
+     * spaces between the row and the column are allowed.
+     * 
+     * @param input the trimmed line the player typed
+     * 
+     * @return the row and column from 0, or null if it is not a cell
+     */
+    private static TileCoordinates parseCoordinates(String input)
+    {
+        String cell = input.toUpperCase();
+        int ndx = 0;
+        int row = 0;
+        int column = 0;
+        
+        /*Reads the row letters, counting A to Z as 1 to 26 in each place*/
+        while(ndx < cell.length() && cell.charAt(ndx) >= 'A' && cell.charAt(ndx) <= 'Z'
+            && row <= kMaxCoordinate)
+        {
+            row = row * kLetters + cell.charAt(ndx++) - kCharToInt + 1;
+        }
+        /*Skips any spaces between the row and the column*/
+        while(ndx < cell.length() && cell.charAt(ndx) == ' ')
+        {
+            ndx++;
+        }
+        int digitsFrom = ndx;
+        /*Reads the column digits*/
+        while(ndx < cell.length() && Character.isDigit(cell.charAt(ndx))
+            && column <= kMaxCoordinate)
+        {
+            column = column * 10 + cell.charAt(ndx++) - '0';
+        }
+        
+        return row == 0 || ndx == digitsFrom || ndx < cell.length() ? null
+            : new TileCoordinates(row - 1, column - 1);
+    }
+    
+    /**
+     * Gets the letters of a row, A to Z and then AA, AB and so on.
+     * 
+     * @param row the row from 0
+     * 
+     * @return the letters of the row
+     */
+    private static String rowLetters(int row)
+    {
+        StringBuilder letters = new StringBuilder();
+        
+        /*Builds the letters from the last one back*/
+        for(int rest = row + 1; rest > 0; rest = (rest - 1) / kLetters)
+        {
+            letters.insert(0, (char) (kCharToInt + (rest - 1) % kLetters));
+        }
+        
+        return letters.toString();
+    }
+    
+    /**
+     * Writes a number of copies of a character.
+     * 
+     * @param symbol the character written
+     * @param count how many times it is written
+     */
+    private void writeRepeated(char symbol, int count)
     {
-        char[][] board = game.getCharacterBoard();
+        /*Writes the character once for each copy*/
+        for(int ndx = 0; ndx < count; ndx++)
+        {
+            writer.write(symbol);
+        }
+    }
+    
+    //Writes the board one cell at a time, so nothing the size of the board
+    //is built.  Columns are as wide as their numbers and rows start with
+    //labels as wide as the longest one, which keeps the usual layout for
+    //boards of up to 26 rows and 9 columns
+    void displayBoardAndOptions()
+    {
+        int boardSize = game.getBoardSize();
+        int labelWidth = rowLetters(boardSize - 1).length();
+        int cellWidth = Math.max(kCellWidth, Integer.toString(boardSize).length() + 1);
         writer.write("Collapse - board " + this.boardNum + "\n");
         writer.write("Tiles left: " + game.getTilesLeft() + "    Moves: "
             + game.getNumberOfMoves() + "\n");
-        String colString = "     ";
+        writeRepeated(' ', labelWidth + 4);
         
-        /*Creates the top row of numbers on the board*/
-        for(int colIter = 1; colIter < board[0].length; colIter++)
+        /*Writes the top row of numbers on the board*/
+        for(int colIter = 1; colIter < boardSize; colIter++)
         {
-            colString = colString.concat(colIter + "  ");
+            String number = Integer.toString(colIter);
+            
+            writer.write(number);
+            writeRepeated(' ', cellWidth - number.length());
         }
-        colString = colString.concat(board[0].length + "\n");
-        writer.write(colString);
-        
-        char curLetter = 'A';
-        String curRow = "";
+        writer.write(boardSize + "\n");
         
         /*Iterates through each row ont he board*/
-        for(int rowIter = 0; rowIter < board.length; rowIter++, curLetter++)
+        for(int rowIter = 0; rowIter < boardSize; rowIter++)
         {
-            curRow = curRow.concat(" " + curLetter + ":  ");
+            String letters = rowLetters(rowIter);
             
-            /*Creates each row of the board by concatenating all of the columns*/
-            for(int colIter = 0; colIter < board[0].length; colIter++)
+            writer.write(" " + letters + ":");
+            writeRepeated(' ', labelWidth - letters.length() + 2);
+            
+            /*Writes each column of the row*/
+            for(int colIter = 0; colIter < boardSize; colIter++)
             {
-                curRow = curRow.concat(new
-                    Character(board[rowIter][colIter]).toString());
+                writer.write(game.getSymbol(rowIter, colIter));
                     
                 /*Makes sure spacing is correct*/
-                if(colIter < board[0].length - 1)
+                if(colIter < boardSize - 1)
                 {
-                    curRow = curRow.concat("  ");
+                    writeRepeated(' ', cellWidth - 1);
                 }
             }
                 
-            curRow = curRow.concat("\n");
-            writer.write(curRow);
-            curRow = "";
-                
-        }
-            
-        String dashedLine = " ----";
-        
-        /*Creates the dashed line's size depending on the size of the board*/
-        for(int dashNdx = 0; dashNdx < board[0].length - 1; dashNdx++)
-        {
-            dashedLine = dashedLine.concat("---");
+            writer.write('\n');
         }
             
-        dashedLine = dashedLine.concat("-\n");
-        writer.write(dashedLine);
+        writer.write(' ');
+        writeRepeated('-', labelWidth + 4 + cellWidth * (boardSize - 1));
+        writer.write("\n");
         writer.write("1)Restart 2)New Game 3)Select Game 4)Scores 5)Cheat 6)Quit \n");
         writer.flush();
     }
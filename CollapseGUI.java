@@ -26,10 +26,19 @@ public class CollapseGUI extends JFrame
     /* Tile dimensions */
     private int TileWidth = 75;
     private int TileHeight = 55;
-    private ImageIcon [] images = new ImageIcon[10];
+    private ImageIcon [] images = new ImageIcon[CollapsePiece.values().length];
     private CollapseGame game;
-    private int boardPrefSize, boardNum;
+    private BoardCatalog catalog;
+    private MoveResult moveResult = new MoveResult();
+    private int boardPrefSize, boardPrefColors, boardNum;
     private final static int kNumBoards = 5000;
+    /* How long the advisor thinks about a hint */
+    private final static long kHintMillis = 1000;
+    /* Plain tile colors, for the colors that have no icon */
+    private final static Color[] kTileColors = {Color.GREEN, new Color(128, 0, 128),
+        Color.RED, Color.BLUE, Color.YELLOW, Color.ORANGE, Color.CYAN, Color.PINK,
+        new Color(139, 69, 19), Color.GRAY, Color.WHITE, Color.BLACK,
+        new Color(0, 128, 128), new Color(50, 205, 50), new Color(0, 0, 128)};
 
     /** Create a GUI.
      * Will use the System Look and Feel when possible.
@@ -40,7 +49,9 @@ public class CollapseGUI extends JFrame
         
         this.boardNum = new Random().nextInt(kNumBoards);
         this.boardPrefSize = Preferences.getPreferenceSize();
-        this.game = new CollapseGame(this.boardPrefSize, this.boardNum);
+        this.boardPrefColors = Preferences.getPreferenceColors();
+        this.game = new CollapseGame(this.boardPrefSize, this.boardNum, this.boardPrefColors);
+        this.catalog = BoardCatalog.open(this.boardPrefSize, this.boardPrefColors);
         super.setTitle("Collapse - board " + this.boardNum);
         try
         {
@@ -142,12 +153,22 @@ public class CollapseGUI extends JFrame
             {
                 String gameNumString = JOptionPane.showInputDialog(
                     null,
-                    "Enter desired game number (1 - 5000)",
+                    "Enter desired game number (1 - 5000)" + (catalog == null ? ""
+                    	: "\nor difficulty (" + String.join(", ", BoardCatalog.kDifficulties) + ")"),
                     "Select Game",
                     JOptionPane.QUESTION_MESSAGE
                 );
+                int difficulty = gameNumString == null || catalog == null ? -1
+                	: BoardCatalog.parseDifficulty(gameNumString);
                 
-                if(gameNumString != null)
+                // A difficulty picks one of the catalog's boards of that difficulty
+                if(difficulty >= 0 && catalog.findBoards(difficulty).length > 0)
+                {
+                	boardNum = catalog.pickBoard(difficulty, new Random());
+                	newGame(boardNum);
+                	gameStatus.setText(catalog.describe(boardNum));
+                }
+                else if(gameNumString != null)
                 {
                 	try
                 	{
@@ -171,7 +192,8 @@ public class CollapseGUI extends JFrame
 			public void actionPerformed(ActionEvent e) {
 				JOptionPane.showMessageDialog(
 					null,
-		            HighScores.getHighScores(),
+		            HighScores.getHighScores() + "Board " + boardNum + "\n"
+		                + HighScores.getHighScores(game.getBoardSize(), game.getColors(), boardNum),
 		            "Hall of Fame",
 		            JOptionPane.PLAIN_MESSAGE
 		        );
@@ -181,6 +203,42 @@ public class CollapseGUI extends JFrame
         });
         mnuGame.add(mnuScores);
         
+        final JMenuItem mnuHint = new JMenuItem("Hint");
+        mnuHint.setAccelerator(KeyStroke.getKeyStroke('H', ActionEvent.ALT_MASK));
+        mnuHint.addActionListener(new ActionListener()
+        {
+            public void actionPerformed(ActionEvent e)
+            {
+                // The advisor copies the board here, and thinks off the event thread
+                final MoveAdvisor advisor = new MoveAdvisor(game);
+                final long asked = game.positionHash();
+                mnuHint.setEnabled(false);
+                gameStatus.setText("Thinking...");
+                new SwingWorker<Boolean, Void>()
+                {
+                    protected Boolean doInBackground()
+                    {
+                        return advisor.think(kHintMillis);
+                    }
+
+                    protected void done()
+                    {
+                        mnuHint.setEnabled(true);
+                        gameStatus.setText("Tiles left: " + game.getTilesLeft() + "\t\tMoves: " + game.getNumberOfMoves());
+                        // Only shows the hint if the board has not changed since it was asked for
+                        if(advisor.getBestMove() >= 0 && game.positionHash() == asked)
+                        {
+                            table.changeSelection(advisor.getBestRow(), advisor.getBestColumn(), false, false);
+                            gameStatus.setText(String.format("Hint: row %d, column %d (about %.1f moves)",
+                                advisor.getBestRow(), advisor.getBestColumn(),
+                                advisor.getExpectedMoves(advisor.getBestMove())));
+                        }
+                    }
+                }.execute();
+            }
+        });
+        mnuGame.add(mnuHint);
+        
         JMenuItem mnuCheat = new JMenuItem("Cheat");
         mnuCheat.setAccelerator(KeyStroke.getKeyStroke('C', ActionEvent.ALT_MASK));
         mnuCheat.addActionListener(new ActionListener()
@@ -239,7 +297,6 @@ public class CollapseGUI extends JFrame
                     //System.out.println("Row: " + row + ", Column: " + col);
                     selectCell(row, col);
                 }
-                repaint();
             }
         }
         );
@@ -255,7 +312,6 @@ public class CollapseGUI extends JFrame
                     int row = table.getSelectedRow();
                     selectCell(row, col);
                 }
-                repaint();
             }
         });
         
@@ -274,20 +330,51 @@ public class CollapseGUI extends JFrame
             String file = "icons/" + lights[ndx].name().toLowerCase() + ".png";
             URL url = getClass().getResource(file);
             //System.out.println(url.getPath());
-            ImageIcon original = new ImageIcon(url);
-            Image scaled = original.getImage().getScaledInstance(TileWidth, TileHeight, Image.SCALE_DEFAULT);
-            ImageIcon icon = new ImageIcon(scaled);
-            images[ndx] = icon;
+            // Colors without an icon are drawn as plain tiles
+            if (url == null)
+            {
+                java.awt.image.BufferedImage tile = new java.awt.image.BufferedImage(
+                    TileWidth, TileHeight, java.awt.image.BufferedImage.TYPE_INT_RGB);
+                Graphics graphics = tile.getGraphics();
+                graphics.setColor(kTileColors[ndx]);
+                graphics.fillRect(1, 1, TileWidth - 2, TileHeight - 2);
+                graphics.dispose();
+                images[ndx] = new ImageIcon(tile);
+            }
+            else
+            {
+                ImageIcon original = new ImageIcon(url);
+                Image scaled = original.getImage().getScaledInstance(TileWidth, TileHeight, Image.SCALE_DEFAULT);
+                ImageIcon icon = new ImageIcon(scaled);
+                images[ndx] = icon;
+            }
         }
     }
 
     private void selectCell(int row, int col)
     {	
-        boolean validMove = game.takeTurn(row, col);
+        boolean validMove = game.takeTurn(row, col, moveResult).isValidTurn();
+        // Only repaint the cells the move changed
+        model.fireMoveChanged(moveResult);
         gameStatus.setText("Tiles left: " + game.getTilesLeft() + "\t\tMoves: " + game.getNumberOfMoves());
         
         if(game.isGameOver() && validMove)
         {
+            GameReplay replay = game.getReplay();
+            long replayOffset = ScoreRecord.kNoReplay;
+            
+            // Keeps the replay of every game that was won by playing it, once it checks out
+            if(replay != null && new ReplayVerifier().verify(replay, game.getNumberOfMoves()))
+            {
+            	try
+            	{
+            		replayOffset = replay.appendTo(GameReplay.kReplayPath);
+            	}
+            	catch(IOException e)
+            	{
+            		e.printStackTrace();
+            	}
+            }
             String choice = JOptionPane.showInputDialog(
                 this,
                 "Game " + this.boardNum + " Cleared!\nSave your score? (y/n)",
@@ -302,11 +389,14 @@ public class CollapseGUI extends JFrame
                     "Hall of Fame Entry",
                     JOptionPane.QUESTION_MESSAGE
                     );
+                // A score without a confirmed replay is saved with kNoReplay,
+                // which marks it as unverified
                 if(name != null)
                 {
                 	try
                 	{
-                		HighScores.addHighScore(name, game.getNumberOfMoves());
+                		HighScores.addHighScore(name, game.getNumberOfMoves(),
+                			game.getBoardSize(), game.getColors(), boardNum, replayOffset);
                 	}
                 	catch(IOException e)
                 	{
@@ -321,7 +411,7 @@ public class CollapseGUI extends JFrame
     private void newGame(int gameNum)
     {
     	//getContentPane().remove(table);
-        this.game = new CollapseGame(this.boardPrefSize, gameNum);
+        this.game.reset(gameNum);
         super.setTitle("Collapse - board " + this.boardNum);
         gameStatus = new JLabel("Tiles left: " + game.getTilesLeft() + "\t\tMoves: " + game.getNumberOfMoves());
         this.statusPane.removeAll();
@@ -329,8 +419,8 @@ public class CollapseGUI extends JFrame
         this.statusPane.revalidate();
         this.statusPane.repaint();
         
-        this.model = new GameTableModel(game);
-        this.table.setModel(model);
+        //The model already shows this game, so it only has to repaint it
+        this.model.fireTableDataChanged();
         
         repaint();
         
@@ -8,12 +8,125 @@ import java.util.*;
  */
 public class CollapseGame
 {
-    private CollapsePiece[][] tileBoard;
-    private char[][] characterBoard;
-    //private CollapsePiece[][] savedTileBoard;
-    //private char[][] savedCharacterBoard;
+    //The tiles are stored by physical column, see columnMap, as the
+    //ordinal of each tile packed kCellBits to a cell.  Each column starts a
+    //new word, with its top row in the lowest bits
+    private long[] cells;
+    private int columnWords;
+    /*Maps each column on screen to the physical column holding its tiles*/
+    private int[] columnMap;
+    /*Copies of the board in screen order, only kept once they are asked for*/
+    private CollapsePiece[][] tileView;
+    private char[][] characterView;
+    /*Screen column each physical column is shown in*/
+    private int[] columnPosition;
+    /*Result the current move is recorded in, null if it is not recorded*/
+    private MoveResult moveResult;
+    /*Range of screen columns the current move changed*/
+    private int changedFrom;
+    private int changedTo;
     private int boardSize;
     private int numMoves;
+    /*Number of tile colors, the first ones of CollapsePiece*/
+    private int numColors;
+    /*Bitboard index over the board, null when the board is too big for it*/
+    private BitBoard bitBoard;
+    /*Flood fill scratch space, allocated once and reused by every move*/
+    private int[] fillStack;
+    private int[] groupCells;
+    private long[] visited;
+    //Group label of every cell by physical column * boardSize + row, -1
+    //for empty cells, built the first time groups are asked for and only
+    //relabeled around the columns that changed after that
+    private int[] cellLabels;
+    //Size, color, first cell (physical column * boardSize + row) and range
+    //of screen columns of the group of each label
+    private int[] labelSizes;
+    private CollapsePiece[] labelColors;
+    private int[] labelCells;
+    private int[] labelFrom;
+    private int[] labelTo;
+    /*Labels in use, with where each one is in the list, and labels free to use*/
+    private int[] liveLabels;
+    private int[] livePositions;
+    private int liveCount;
+    private int[] freeLabels;
+    private int freeCount;
+    /*Number of labels of two or more tiles*/
+    private int groupMoves;
+    /*Range of screen columns changed since the groups were last labeled*/
+    private int labelsFrom;
+    private int labelsTo;
+    /*Union-find scratch space of relabel, by column * boardSize + row*/
+    private int[] groupParents;
+    /*Live tile counts by physical column, so the board is never scanned*/
+    private int tilesLeft;
+    private int[] colorCounts;
+    private int[] columnCounts;
+    private int nonEmptyColumns;
+    //Live count of neighboring tiles with the same color, as the pairs
+    //inside each physical column and the pairs across each screen column
+    //boundary, so a board with no moves left is known without a scan
+    private int adjacentPairs;
+    private int[] columnPairs;
+    private int[] boundaryPairs;
+    /*Physical columns the move removed tiles from, with the lowest row removed*/
+    private int[] dirtyColumns;
+    private int dirtyCount;
+    private int[] lowestRemoved;
+    //Ring buffer journal of the moves that can be undone.  Each move is one
+    //record: length, click, removed count, swap count, one int per removed
+    //tile ((row * boardSize + physical column) << 4 | color), one int per
+    //column swap (from << 16 | to), and the length again at the end
+    private int[] journal;
+    private int journalStart;
+    private int journalEnd;
+    private int journalUsed;
+    private int journalRecords;
+    private int journalLimit;
+    private int recordLength;
+    private int recordSwaps;
+    private boolean journaling;
+    /*Clicks of the undone moves, newest last*/
+    private int[] redoClicks;
+    private int redoCount;
+    //Board the game was started on, -1 if it is not known, and the click of
+    //every move taken since, as row << 16 | column
+    private int boardNumber;
+    private int[] clicks;
+    private int clickCount;
+    /*Tiles per physical column put back by the current undo*/
+    private int[] restoredCounts;
+    private final static int kJournalMinSize = 1024;
+    private final static int kRecordHeader = 4;
+    private final static int kColorBits = 4;
+    private final static char[] kSymbols = {'+', 'x', 'o', '*', '#', '@', '%',
+        '&', '=', '$', '?', '~', '^', '!', '/', ' '};
+    private final static CollapsePiece[] kPieces = CollapsePiece.values();
+    private final static int kEmpty = CollapsePiece.empty.ordinal();
+    private final static int kCellBits = kColorBits;
+    private final static int kCellsPerWord = 64 / kCellBits;
+    private final static long kCellMask = (1L << kCellBits) - 1;
+    /*The largest board, so every cell fits in the journal and the clicks*/
+    public final static int kMaxSize = 1000;
+    /*Boards have from 2 to 15 colors, 3 unless they ask for more*/
+    public final static int kMinColors = 2;
+    public final static int kMaxColors = CollapsePiece.values().length - 1;
+    public final static int kDefaultColors = 3;
+    /*Starting layouts of the boards generated most recently, shared by every game*/
+    private final static long kLayoutCacheCells = 1L << 20;
+    private final static BoardLayoutCache kLayouts = new BoardLayoutCache(kLayoutCacheCells);
+    //Zobrist hash of the tiles of each physical column, and the key each
+    //column adds to the position hash from where it stands on screen, so a
+    //column that moves only changes its own key
+    private long[] columnHashes;
+    private long[] columnKeys;
+    private long positionHash;
+    //Step between the values a SplitMix64 sequence scrambles, shared with
+    //the random playouts that seed themselves the same way
+    final static long kGamma = 0x9E3779B97F4A7C15L;
+    private final static long kTileGamma = kGamma;
+    private final static long kColumnGamma = 0xC2B2AE3D27D4EB4FL;
 
     /**
      * Constructor for objects of class CollapseGame
@@ -23,211 +136,1591 @@ public class CollapseGame
      */
     public CollapseGame(int dimension, int boardNumber)
     {
+        this(dimension, boardNumber, kDefaultColors);
+    }
+
+    /**
+     * Constructor for objects of class CollapseGame with a number of colors.
+     * A board with 3 colors is the same board as the one the two argument
+     * constructor makes.
+     * 
+     * @param dimension the size of the board
+     * @param boardNumber the desired board number
+     * @param colors the number of tile colors, from kMinColors to kMaxColors
+     */
+    public CollapseGame(int dimension, int boardNumber, int colors)
+    {
+        this(dimension);
+        
+        /*Every color and the empty cell have to fit in a cell's bits*/
+        if(colors < kMinColors || colors > kMaxColors)
+        {
+            throw new IllegalArgumentException("Colors must be " + kMinColors + " to " + kMaxColors);
+        }
+        
+        this.numColors = colors;
+        this.loadBoard(boardNumber);
+        this.indexBoard();
+    }
+
+    /**
+     * Constructor for a copy of a game in its current position, with the
+     * same number of moves taken.  The copy can not undo the moves of the
+     * game it was copied from, and the two games can be played apart.
+     * 
+     * @param game the game being copied
+     */
+    public CollapseGame(CollapseGame game)
+    {
+        this(game.boardSize);
+        this.numColors = game.numColors;
+        
+        System.arraycopy(game.cells, 0, cells, 0, cells.length);
+        System.arraycopy(game.columnMap, 0, columnMap, 0, boardSize);
+        System.arraycopy(game.columnPosition, 0, columnPosition, 0, boardSize);
+        this.numMoves = game.numMoves;
+        this.boardNumber = game.boardNumber;
+        this.clicks = java.util.Arrays.copyOf(game.clicks, game.clicks.length);
+        this.clickCount = game.clickCount;
+        this.countTiles();
+        this.indexBoard();
+    }
+
+    /**
+     * Constructor for a game in the position of a snapshot, with the same
+     * number of moves taken.  The moves that led to the snapshot can not be
+     * undone.
+     * 
+     * @param snapshot the position the game starts from
+     */
+    public CollapseGame(BoardSnapshot snapshot)
+    {
+        this(snapshot.getBoardSize());
+        this.numColors = snapshot.getColors();
+        
+        /*Copies each tile of the snapshot*/
+        for(int rowIter = 0; rowIter < boardSize; rowIter++)
+        {
+            /*Iterates through each column of the row*/
+            for(int colIter = 0; colIter < boardSize; colIter++)
+            {
+                setColor(rowIter, colIter, snapshot.getPiece(rowIter, colIter).ordinal());
+            }
+        }
+        this.numMoves = snapshot.getNumberOfMoves();
+        this.countTiles();
+        this.indexBoard();
+    }
+
+    /**
+     * Constructor for the empty tables of a board, shared by the public
+     * constructors before they fill the board in.
+     * 
+     * @param dimension the size of the board
+     */
+    private CollapseGame(int dimension)
+    {
+        /*Only sizes whose cells fit in the journal can be played*/
+        if(dimension < 1 || dimension > kMaxSize)
+        {
+            throw new IllegalArgumentException("Board size must be 1 to " + kMaxSize);
+        }
         this.boardSize = dimension;
-        this.tileBoard = new CollapsePiece[boardSize][boardSize];
-        this.characterBoard = new char[boardSize][boardSize];
-        //this.savedTileBoard = new CollapsePiece[boardSize][boardSize];
-        //this.savedCharacterBoard = new char[boardSize][boardSize];
+        this.columnWords = (boardSize + kCellsPerWord - 1) / kCellsPerWord;
+        this.cells = new long[boardSize * columnWords];
         this.numMoves = 0;
+        this.fillStack = new int[boardSize * boardSize];
+        this.groupCells = new int[boardSize * boardSize];
+        this.visited = new long[(boardSize * boardSize + 63) / 64];
+        this.colorCounts = new int[CollapsePiece.values().length - 1];
+        this.columnCounts = new int[boardSize];
+        this.columnPairs = new int[boardSize];
+        this.boundaryPairs = new int[boardSize];
+        this.dirtyColumns = new int[boardSize];
+        this.lowestRemoved = new int[boardSize];
+        java.util.Arrays.fill(lowestRemoved, -1);
+        this.journal = new int[kJournalMinSize];
+        this.journalLimit = Math.max(kJournalMinSize, 2 * boardSize * boardSize);
+        this.redoClicks = new int[boardSize];
+        this.boardNumber = -1;
+        this.clicks = new int[boardSize];
+        this.restoredCounts = new int[boardSize];
+        this.columnHashes = new long[boardSize];
+        this.columnKeys = new long[boardSize];
+        this.columnMap = new int[boardSize];
+        this.columnPosition = new int[boardSize];
+        
+        /*Every column starts out in its own place*/
+        for(int colIter = 0; colIter < boardSize; colIter++)
+        {
+            columnMap[colIter] = colIter;
+            columnPosition[colIter] = colIter;
+        }
+    }
+    
+    /**
+     * Builds the hash and pairs of a board that was just filled in and
+     * counted, and the bitboard of a small board.
+     */
+    private void indexBoard()
+    {
+        this.hashColumns();
+        this.countAllPairs();
+        
+        /*Small boards are indexed by a bitboard*/
+        if(boardSize <= BitBoard.kMaxSize)
+        {
+            this.bitBoard = new BitBoard(this);
+        }
+    }
+    
+    /**
+     * Gets the color of a cell from the packed columns.
+     * 
+     * @param row the row of the cell
+     * @param physCol the physical column of the cell
+     * 
+     * @return the ordinal of the tile in the cell
+     */
+    private int colorAt(int row, int physCol)
+    {
+        return (int) (cells[physCol * columnWords + row / kCellsPerWord]
+            >>> (row % kCellsPerWord * kCellBits) & kCellMask);
+    }
+    
+    /**
+     * Sets the color of a cell in the packed columns.
+     * 
+     * @param row the row of the cell
+     * @param physCol the physical column of the cell
+     * @param color the ordinal of the tile put in the cell
+     */
+    private void setColor(int row, int physCol, int color)
+    {
+        int word = physCol * columnWords + row / kCellsPerWord;
+        int shift = row % kCellsPerWord * kCellBits;
+        
+        cells[word] = cells[word] & ~(kCellMask << shift) | (long) color << shift;
+    }
+    
+    /**
+     * Takes an immutable snapshot of the current position, which searches
+     * can keep and play moves on without a game.
+     * 
+     * @return the snapshot, with the same tiles, moves and hash as the game
+     */
+    public BoardSnapshot snapshot()
+    {
+        byte[][] columns = new byte[boardSize][boardSize];
+        long[] hashes = new long[boardSize];
+        
+        /*Copies each column in screen order*/
+        for(int colIter = 0; colIter < boardSize; colIter++)
+        {
+            int physCol = columnMap[colIter];
+            
+            hashes[colIter] = columnHashes[physCol];
+            /*Iterates through each row of the column*/
+            for(int rowIter = 0; rowIter < boardSize; rowIter++)
+            {
+                columns[colIter][rowIter] = (byte) colorAt(rowIter, physCol);
+            }
+        }
+        
+        return new BoardSnapshot(columns, hashes, numColors, numMoves, tilesLeft, positionHash);
+    }
+
+    /**
+     * Accessor method to get the game board.  The board is a copy in screen
+     * order that is kept up to date after every move once it has been asked
+     * for, so callers that only need a few cells should use getPiece.
+     * 
+     * @return the game board object.
+     */
+    public CollapsePiece[][] getTileBoard()
+    {
+        /*Builds the copy the first time it is asked for*/
+        if(tileView == null)
+        {
+            tileView = new CollapsePiece[boardSize][boardSize];
+            refreshViews(0, boardSize - 1);
+        }
+        
+        return this.tileView;
+    }
+    
+    /**
+     * Accessor method to get the game board.  Like getTileBoard, the board
+     * is kept up to date after every move once it has been asked for.
+     * 
+     * @return the game board object.
+     */
+    public char[][] getCharacterBoard()
+    {
+        /*Builds the copy the first time it is asked for*/
+        if(characterView == null)
+        {
+            characterView = new char[boardSize][boardSize];
+            refreshViews(0, boardSize - 1);
+        }
+        
+        return this.characterView.clone();
+    }
+    
+    /**
+     * Accessor method to get the size of the board.
+     * 
+     * @return the number of rows and columns on the board
+     */
+    public int getBoardSize()
+    {
+        return this.boardSize;
+    }
+    
+    /**
+     * Accessor method to get the number of tile colors of the board.
+     * 
+     * @return the number of colors, the first ones of CollapsePiece
+     */
+    public int getColors()
+    {
+        return this.numColors;
+    }
+    
+    /**
+     * Accessor method to get a single tile of the board.
+     * 
+     * @param row the row of the tile
+     * @param col the column of the tile
+     * 
+     * @return the tile at that spot
+     */
+    public CollapsePiece getPiece(int row, int col)
+    {
+        return kPieces[colorAt(row, columnMap[col])];
+    }
+    
+    /**
+     * Accessor method to get the character of a single tile of the board.
+     * 
+     * @param row the row of the tile
+     * @param col the column of the tile
+     * 
+     * @return the character shown for the tile at that spot
+     */
+    public char getSymbol(int row, int col)
+    {
+        return kSymbols[colorAt(row, columnMap[col])];
+    }
+    
+    /**
+     * Copies a range of columns into the screen order copies of the board,
+     * if they have been asked for.
+     * 
+     * @param fromCol the first column being copied
+     * @param toCol the last column being copied
+     */
+    private void refreshViews(int fromCol, int toCol)
+    {
+        /*Iterates through each column in the range*/
+        for(int colIter = fromCol; colIter <= toCol; colIter++)
+        {
+            int physCol = columnMap[colIter];
+            
+            /*Iterates through each row of the column*/
+            for(int rowIter = 0; rowIter < boardSize; rowIter++)
+            {
+                /*Only the copies that exist are kept up to date*/
+                if(tileView != null)
+                {
+                    tileView[rowIter][colIter] = kPieces[colorAt(rowIter, physCol)];
+                }
+                if(characterView != null)
+                {
+                    characterView[rowIter][colIter] = kSymbols[colorAt(rowIter, physCol)];
+                }
+            }
+        }
+    }
+    
+    /**
+     * Fills the board with the starting layout of a board number, copying it
+     * from the layout cache if it was generated recently and generating it
+     * and adding it to the cache otherwise.
+     * 
+     * @param boardNum the seed of the board
+     */
+    private void loadBoard(int boardNum)
+    {
+        BoardLayoutCache.Layout layout = kLayouts.get(boardSize, numColors, boardNum);
+        
+        /*Determines if the board has to be generated*/
+        if(layout == null)
+        {
+            CollapsePiece[][] tiles = generateBoard(boardNum);
+            
+            /*Packs each row of the new board into the columns*/
+            for(int rowIter = 0; rowIter < boardSize; rowIter++)
+            {
+                /*Iterates through each tile of the row*/
+                for(int colIter = 0; colIter < boardSize; colIter++)
+                {
+                    setColor(rowIter, colIter, tiles[rowIter][colIter].ordinal());
+                }
+            }
+            countTiles();
+            kLayouts.put(boardSize, numColors, boardNum, cells, columnCounts, colorCounts);
+        }
+        else
+        {
+            layout.copyTo(cells, columnCounts, colorCounts);
+            countColumns();
+        }
+        this.boardNumber = boardNum;
+    }
+    
+    /**
+     * Method which generates a board from a given number, representing
+     * the random seed.
+     * 
+     * @param boardNum the seed which the random
+     * generator will use to generate the board.
+     * 
+     * @return the tiles of the board by row
+     */
+    CollapsePiece[][] generateBoard(int boardNum)
+    {
+
+        CollapsePiece[] pieces = Arrays.copyOf(kPieces, numColors);
+        CollapsePiece[][] layout = new CollapsePiece[boardSize][boardSize];
+        java.util.Random generator = new java.util.Random(boardNum);
+        
+        /*Iterates through each row on the board*/
+        for (int row = 0; row < boardSize; row++)
+        {
+            /*Iterates through each column on the board*/
+            for (int col = 0; col < boardSize; col++)
+            {
+                // Generate one of the board's kinds of tiles
+                layout[row][col] = pieces[generator.nextInt(pieces.length)];
+            }
+        }
+        
+        return layout;
+    }
+    
+    /**
+     * Determines if the player has won the game.
+     * 
+     * @return returns true if the player has one, false otherwise.
+     */
+    protected boolean isGameOver()
+    {
+        return tilesLeft == 0;
+    }
+    
+    /**
+     * A turn is taken on the board.
+     * 
+     * @param rowPos the row that the user has chosen for their turn
+     * @param colPos the column that the user has chosen for their turn
+     * 
+     * @return boolean: true if move was a valid spot on the board
+     */
+    public boolean takeTurn(int rowPos, int colPos)
+    {
+        this.moveResult = null;
+        boolean validTurn = playTurn(rowPos, colPos);
+        
+        /*A new move can not be followed by the moves that were undone*/
+        if(validTurn)
+        {
+            redoCount = 0;
+        }
+        
+        return validTurn;
+    }
+    
+    /**
+     * A turn is taken on the board, and everything the turn changed is
+     * recorded in the given result.
+     * 
+     * @param rowPos the row that the user has chosen for their turn
+     * @param colPos the column that the user has chosen for their turn
+     * @param result the result to fill in, it can be reused for every turn
+     * 
+     * @return the filled in result
+     */
+    public MoveResult takeTurn(int rowPos, int colPos, MoveResult result)
+    {
+        result.clear(boardSize);
+        this.moveResult = result;
+        
+        boolean validTurn = playTurn(rowPos, colPos);
+        
+        /*A new move can not be followed by the moves that were undone*/
+        if(validTurn)
+        {
+            redoCount = 0;
+        }
+        
+        result.finish(validTurn, tilesLeft, isStuck());
+        this.moveResult = null;
+        return result;
+    }
+    
+    /**
+     * Helper method to takeTurn, takes the turn and records it in moveResult
+     * if there is one.
+     * 
+     * @param rowPos the row that the user has chosen for their turn
+     * @param colPos the column that the user has chosen for their turn
+     * 
+     * @return boolean: true if move was a valid spot on the board
+     */
+    private boolean playTurn(int rowPos, int colPos)
+    {   
+        boolean validTurn = false;
+        
+        /*Determines if the current spot is empty or not*/
+        if(rowPos >= 0 && rowPos < boardSize && colPos >= 0 &&
+            colPos < boardSize)
+        {
+            /*Checks to see if current position is not empty*/
+            if(getPiece(rowPos, colPos) != CollapsePiece.empty)
+            {
+                beginRecord(rowPos, colPos);
+                
+                /*Determines if the tile chosen has a(n) adjacent tile(s)*/
+                if(hasAdjacentTiles(rowPos, colPos))
+                {
+                    long group = 0;
+                    dirtyCount = 0;
+                    changedFrom = boardSize;
+                    changedTo = -1;
+                    
+                    /*Small boards find the group with the bitboard*/
+                    if(bitBoard != null)
+                    {
+                        group = bitBoard.getGroup(rowPos, colPos);
+                        //Removes the whole group in one pass over its bits
+                        removeGroup(group);
+                    }
+                    else
+                    {
+                        //Removes cell and all adjacent tiles of the same color
+                        removeSelection(rowPos, colPos);
+                    }
+                    //Shifts the necesssary cells downwards to fill in blank spots
+                    shiftCellsDownwards();
+                    //Folds the changed columns into the hash before they move
+                    rekeyDirtyColumns();
+                    //Shifts the columns to the center if necessary
+                    shiftColumnsToCenter();
+                    
+                    /*Reloads only the bitboard columns that changed*/
+                    if(bitBoard != null)
+                    {
+                        bitBoard.reload(this, changedFrom, changedTo);
+                    }
+                    refreshViews(changedFrom, changedTo);
+                    staleLabels(changedFrom, changedTo);
+                    countPairs();
+                }
+            
+                numMoves++;
+                validTurn = true;
+                endRecord();
+                recordClick(rowPos << 16 | colPos);
+            }
+        }
+        
+        return validTurn;
+    }
+    
+    /**
+     * Undoes the last move that is still in the journal.  The tiles it
+     * removed are put back, the tiles that fell are lifted back up and the
+     * columns that moved are put back, touching only the columns the move
+     * touched.
+     * 
+     * @return true if there was a move to undo
+     */
+    public boolean undo()
+    {
+        boolean undone = false;
+        
+        /*Only undoes a move if one is left in the journal*/
+        if(journalRecords > 0)
+        {
+            int length = journal[(journalEnd - 1 + journal.length) % journal.length];
+            int start = (journalEnd - length + journal.length) % journal.length;
+            int click = journalRead(start, 1);
+            int removed = journalRead(start, 2);
+            int swaps = journalRead(start, 3);
+            
+            this.moveResult = null;
+            dirtyCount = 0;
+            changedFrom = boardSize;
+            changedTo = -1;
+            
+            /*Puts the columns back, undoing the swaps in reverse order*/
+            for(int swapNdx = swaps - 1; swapNdx >= 0; swapNdx--)
+            {
+                int swap = journalRead(start, kRecordHeader + removed + swapNdx);
+                swapColumns(swap & 0xFFFF, swap >>> 16);
+            }
+            
+            /*Marks where each removed tile was, by physical column*/
+            for(int removedNdx = 0; removedNdx < removed; removedNdx++)
+            {
+                int cell = journalRead(start, kRecordHeader + removedNdx) >>> kColorBits;
+                int physCol = cell % boardSize;
+                
+                visited[cell >>> 6] |= 1L << cell;
+                /*The first tile put back in a column makes it dirty*/
+                if(restoredCounts[physCol] == 0)
+                {
+                    dirtyColumns[dirtyCount++] = physCol;
+                }
+                restoredCounts[physCol]++;
+            }
+            
+            /*Lifts the tiles of each dirty column back above the removed ones*/
+            for(int dirtyNdx = 0; dirtyNdx < dirtyCount; dirtyNdx++)
+            {
+                liftColumn(dirtyColumns[dirtyNdx]);
+            }
+            
+            /*Puts every removed tile back and forgets it was marked*/
+            for(int removedNdx = 0; removedNdx < removed; removedNdx++)
+            {
+                int entry = journalRead(start, kRecordHeader + removedNdx);
+                int cell = entry >>> kColorBits;
+
+                restoreTile(cell / boardSize, cell % boardSize,
+                    kPieces[entry & ((1 << kColorBits) - 1)]);
+                visited[cell >>> 6] &= ~(1L << cell);
+            }
+            rekeyDirtyColumns();
+            
+            /*Reloads only the bitboard columns that changed*/
+            if(bitBoard != null)
+            {
+                bitBoard.reload(this, changedFrom, changedTo);
+            }
+            refreshViews(changedFrom, changedTo);
+            staleLabels(changedFrom, changedTo);
+            countPairs();
+            
+            /*Drops the record and remembers its click for redo*/
+            journalEnd = start;
+            journalUsed -= length;
+            journalRecords--;
+            numMoves--;
+            clickCount--;
+            
+            /*Makes room for another click to redo if needed*/
+            if(redoCount == redoClicks.length)
+            {
+                redoClicks = java.util.Arrays.copyOf(redoClicks, redoCount * 2 + 1);
+            }
+            redoClicks[redoCount++] = click;
+            undone = true;
+        }
+        
+        return undone;
+    }
+    
+    /**
+     * Redoes the last move that was undone, by taking the same turn again.
+     * 
+     * @return true if there was a move to redo
+     */
+    public boolean redo()
+    {
+        boolean redone = false;
+        
+        /*Only redoes a move if one was undone*/
+        if(redoCount > 0)
+        {
+            int click = redoClicks[--redoCount];
+            
+            this.moveResult = null;
+            redone = playTurn(click >>> 16, click & 0xFFFF);
+        }
+        
+        return redone;
+    }
+    
+    /**
+     * Determines if there is a move that can be undone.
+     * 
+     * @return true if undo will succeed
+     */
+    public boolean canUndo()
+    {
+        return journalRecords > 0;
+    }
+    
+    /**
+     * Determines if there is an undone move that can be redone.
+     * 
+     * @return true if redo will succeed
+     */
+    public boolean canRedo()
+    {
+        return redoCount > 0;
+    }
+    
+    /**
+     * Helper method to undo, lifts the tiles of a column back up to where
+     * they were before they fell.  The rows the removed tiles came from are
+     * marked in visited, and the tiles are moved up past the marked rows,
+     * working from the top of the column down.
+     * 
+     * @param physCol the physical column being lifted
+     */
+    private void liftColumn(int physCol)
+    {
+        int tiles = columnCounts[physCol];
+        int readRow = boardSize - tiles;
+        
+        //The column was full from its top tile down before the move; a
+        //column of cheat tiles is always removed whole, so it has no tiles
+        for(int rowIter = boardSize - tiles - restoredCounts[physCol];
+            readRow < boardSize; rowIter++)
+        {
+            int cell = rowIter * boardSize + physCol;
+            
+            /*Only rows that kept their tile are filled from the column*/
+            if((visited[cell >>> 6] & (1L << cell)) == 0)
+            {
+                /*Moves the tile up unless it is already in place*/
+                if(readRow != rowIter)
+                {
+                    int color = colorAt(readRow, physCol);
+                    
+                    columnHashes[physCol] ^= zobrist(readRow, color) ^ zobrist(rowIter, color);
+                    setColor(rowIter, physCol, color);
+                    setColor(readRow, physCol, kEmpty);
+                }
+                readRow++;
+            }
+        }
+        
+        restoredCounts[physCol] = 0;
+        markChanged(columnPosition[physCol]);
+    }
+    
+    /**
+     * Helper method to undo, puts a removed tile back and adds it to the
+     * live counts.
+     * 
+     * @param row the row of the tile
+     * @param physCol the physical column of the tile
+     * @param piece the tile being put back
+     */
+    private void restoreTile(int row, int physCol, CollapsePiece piece)
+    {
+        /*Determines if this is the first tile back in the column*/
+        if(columnCounts[physCol] == 0)
+        {
+            nonEmptyColumns++;
+        }
+        
+        tilesLeft++;
+        colorCounts[piece.ordinal()]++;
+        columnCounts[physCol]++;
+        columnHashes[physCol] ^= zobrist(row, piece.ordinal());
+        setColor(row, physCol, piece.ordinal());
+    }
+    
+    /**
+     * Starts the journal record of a move.  The counts and the length are
+     * filled in by endRecord.
+     * 
+     * @param rowPos the row that was clicked
+     * @param colPos the column that was clicked
+     */
+    private void beginRecord(int rowPos, int colPos)
+    {
+        journaling = true;
+        recordLength = 0;
+        recordSwaps = 0;
+        journalWrite(0);
+        journalWrite(rowPos << 16 | colPos);
+        journalWrite(0);
+        journalWrite(0);
+    }
+    
+    /**
+     * Finishes the journal record of a move, unless the move was too big to
+     * fit in the journal at all.
+     */
+    private void endRecord()
+    {
+        /*Determines if the whole record made it into the journal*/
+        if(journaling)
+        {
+            journalWrite(0);
+        }
+        /*The last write can still find the journal too small*/
+        if(journaling)
+        {
+            int recordStart = (journalEnd - recordLength + journal.length) % journal.length;
+            
+            journal[(journalEnd - 1 + journal.length) % journal.length] = recordLength;
+            journal[recordStart] = recordLength;
+            journal[(recordStart + 2) % journal.length] = recordLength - kRecordHeader
+                - recordSwaps - 1;
+            journal[(recordStart + 3) % journal.length] = recordSwaps;
+            journalRecords++;
+        }
+        
+        journaling = false;
+    }
+    
+    /**
+     * Appends an int to the journal record being written, growing the
+     * journal or forgetting its oldest moves to make room.
+     * 
+     * @param value the int being appended
+     */
+    private void journalWrite(int value)
+    {
+        /*Makes room when the journal is full*/
+        if(journaling && journalUsed == journal.length)
+        {
+            /*The journal grows until it hits its limit*/
+            if(journal.length < journalLimit)
+            {
+                growJournal();
+            }
+            /*Then the oldest move is forgotten*/
+            else if(journalRecords > 0)
+            {
+                int length = journal[journalStart];
+                
+                journalStart = (journalStart + length) % journal.length;
+                journalUsed -= length;
+                journalRecords--;
+            }
+            /*A single move bigger than the whole journal can not be undone*/
+            else
+            {
+                journalStart = 0;
+                journalEnd = 0;
+                journalUsed = 0;
+                journaling = false;
+            }
+        }
+        
+        /*Only writes while the record still fits*/
+        if(journaling)
+        {
+            journal[journalEnd] = value;
+            journalEnd = (journalEnd + 1) % journal.length;
+            journalUsed++;
+            recordLength++;
+        }
+    }
+    
+    /**
+     * Helper method to journalWrite, doubles the journal up to its limit
+     * and unwraps the ring so that it starts at 0.
+     */
+    private void growJournal()
+    {
+        int[] grown = new int[Math.min(journal.length * 2, journalLimit)];
+        
+        /*Copies the ints in order, from the oldest one*/
+        for(int ndx = 0; ndx < journalUsed; ndx++)
+        {
+            grown[ndx] = journal[(journalStart + ndx) % journal.length];
+        }
+        
+        journal = grown;
+        journalStart = 0;
+        journalEnd = journalUsed;
+    }
+    
+    /**
+     * Reads an int of a journal record.
+     * 
+     * @param start where the record starts in the journal
+     * @param offset which int of the record to read
+     * 
+     * @return the int at that offset
+     */
+    private int journalRead(int start, int offset)
+    {
+        return journal[(start + offset) % journal.length];
+    }
+    
+    /**
+     * Getter method for the number of tiles left the player needs to clear
+     * 
+     * @return the number of tiles left the player needs to clear
+     */
+    public int getTilesLeft()
+    {
+        return this.tilesLeft;
+    }
+    
+    /**
+     * Getter method for the number of tiles of one color left on the board
+     * 
+     * @param color the color of the tiles being counted
+     * 
+     * @return the number of tiles of that color left, 0 for empty
+     */
+    public int getTilesLeft(CollapsePiece color)
+    {
+        int colorTiles = 0;
+        
+        /*Empty cells are not counted*/
+        if(color != CollapsePiece.empty)
+        {
+            colorTiles = colorCounts[color.ordinal()];
+        }
+        
+        return colorTiles;
+    }
+    
+    /**
+     * Getter method for the number of columns that still have a tile
+     * 
+     * @return the number of non-empty columns
+     */
+    public int getColumnsLeft()
+    {
+        return this.nonEmptyColumns;
+    }
+    
+    /**
+     * Recounts every tile on the board, used after the board is filled in
+     * all at once.
+     */
+    private void countTiles()
+    {
+        java.util.Arrays.fill(colorCounts, 0);
+        java.util.Arrays.fill(columnCounts, 0);
+        
+        /*Iterates through all of the rows on the board*/
+        for (int rowIter = 0; rowIter < boardSize; rowIter++)
+        {
+            /*Iterates through all of the columns on the board*/
+            for(int colIter = 0; colIter < boardSize; colIter++)
+            {
+                /*Determines if the current cell holds a tile*/
+                if(colorAt(rowIter, colIter) != kEmpty)
+                {
+                    colorCounts[colorAt(rowIter, colIter)]++;
+                    columnCounts[colIter]++;
+                }
+            }
+        }
+        countColumns();
+    }
+    
+    /**
+     * Totals the tiles and the columns that have any from the counts of
+     * each column.
+     */
+    private void countColumns()
+    {
+        tilesLeft = 0;
+        nonEmptyColumns = 0;
+        
+        /*Counts the tiles and the columns that got at least one tile*/
+        for(int colIter = 0; colIter < boardSize; colIter++)
+        {
+            tilesLeft += columnCounts[colIter];
+            /*Determines if the current column has a tile*/
+            if(columnCounts[colIter] > 0)
+            {
+                nonEmptyColumns++;
+            }
+        }
+    }
+    
+    /**
+     * Determines if the game is stuck: tiles are left but no two of them
+     * are neighbors with the same color, so no move can remove anything.
+     * 
+     * @return true if the board has tiles and no moves left
+     */
+    public boolean isStuck()
+    {
+        return tilesLeft > 0 && adjacentPairs == 0;
+    }
+    
+    /**
+     * Counts the pairs of every column and boundary from scratch, after the
+     * whole board was rewritten.
+     */
+    private void countAllPairs()
+    {
+        adjacentPairs = 0;
+        
+        /*Iterates through each column and the boundary right of it*/
+        for(int colIter = 0; colIter < boardSize; colIter++)
+        {
+            columnPairs[colIter] = pairsInColumn(colIter);
+            boundaryPairs[colIter] = pairsAcross(colIter);
+            adjacentPairs += columnPairs[colIter] + boundaryPairs[colIter];
+        }
+    }
+    
+    /**
+     * Brings the pair counts up to date after a move or an undo, counting
+     * again only the columns it changed the tiles of and the boundaries of
+     * the columns that changed on screen.
+     */
+    private void countPairs()
+    {
+        /*Iterates through each column the move changed the tiles of*/
+        for(int dirtyNdx = 0; dirtyNdx < dirtyCount; dirtyNdx++)
+        {
+            int physCol = dirtyColumns[dirtyNdx];
+            
+            adjacentPairs -= columnPairs[physCol];
+            columnPairs[physCol] = pairsInColumn(physCol);
+            adjacentPairs += columnPairs[physCol];
+        }
+        
+        /*Iterates through each boundary next to a changed column*/
+        for(int colIter = Math.max(0, changedFrom - 1); colIter <= changedTo; colIter++)
+        {
+            adjacentPairs -= boundaryPairs[colIter];
+            boundaryPairs[colIter] = pairsAcross(colIter);
+            adjacentPairs += boundaryPairs[colIter];
+        }
+    }
+    
+    /**
+     * Counts the neighboring tiles of the same color in a column.
+     * 
+     * @param physCol the physical column
+     * 
+     * @return the number of pairs inside the column
+     */
+    private int pairsInColumn(int physCol)
+    {
+        int pairs = 0;
+        
+        /*Iterates through each row below the top one*/
+        for(int rowIter = 1; rowIter < boardSize; rowIter++)
+        {
+            /*Determines if the tile matches the tile above it*/
+            if(colorAt(rowIter, physCol) != kEmpty
+                && colorAt(rowIter, physCol) == colorAt(rowIter - 1, physCol))
+            {
+                pairs++;
+            }
+        }
+        
+        return pairs;
+    }
+    
+    /**
+     * Counts the neighboring tiles of the same color across the boundary
+     * between a column and the column right of it on screen.
+     * 
+     * @param col the column left of the boundary
+     * 
+     * @return the number of pairs across the boundary, 0 for the last column
+     */
+    private int pairsAcross(int col)
+    {
+        int pairs = 0;
+        
+        /*The last column has no column right of it*/
+        if(col < boardSize - 1)
+        {
+            int leftCol = columnMap[col];
+            int rightCol = columnMap[col + 1];
+            
+            /*Iterates through each row of the two columns*/
+            for(int rowIter = 0; rowIter < boardSize; rowIter++)
+            {
+                /*Determines if the two tiles of the row match*/
+                if(colorAt(rowIter, leftCol) != kEmpty
+                    && colorAt(rowIter, leftCol) == colorAt(rowIter, rightCol))
+                {
+                    pairs++;
+                }
+            }
+        }
+        
+        return pairs;
+    }
+    
+    /**
+     * Empties a cell that holds a tile and takes it off the live counts.
+     * 
+     * @param row the row of the tile
+     * @param col the column of the tile on screen
+     */
+    private void clearTile(int row, int col)
+    {
+        int physCol = columnMap[col];
+        int color = colorAt(row, physCol);
+        
+        tilesLeft--;
+        colorCounts[color]--;
+        columnCounts[physCol]--;
+        
+        /*Determines if this was the last tile of the column*/
+        if(columnCounts[physCol] == 0)
+        {
+            nonEmptyColumns--;
+        }
+        
+        /*The first tile removed from a column makes it dirty*/
+        if(lowestRemoved[physCol] < 0)
+        {
+            dirtyColumns[dirtyCount++] = physCol;
+        }
+        /*Remembers the lowest row removed, nothing below it has to fall*/
+        if(row > lowestRemoved[physCol])
+        {
+            lowestRemoved[physCol] = row;
+        }
+        markChanged(col);
+        
+        /*Records the removed cell if the move is being recorded*/
+        if(moveResult != null)
+        {
+            moveResult.addRemoved(row, col);
+        }
+        journalWrite((row * boardSize + physCol) << kColorBits | color);
+        columnHashes[physCol] ^= zobrist(row, color);
+        setColor(row, physCol, kEmpty);
+    }
+    
+    /**
+     * Widens the range of screen columns the current move has changed.
+     * 
+     * @param col a column on screen that changed
+     */
+    private void markChanged(int col)
+    {
+        changedFrom = Math.min(changedFrom, col);
+        changedTo = Math.max(changedTo, col);
+    }
+    
+    /**
+     * Gets a 64 bit hash of the tiles on the board and where they are.  The
+     * hash is kept up to date by every move, and two games with the same
+     * tiles in the same cells have the same hash no matter how they got
+     * there, so it can key transposition tables and solution caches.
+     * 
+     * @return the hash of the current position
+     */
+    public long positionHash()
+    {
+        return this.positionHash;
+    }
+    
+    /**
+     * Hashes every column from scratch, after the whole board was rewritten.
+     */
+    private void hashColumns()
+    {
+        positionHash = 0;
+        
+        /*Iterates through each physical column*/
+        for(int colIter = 0; colIter < boardSize; colIter++)
+        {
+            columnHashes[colIter] = 0;
+            /*Iterates through each row of the column*/
+            for(int rowIter = 0; rowIter < boardSize; rowIter++)
+            {
+                /*Only tiles are hashed, empty cells add nothing*/
+                if(colorAt(rowIter, colIter) != kEmpty)
+                {
+                    columnHashes[colIter] ^= zobrist(rowIter, colorAt(rowIter, colIter));
+                }
+            }
+            
+            columnKeys[colIter] = columnKey(columnHashes[colIter], columnPosition[colIter]);
+            positionHash ^= columnKeys[colIter];
+        }
+    }
+    
+    /**
+     * Brings the keys of the dirty columns up to date with their tiles.
+     */
+    private void rekeyDirtyColumns()
+    {
+        /*Iterates through each column the move changed the tiles of*/
+        for(int dirtyNdx = 0; dirtyNdx < dirtyCount; dirtyNdx++)
+        {
+            rekeyColumn(dirtyColumns[dirtyNdx]);
+        }
+    }
+    
+    /**
+     * Swaps the key of a column in the position hash for its current key.
+     * 
+     * @param physCol the physical column that changed or moved
+     */
+    private void rekeyColumn(int physCol)
+    {
+        positionHash ^= columnKeys[physCol];
+        columnKeys[physCol] = columnKey(columnHashes[physCol], columnPosition[physCol]);
+        positionHash ^= columnKeys[physCol];
+    }
+    
+    /**
+     * Gets the Zobrist key of a tile in a row of a column.
+     * 
+     * @param row the row of the tile
+     * @param color the ordinal of the tile, never empty
+     * 
+     * @return the key of that tile in that row
+     */
+    static long zobrist(int row, int color)
+    {
+        return mix(((long) (row << kColorBits | color) + 1) * kTileGamma);
+    }
+    
+    /**
+     * Gets the key a column adds to the position hash.
+     * 
+     * @param columnHash the Zobrist hash of the column's tiles
+     * @param col the column it stands in on screen
+     * 
+     * @return the key of those tiles in that column
+     */
+    static long columnKey(long columnHash, int col)
+    {
+        return mix(columnHash + (col + 1) * kColumnGamma);
+    }
+    
+    /**
+     * Scrambles the bits of a long, with the finalizer of SplitMix64.
+     * 
+     * @param value the long being scrambled
+     * 
+     * @return the scrambled long
+     */
+    static long mix(long value)
+    {
+        long mixed = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        
+        mixed = (mixed ^ (mixed >>> 27)) * 0x94D049BB133111EBL;
+        return mixed ^ (mixed >>> 31);
+    }
+    
+    /**
+     * Getter method for the number of moves the player has made
+     * 
+     * @return the number of moves the player has made
+     */
+    public int getNumberOfMoves()
+    {
+        return this.numMoves;
+    }
+    
+    /**
+     * Getter method for the number of the board the game was started on
+     * 
+     * @return the board number, -1 if the game did not start from a
+     * numbered board or the board was replaced
+     */
+    public int getBoardNumber()
+    {
+        return this.boardNumber;
+    }
+    
+    /**
+     * Records the replay of the moves taken since the board was started.
+     * 
+     * @return the replay, null if the game did not start from a numbered
+     * board or some of its moves are not known
+     */
+    public GameReplay getReplay()
+    {
+        int[] cells = new int[clickCount];
+        
+        /*Only games whose every move was clicked here can be replayed*/
+        if(boardNumber < 0 || clickCount != numMoves)
+        {
+            return null;
+        }
+        
+        /*Turns each click into the cell number the replay keeps*/
+        for(int moveNdx = 0; moveNdx < clickCount; moveNdx++)
+        {
+            cells[moveNdx] = (clicks[moveNdx] >>> 16) * boardSize + (clicks[moveNdx] & 0xFFFF);
+        }
+        
+        return new GameReplay(boardSize, numColors, boardNumber, cells);
+    }
+    
+    /**
+     * Adds the click of a move to the moves taken since the board was
+     * started.
+     * 
+     * @param click the row << 16 | column clicked
+     */
+    private void recordClick(int click)
+    {
+        /*Makes room for another click if needed*/
+        if(clickCount == clicks.length)
+        {
+            clicks = java.util.Arrays.copyOf(clicks, clickCount * 2 + 1);
+        }
+        clicks[clickCount++] = click;
+    }
+    
+    /**
+     * Checks to see if any of the adjacent tiles are of the same type
+     */
+    protected boolean hasAdjacentTiles(int row, int col)
+    {
+        /*The bitboard checks all four neighbors at once*/
+        if(bitBoard != null)
+        {
+            return bitBoard.hasAdjacentTiles(row, col);
+        }
+        
+        boolean hasAdjacentTiles = false;
+        CollapsePiece color = getPiece(row, col);
+        
+        /*Only checks for adjacent tiles if tile is not empty*/
+        if(color != CollapsePiece.empty)
+        {
+            /*Looks above the current tile to see if it there is the same tile type*/
+            if(row > 0 && getPiece(row - 1, col) == color)
+            {
+                hasAdjacentTiles = true;
+            }
+            /*Looks below the current tile to see if it there is the same tile type*/
+            if(row < boardSize - 1 && getPiece(row + 1, col) == color)
+            {
+                hasAdjacentTiles = true;
+            }
+            /*Looks right of the current tile to see if it there is the same tile type*/
+            if(col > 0 && getPiece(row, col - 1) == color)
+            {
+                hasAdjacentTiles = true;   
+            }
+            /*Looks left of the current tile to see if it there is the same tile type*/
+            if(col < boardSize - 1 && getPiece(row, col + 1) == color)
+            {
+                hasAdjacentTiles = true;
+            }
+        }
         
-        this.generateBoard(boardNumber);
+        return hasAdjacentTiles;
     }
-
+    
     /**
-     * Accessor method to get the game board.
+     * Lists every group of the board, in no particular order.  The groups
+     * are labeled the first time they are asked for, and after that only
+     * the groups around the columns the moves changed are relabeled, so the
+     * listing costs one step per group.  A group is represented by the top
+     * cell of its leftmost column as of when it was labeled.
      * 
-     * @return the game board object.
+     * @param groups the list to fill in, it can be reused for every listing
+     * 
+     * @return the filled in list
      */
-    public CollapsePiece[][] getTileBoard()
+    public GroupList listGroups(GroupList groups)
+    {
+        ensureLabels();
+        groups.clear(boardSize);
+        
+        /*Iterates through each label in use*/
+        for(int liveNdx = 0; liveNdx < liveCount; liveNdx++)
+        {
+            int label = liveLabels[liveNdx];
+            int cell = labelCells[label];
+            
+            groups.add(labelColors[label], cell % boardSize,
+                columnPosition[cell / boardSize], labelSizes[label]);
+        }
+        
+        return groups;
+    }
+    
+    /**
+     * Gets the size of the group a tile belongs to.
+     * 
+     * @param row the row of the tile
+     * @param col the column of the tile
+     * 
+     * @return the number of tiles in the group, 0 for an empty cell
+     */
+    public int getGroupSize(int row, int col)
     {
-        return this.tileBoard;
+        ensureLabels();
+        int label = cellLabels[columnMap[col] * boardSize + row];
+        
+        return label < 0 ? 0 : labelSizes[label];
     }
     
     /**
-     * Accessor method to get the game board.
+     * Getter method for the number of groups that can be removed
      * 
-     * @return the game board object.
+     * @return the number of groups of two or more tiles
      */
-    public char[][] getCharacterBoard()
+    public int getGroupMovesLeft()
     {
-        return this.characterBoard.clone();
+        ensureLabels();
+        return this.groupMoves;
     }
     
     /**
-     * Private method which generates a board from a given number, representing
-     * the random seed.
+     * Remembers that a range of columns changed, so that the groups around
+     * them are relabeled the next time groups are asked for.  Moves that are
+     * played and undone in between groups being asked for are relabeled
+     * together.
      * 
-     * @param boardNum the seed which the random
-     * generator will use to generate the board.
+     * @param fromCol the first column that changed
+     * @param toCol the last column that changed
      */
-    private void generateBoard(int boardNum)
+    private void staleLabels(int fromCol, int toCol)
     {
-
-        CollapsePiece[] pieces = {CollapsePiece.green, CollapsePiece.purple,
-            CollapsePiece.red};
-        java.util.Random generator = new java.util.Random(boardNum);
-        
-        /*Iterates through each row on the board*/
-        for (int row = 0; row < tileBoard.length; row++)
+        labelsFrom = Math.min(labelsFrom, fromCol);
+        labelsTo = Math.max(labelsTo, toCol);
+    }
+    
+    /**
+     * Labels every group of the board the first time groups are asked for,
+     * and relabels the columns that changed since then after that.
+     */
+    private void ensureLabels()
+    {
+        /*Brings the labels up to date if they exist*/
+        if(cellLabels != null && labelsFrom <= labelsTo)
         {
-            /*Iterates through each column on the board*/
-            for (int col = 0; col < tileBoard[0].length; col++)
+            relabel(labelsFrom, labelsTo);
+        }
+        /*Only builds the labels if they do not exist yet*/
+        if(cellLabels == null)
+        {
+            int cells = boardSize * boardSize;
+            
+            cellLabels = new int[cells];
+            labelSizes = new int[cells];
+            labelColors = new CollapsePiece[cells];
+            labelCells = new int[cells];
+            labelFrom = new int[cells];
+            labelTo = new int[cells];
+            liveLabels = new int[cells];
+            livePositions = new int[cells];
+            freeLabels = new int[cells];
+            groupParents = new int[cells];
+            java.util.Arrays.fill(cellLabels, -1);
+            liveCount = 0;
+            groupMoves = 0;
+            
+            /*Every label starts out free, the lowest on top*/
+            for(freeCount = 0; freeCount < cells; freeCount++)
             {
-                // Generate one of three kinds of tiles
-                tileBoard[row][col] = pieces[generator.nextInt(pieces.length)];
-                
-                /*If the current tile is green, then it sets the char to '+'*/
-                if(tileBoard[row][col] == CollapsePiece.green)
-                {
-                    characterBoard[row][col] = '+';
-                }
-                /*If the current tile is purple, then it sets the char to 'x'*/
-                if(tileBoard[row][col] == CollapsePiece.purple)
-                {
-                    characterBoard[row][col] = 'x';
-                }
-                /*If the current tile is red, then it sets the char to 'o'*/
-                if(tileBoard[row][col] == CollapsePiece.red)
-                {
-                    characterBoard[row][col] = 'o';
-                }
+                freeLabels[freeCount] = cells - 1 - freeCount;
             }
+            
+            relabel(0, boardSize - 1);
         }
+        
+        labelsFrom = boardSize;
+        labelsTo = -1;
     }
     
     /**
-     * Determines if the player has won the game.
+     * Relabels the groups after a range of columns changed.  The range is
+     * widened by a column on each side, since a group can reach into a
+     * changed column from its neighbor, and then widened again until it
+     * covers every old group found in it.  The old groups are dropped and
+     * the tiles of the range are labeled again with a union-find, joining
+     * each tile to the matching tiles above and to the left of it.
      * 
-     * @return returns true if the player has one, false otherwise.
+     * @param fromCol the first column that changed
+     * @param toCol the last column that changed
      */
-    protected boolean isGameOver()
+    private void relabel(int fromCol, int toCol)
     {
-        boolean gameIsOver = true;
+        int lo = Math.max(0, fromCol - 1);
+        int hi = Math.min(boardSize - 1, toCol + 1);
+        int scanLo = lo;
+        int scanHi = lo - 1;
         
-        /*Iterates through each row on the board*/
-        for (int rowIter = 0; rowIter < characterBoard.length && gameIsOver; rowIter++)
+        /*Drops the old groups of each column until no group reaches further*/
+        while(scanHi < hi || scanLo > lo)
         {
-            /*Iterates through each column on the board*/
-            for(int colIter = 0; colIter < characterBoard[0].length &&
-                gameIsOver; colIter++)
+            int physCol = columnMap[scanHi < hi ? ++scanHi : --scanLo];
+            
+            /*Iterates through each row of the column*/
+            for(int rowIter = 0; rowIter < boardSize; rowIter++)
             {
-                /*Determines if the current tile is empty*/
-                if(characterBoard[rowIter][colIter] != ' ')
+                int label = cellLabels[physCol * boardSize + rowIter];
+                
+                /*Only drops each old group once, widening the range to it*/
+                if(label >= 0 && labelSizes[label] > 0)
                 {
-                    gameIsOver = false;
+                    lo = Math.min(lo, labelFrom[label]);
+                    hi = Math.max(hi, labelTo[label]);
+                    freeLabel(label);
                 }
             }
         }
         
-        return gameIsOver;
-    }
-    
-    /**
-     * A turn is taken on the board.
-     * 
-     * @param rowPos the row that the user has chosen for their turn
-     * @param colPos the column that the user has chosen for their turn
-     * 
-     * @return boolean: true if move was a valid spot on the board
-     */
-    public boolean takeTurn(int rowPos, int colPos)
-    {   
-        boolean validTurn = false;
-        /*Determines if the current spot is empty or not*/
-        if(rowPos >= 0 && rowPos < tileBoard.length && colPos >= 0 &&
-            colPos < tileBoard.length)
+        /*Iterates through each column of the range*/
+        for(int colIter = lo; colIter <= hi; colIter++)
         {
-            /*Checks to see if current position is not empty*/
-            if(tileBoard[rowPos][colPos] != CollapsePiece.empty)
+            int physCol = columnMap[colIter];
+            
+            /*Iterates through each row of the column*/
+            for(int rowIter = 0; rowIter < boardSize; rowIter++)
             {
-                /*Determines if the tile chosen has a(n) adjacent tile(s)*/
-                if(hasAdjacentTiles(rowPos, colPos))
+                int cell = (colIter - lo) * boardSize + rowIter;
+                int piece = colorAt(rowIter, physCol);
+                
+                groupParents[cell] = cell;
+                /*Joins the tile to the tile above if they match*/
+                if(rowIter > 0 && piece != kEmpty
+                    && colorAt(rowIter - 1, physCol) == piece)
                 {
-                    //Removes cell and all adjacent tiles of the same color
-                    removeSelection(rowPos, colPos);
-                    //Shifts the necesssary cells downwards to fill in blank spots
-                    shiftCellsDownwards();
-                    //Shifts the columns to the center if necessary
-                    shiftColumnsToCenter();
+                    joinGroups(cell, cell - 1);
+                }
+                /*Joins the tile to the tile on the left if they match*/
+                if(colIter > lo && piece != kEmpty
+                    && colorAt(rowIter, columnMap[colIter - 1]) == piece)
+                {
+                    joinGroups(cell, cell - boardSize);
                 }
+            }
+        }
+        
+        /*Iterates through each cell in the same order, roots coming first*/
+        for(int cell = 0; cell < (hi - lo + 1) * boardSize; cell++)
+        {
+            int row = cell % boardSize;
+            int col = lo + cell / boardSize;
+            int physCell = columnMap[col] * boardSize + row;
+            CollapsePiece piece = kPieces[colorAt(row, columnMap[col])];
+            int label = -1;
             
-                numMoves++;
-                validTurn = true;
+            /*Only tiles belong to groups*/
+            if(piece != CollapsePiece.empty)
+            {
+                int root = findGroup(cell);
+                
+                /*The root of a group is its first cell, so it takes a new label*/
+                if(root == cell)
+                {
+                    label = takeLabel(piece, physCell, col);
+                }
+                else
+                {
+                    label = cellLabels[columnMap[lo + root / boardSize] * boardSize
+                        + root % boardSize];
+                }
+                
+                labelSizes[label]++;
+                labelTo[label] = col;
+                /*A group becomes a move when it gets its second tile*/
+                if(labelSizes[label] == 2)
+                {
+                    groupMoves++;
+                }
             }
+            cellLabels[physCell] = label;
         }
+    }
+    
+    /**
+     * Helper method to relabel, takes a free label for a new group.
+     * 
+     * @param color the color of the group
+     * @param physCell the first cell of the group
+     * @param col the column of the first cell on screen
+     * 
+     * @return the label of the group
+     */
+    private int takeLabel(CollapsePiece color, int physCell, int col)
+    {
+        int label = freeLabels[--freeCount];
         
-        return validTurn;
+        labelSizes[label] = 0;
+        labelColors[label] = color;
+        labelCells[label] = physCell;
+        labelFrom[label] = col;
+        labelTo[label] = col;
+        livePositions[label] = liveCount;
+        liveLabels[liveCount++] = label;
+        
+        return label;
     }
     
     /**
-     * Getter method for the number of tiles left the player needs to clear
+     * Helper method to relabel, drops an old group and frees its label.
      * 
-     * @return the number of tiles left the player needs to clear
+     * @param label the label of the group
      */
-    public int getTilesLeft()
+    private void freeLabel(int label)
     {
-        int tilesLeft = 0;
+        int last = liveLabels[--liveCount];
         
-        /*Iterates through all of the rows on the board*/
-        for (int rowIter = 0; rowIter < tileBoard.length; rowIter++)
+        /*Determines if the group was a move*/
+        if(labelSizes[label] > 1)
         {
-            /*Iterates through all of the columns on the board*/
-            for(int colIter = 0; colIter < tileBoard[0].length; colIter++)
-            {
-                /*Detrmines if the current column is not empty*/
-                if(tileBoard[rowIter][colIter] != CollapsePiece.empty)
-                {
-                    tilesLeft++;
-                }
-            }
+            groupMoves--;
         }
-        return tilesLeft;
+        
+        //The last label in use takes the freed label's place in the list
+        liveLabels[livePositions[label]] = last;
+        livePositions[last] = livePositions[label];
+        labelSizes[label] = 0;
+        freeLabels[freeCount++] = label;
     }
     
     /**
-     * Getter method for the number of moves the player has made
+     * Helper method to relabel, joins the groups of two cells.  The root
+     * with the lower index stays the root, so every root is the first cell
+     * of its group.
      * 
-     * @return the number of moves the player has made
+     * @param cell the cell being joined
+     * @param other a cell before it with the same color
      */
-    public int getNumberOfMoves()
+    private void joinGroups(int cell, int other)
     {
-        return this.numMoves;
+        int root = findGroup(cell);
+        int otherRoot = findGroup(other);
+        
+        /*Only groups that are apart have to be joined*/
+        if(root != otherRoot)
+        {
+            groupParents[Math.max(root, otherRoot)] = Math.min(root, otherRoot);
+        }
     }
     
     /**
-     * Checks to see if any of the adjacent tiles are of the same type
+     * Helper method to relabel, finds the root of a cell's group and
+     * halves the path to it on the way.
+     * 
+     * @param cell the cell whose group is wanted
+     * 
+     * @return the root cell of the group
      */
-    protected boolean hasAdjacentTiles(int row, int col)
+    private int findGroup(int cell)
     {
-        boolean hasAdjacentTiles = false;
-        CollapsePiece color = tileBoard[row][col];
+        int root = cell;
         
-        /*Only checks for adjacent tiles if tile is not empty*/
-        if(color != CollapsePiece.empty)
+        /*Walks up to the root, pointing each cell at its grandparent*/
+        while(groupParents[root] != root)
         {
-            /*Looks above the current tile to see if it there is the same tile type*/
-            if(row > 0 && tileBoard[row - 1][col] == color)
-            {
-                hasAdjacentTiles = true;
-            }
-            /*Looks below the current tile to see if it there is the same tile type*/
-            if(row < tileBoard.length - 1 && tileBoard[row + 1][col] == color)
-            {
-                hasAdjacentTiles = true;
-            }
-            /*Looks right of the current tile to see if it there is the same tile type*/
-            if(col > 0 && tileBoard[row][col - 1] == color)
-            {
-                hasAdjacentTiles = true;   
-            }
-            /*Looks left of the current tile to see if it there is the same tile type*/
-            if(col < tileBoard[0].length - 1 && tileBoard[row][col + 1] == color)
-            {
-                hasAdjacentTiles = true;
-            }
+            groupParents[root] = groupParents[groupParents[root]];
+            root = groupParents[root];
         }
         
-        return hasAdjacentTiles;
+        return root;
     }
     
     /**
@@ -235,170 +1728,250 @@ public class CollapseGame
      */
     private void removeSelection(int rowPos, int colPos)
     {
-        CollapsePiece curColor = tileBoard[rowPos][colPos];
-        TileCoordinates curSpot;
-        LinkedList<TileCoordinates> queue = new LinkedList<TileCoordinates>();
-        queue.add(new TileCoordinates(rowPos, colPos));
+        int groupSize = fillGroup(rowPos, colPos);
+        
+        /*Empties every cell of the group and forgets it was visited*/
+        for(int groupNdx = 0; groupNdx < groupSize; groupNdx++)
+        {
+            int cell = groupCells[groupNdx];
+            
+            clearTile(cell / boardSize, cell % boardSize);
+            visited[cell >>> 6] &= ~(1L << cell);
+        }
+    }
+    
+    /**
+     * Finds the tile along with all of the connected tiles of the same color,
+     * without changing the board.  The cells of the group are left in
+     * groupCells as row * boardSize + col, and are marked in visited until
+     * the caller clears them.
+     * 
+     * @param rowPos the row of the tile
+     * @param colPos the column of the tile
+     * 
+     * @return the number of cells in the group
+     */
+    private int fillGroup(int rowPos, int colPos)
+    {
+        int curColor = colorAt(rowPos, columnMap[colPos]);
+        int stackSize = pushIfUnvisited(rowPos * boardSize + colPos, 0);
+        int groupSize = 0;
         
         /*Keeps finding all of the adjacent tiles while there are unchecked tiles*/
-        while(!queue.isEmpty())
+        while(stackSize > 0)
         {
-            curSpot = queue.remove();
+            int cell = fillStack[--stackSize];
+            int row = cell / boardSize;
+            int col = cell % boardSize;
+            int physCol = columnMap[col];
+            
+            groupCells[groupSize++] = cell;
             
-            /*Add the below tile to the queue if it is the same color*/
-            if(curSpot.getRowCoordinate() < tileBoard.length - 1 && tileBoard[
-                curSpot.getRowCoordinate() + 1][curSpot.getColumnCoordinate()]
-                    == curColor)
+            /*Add the below tile to the stack if it is the same color*/
+            if(row < boardSize - 1 && colorAt(row + 1, physCol) == curColor)
             {
-                queue.add(new TileCoordinates(curSpot.getRowCoordinate() + 1,
-                    curSpot.getColumnCoordinate()));
+                stackSize = pushIfUnvisited(cell + boardSize, stackSize);
             }
-            /*Add the above tile to the queue if it is the same color*/
-            if(curSpot.getRowCoordinate() > 0 && tileBoard[curSpot.getRowCoordinate()
-                - 1][curSpot.getColumnCoordinate()] == curColor)
+            /*Add the above tile to the stack if it is the same color*/
+            if(row > 0 && colorAt(row - 1, physCol) == curColor)
             {
-                queue.add(new TileCoordinates(curSpot.getRowCoordinate() - 1,
-                    curSpot.getColumnCoordinate()));
+                stackSize = pushIfUnvisited(cell - boardSize, stackSize);
             }
-            /*Add the tile to the right to the queue if it is the same color*/
-            if(curSpot.getColumnCoordinate() < tileBoard[0].length - 1 &&
-                tileBoard[curSpot.getRowCoordinate()][curSpot.getColumnCoordinate() + 1]
-                    == curColor)
+            /*Add the tile to the right to the stack if it is the same color*/
+            if(col < boardSize - 1 && colorAt(row, columnMap[col + 1]) == curColor)
             {
-                queue.add(new TileCoordinates(curSpot.getRowCoordinate(),
-                    curSpot.getColumnCoordinate() + 1));
+                stackSize = pushIfUnvisited(cell + 1, stackSize);
             }
-            /*Add the tile to the left to the queue if it is the same color*/
-            if(curSpot.getColumnCoordinate() > 0 && tileBoard[curSpot.getRowCoordinate()]
-                [curSpot.getColumnCoordinate() - 1] == curColor)
+            /*Add the tile to the left to the stack if it is the same color*/
+            if(col > 0 && colorAt(row, columnMap[col - 1]) == curColor)
             {
-                queue.add(new TileCoordinates(curSpot.getRowCoordinate(),
-                    curSpot.getColumnCoordinate() - 1));
+                stackSize = pushIfUnvisited(cell - 1, stackSize);
             }
+        }
+        
+        return groupSize;
+    }
+    
+    /**
+     * Helper method to fillGroup, pushes a cell onto the fill stack unless
+     * it has already been visited, so no cell is ever pushed twice.
+     * 
+     * @param cell the cell as row * boardSize + col
+     * @param stackSize the current size of the fill stack
+     * 
+     * @return the new size of the fill stack
+     */
+    private int pushIfUnvisited(int cell, int stackSize)
+    {
+        /*Only pushes cells that have not been seen yet*/
+        if((visited[cell >>> 6] & (1L << cell)) == 0)
+        {
+            visited[cell >>> 6] |= 1L << cell;
+            fillStack[stackSize++] = cell;
+        }
+        
+        return stackSize;
+    }
+    
+    /**
+     * Removes every tile of a group found by the bitboard.
+     * 
+     * @param group the bitboard mask of the group
+     */
+    private void removeGroup(long group)
+    {
+        long remaining = group;
+        
+        bitBoard.removeGroup(group);
+        
+        /*Empties the cell of each bit left in the group*/
+        while(remaining != 0)
+        {
+            int bit = Long.numberOfTrailingZeros(remaining);
             
-            tileBoard[curSpot.getRowCoordinate()][curSpot.getColumnCoordinate()] =
-                CollapsePiece.empty;
-            characterBoard[curSpot.getRowCoordinate()][curSpot.getColumnCoordinate()] =
-                ' ';
+            clearTile(BitBoard.rowOf(bit), BitBoard.columnOf(bit));
+            remaining &= remaining - 1;
         }
     }
     
     /**
-     * Shifts the remaining cells downwards if there is an open spot below them
+     * Shifts the remaining cells downwards if there is an open spot below them.
+     * Only the columns the move removed tiles from are compacted, starting at
+     * the lowest row removed, with a write pointer that each falling tile is
+     * moved down to.
      */
     private void shiftCellsDownwards()
     {
-        /*Iterates through each row on the board*/
-        for(int rowIter = tileBoard.length - 2; rowIter >= 0; rowIter--)
+        /*Iterates through each column the move removed tiles from*/
+        for(int dirtyNdx = 0; dirtyNdx < dirtyCount; dirtyNdx++)
         {
-            /*Iterates through each column on the board*/
-            for(int colIter = 0; colIter < tileBoard[0].length; colIter++)
+            int col = dirtyColumns[dirtyNdx];
+            int writeRow = lowestRemoved[col];
+            //The rows below the lowest removed tile are still full, so the
+            //rest of the column's tiles are the ones that have to fall
+            int tilesAbove = columnCounts[col] - (boardSize - 1 - writeRow);
+            
+            /*Slides each tile above down to the write pointer*/
+            for(int readRow = writeRow - 1; tilesAbove > 0; readRow--)
             {
-                //If the current position is not empty and has an empty spot
-                //below it, then slide the tile down to correct position
-                if(tileBoard[rowIter][colIter] != CollapsePiece.empty &&
-                    tileBoard[rowIter + 1][colIter] == CollapsePiece.empty)
+                int color = colorAt(readRow, col);
+                
+                /*Determines if the current position holds a tile*/
+                if(color != kEmpty)
                 {
-                    int curSpot = rowIter + 1;
+                    columnHashes[col] ^= zobrist(readRow, color) ^ zobrist(writeRow, color);
+                    setColor(writeRow, col, color);
+                    setColor(readRow, col, kEmpty);
                     
-                    /*Slides the tile down until it is above the tile or on the bottom*/
-                    while(curSpot < tileBoard.length - 1 && tileBoard
-                        [curSpot + 1][colIter] == CollapsePiece.empty)
+                    /*Records the fall if the move is being recorded*/
+                    if(moveResult != null)
                     {
-                        curSpot++;
+                        moveResult.addFall(columnPosition[col], readRow, writeRow);
                     }
                     
-                    tileBoard[curSpot][colIter] = tileBoard[rowIter][colIter];
-                    tileBoard[rowIter][colIter] = CollapsePiece.empty;
-                    
-                    characterBoard[curSpot][colIter] = characterBoard[rowIter][colIter];
-                    characterBoard[rowIter][colIter] = ' ';
+                    writeRow--;
+                    tilesAbove--;
                 }
-
             }
+            
+            lowestRemoved[col] = -1;
         }
     }
     
     /**
-     * Shfits the columns towards the center if there are any empty columns
+     * Shfits the columns towards the center if there are any empty columns.
+     * The columns right of the center are compacted leftwards onto it and the
+     * columns left of the center rightwards, both in one stable pass driven
+     * by the column tile counts.  Only the column map is rewritten, the tiles
+     * themselves stay in their physical columns.
      */
     private void shiftColumnsToCenter()
     {
         int centerCol = boardSize / 2;
+        boolean columnEmptied = false;
         
-        /*Iterates through all of the columns left of the center*/
-        for(int ndx = centerCol; ndx < boardSize - 1; ndx++)
+        /*Only a column the move removed tiles from can have emptied out*/
+        for(int dirtyNdx = 0; dirtyNdx < dirtyCount; dirtyNdx++)
         {
-            shift(ndx, 1);
-        }
-        
-        /*If the board is even sized the move the center left one*/
-        if(boardSize % 2 == 0)
-        {
-            centerCol--;
+            /*Determines if the current dirty column has no tiles left*/
+            if(columnCounts[dirtyColumns[dirtyNdx]] == 0)
+            {
+                columnEmptied = true;
+            }
         }
         
-        //Shift the cells left of the center to the center, if needed
-        for(int ndx = centerCol; ndx > 0; ndx--)
-        {
-            shift(ndx, -1);
-        }
-    }
-    
-    /**
-     * Helper method to shiftColumnsToCenter, shifts
-     * the current column in the specified direction
-     */
-    private void shift(int ndx, int dir)
-    {
-        /*Determines if current column is empty*/
-        if(columnIsEmpty(ndx))
+        /*Nothing has to move unless a column emptied*/
+        if(columnEmptied)
         {
-            int curCol = ndx + dir;
-                
-            /*Searches for closes non-empty row to center*/
-            while(curCol >= 0 && curCol < boardSize && columnIsEmpty(curCol))
+            int writeCol = centerCol;
+            
+            /*Packs the non-empty columns right of the center onto the center*/
+            for(int readCol = centerCol; readCol < boardSize; readCol++)
+            {
+                /*Determines if the current column has tiles*/
+                if(columnCounts[columnMap[readCol]] > 0)
+                {
+                    swapColumns(readCol, writeCol);
+                    writeCol++;
+                }
+            }
+            
+            //If the board is even sized, or the center column is taken, then
+            //the left half packs onto the column left of the center
+            if(boardSize % 2 == 0 || columnCounts[columnMap[centerCol]] > 0)
             {
-                curCol = curCol + dir;
+                centerCol--;
             }
-                
-            /*If there is a non-empty row, shift it*/ 
-            if(curCol >= 0 && curCol < boardSize)
+            writeCol = centerCol;
+            
+            /*Packs the non-empty columns left of the center onto the center*/
+            for(int readCol = centerCol; readCol >= 0; readCol--)
             {
-                /*Shifts the column and makes the old spot empty*/
-                for(int rowIter = 0; rowIter < tileBoard.length; rowIter++)
+                /*Determines if the current column has tiles*/
+                if(columnCounts[columnMap[readCol]] > 0)
                 {
-                    tileBoard[rowIter][ndx] = tileBoard[rowIter][curCol];
-                    tileBoard[rowIter][curCol] = CollapsePiece.empty;
-                        
-                    characterBoard[rowIter][ndx] = characterBoard[rowIter][curCol];
-                    characterBoard[rowIter][curCol] = ' ';
+                    swapColumns(readCol, writeCol);
+                    writeCol--;
                 }
             }
         }
     }
     
-    
     /**
-     * Checks to see if a column is empty.
+     * Helper method to shiftColumnsToCenter, swaps a column with an empty
+     * column by swapping their entries in the column map.
      * 
-     * @param col the current column being checked for being empty
+     * @param fromCol the column being moved
+     * @param toCol the empty column it is moved to
      */
-    private boolean columnIsEmpty(int column)
+    private void swapColumns(int fromCol, int toCol)
     {
-        boolean isEmpty = true;
-        
-        /*Iterates through all of the rows*/
-        for(int rowIter = 0; rowIter < tileBoard.length && isEmpty; rowIter++)
+        /*A column that is already in place stays put*/
+        if(fromCol != toCol)
         {
-            /*Determines if the current position is not empty*/
-            if(tileBoard[rowIter][column] != CollapsePiece.empty)
+            int physCol = columnMap[toCol];
+            
+            columnMap[toCol] = columnMap[fromCol];
+            columnMap[fromCol] = physCol;
+            columnPosition[columnMap[toCol]] = toCol;
+            columnPosition[physCol] = fromCol;
+            rekeyColumn(columnMap[toCol]);
+            rekeyColumn(physCol);
+            markChanged(fromCol);
+            markChanged(toCol);
+            
+            /*Records the column move if the move is being recorded*/
+            if(moveResult != null)
+            {
+                moveResult.addColumnMove(fromCol, toCol);
+            }
+            /*Journals the swap unless it is being undone*/
+            if(journaling)
             {
-                isEmpty = false;
+                journalWrite(fromCol << 16 | toCol);
+                recordSwaps++;
             }
         }
-        
-        return isEmpty;
     }
     
     /**
@@ -407,19 +1980,68 @@ public class CollapseGame
     public void cheat()
     {
         /*Iterates through all of the rows of the current board*/
-        for (int rowIter = 0; rowIter < tileBoard.length; rowIter++)
+        for (int rowIter = 0; rowIter < boardSize; rowIter++)
         {
             /*Iterates throug all of the columns of the current board*/
-            for(int colIter = 0; colIter < tileBoard[0].length; colIter++)
+            for(int colIter = 0; colIter < boardSize; colIter++)
             {          
-                tileBoard[rowIter][colIter] = CollapsePiece.empty;
-                characterBoard[rowIter][colIter] = ' ';
+                setColor(rowIter, colIter, kEmpty);
             }
         
-            tileBoard[0][0] = CollapsePiece.green;
-            characterBoard[0][0] = '+';
-            tileBoard[0][1] = CollapsePiece.green;
-            characterBoard[0][1] = '+';   
+            setColor(0, 0, CollapsePiece.green.ordinal());
+            setColor(0, 1, CollapsePiece.green.ordinal());
+        }
+        
+        //The board is no longer the numbered board, so it has no replay
+        boardNumber = -1;
+        countTiles();
+        boardReplaced();
+    }
+    
+    /**
+     * Starts the game over on another board of the same size, reusing all
+     * of the game's arrays instead of building a new game.  A board that was
+     * started recently is copied from the layout cache.
+     * 
+     * @param boardNumber the desired board number
+     */
+    public void reset(int boardNumber)
+    {
+        loadBoard(boardNumber);
+        numMoves = 0;
+        boardReplaced();
+    }
+    
+    /**
+     * Brings everything kept about the board up to date after every cell
+     * was rewritten and counted, with every column back in its own place.
+     */
+    private void boardReplaced()
+    {
+        /*Puts every column back in its own place*/
+        for(int colIter = 0; colIter < boardSize; colIter++)
+        {
+            columnMap[colIter] = colIter;
+            columnPosition[colIter] = colIter;
+        }
+        
+        hashColumns();
+        countAllPairs();
+        staleLabels(0, boardSize - 1);
+        
+        /*Moves before the board was replaced can not be undone or redone*/
+        journalStart = 0;
+        journalEnd = 0;
+        journalUsed = 0;
+        journalRecords = 0;
+        redoCount = 0;
+        clickCount = 0;
+        
+        /*The bitboard has to be rebuilt from the new board*/
+        if(bitBoard != null)
+        {
+            bitBoard.load(this);
         }
+        refreshViews(0, boardSize - 1);
     }
 }
@@ -166,10 +166,640 @@ public class CollapseGameTest extends junit.framework.TestCase
         game.cheat();
         assertFalse(game.isGameOver());
     }
-}
-
-
-
-
 
+    /**
+     * Tests that the bitboard queries on small boards agree with the board
+     */
+    public void testSmallBoardQueries()
+    {
+        CollapseGame game = new CollapseGame(8, 2);
+        CollapsePiece[][] tBoard = game.getTileBoard();
+        int[][] clicks = {{7, 4}, {7, 4}, {0, 0}, {7, 4}, {7, 3}, {7, 7}};
+        
+        /*Plays each click and recounts the board by hand*/
+        for(int clickNdx = 0; clickNdx < clicks.length; clickNdx++)
+        {
+            game.takeTurn(clicks[clickNdx][0], clicks[clickNdx][1]);
+            int tilesLeft = 0;
+            
+            /*Counts the tiles and checks every neighbor test*/
+            for(int row = 0; row < tBoard.length; row++)
+            {
+                for(int col = 0; col < tBoard[0].length; col++)
+                {
+                    boolean adjacent = tBoard[row][col] != CollapsePiece.empty
+                        && ((row > 0 && tBoard[row - 1][col] == tBoard[row][col])
+                        || (row < 7 && tBoard[row + 1][col] == tBoard[row][col])
+                        || (col > 0 && tBoard[row][col - 1] == tBoard[row][col])
+                        || (col < 7 && tBoard[row][col + 1] == tBoard[row][col]));
+                    
+                    assertEquals(adjacent, game.hasAdjacentTiles(row, col));
+                    if(tBoard[row][col] != CollapsePiece.empty)
+                    {
+                        tilesLeft++;
+                    }
+                }
+            }
+            assertEquals(tilesLeft, game.getTilesLeft());
+            assertEquals(tilesLeft == 0, game.isGameOver());
+        }
+    }
 
+    /**
+     * Tests the live tile, color and column counts
+     */
+    public void testTileCounts()
+    {
+        CollapseGame game = new CollapseGame(2, 2);
+        assertEquals(4, game.getTilesLeft());
+        assertEquals(2, game.getTilesLeft(CollapsePiece.purple));
+        assertEquals(1, game.getTilesLeft(CollapsePiece.green));
+        assertEquals(1, game.getTilesLeft(CollapsePiece.red));
+        assertEquals(0, game.getTilesLeft(CollapsePiece.empty));
+        assertEquals(2, game.getColumnsLeft());
+        
+        CollapseGame game2 = new CollapseGame(2, 8);
+        game2.takeTurn(0, 0);
+        assertEquals(0, game2.getTilesLeft());
+        assertEquals(0, game2.getTilesLeft(CollapsePiece.purple));
+        assertEquals(0, game2.getColumnsLeft());
+        game2.cheat();
+        assertEquals(2, game2.getTilesLeft());
+        assertEquals(2, game2.getTilesLeft(CollapsePiece.green));
+        assertEquals(2, game2.getColumnsLeft());
+    }
+    
+    /**
+     * Tests that replaying a move result on the old board gives the new board
+     */
+    public void testMoveResult()
+    {
+        java.util.Random clicks = new java.util.Random(7);
+        MoveResult result = new MoveResult();
+        int[] sizes = {5, 8, 12};
+        
+        for(int sizeNdx = 0; sizeNdx < sizes.length; sizeNdx++)
+        {
+            int size = sizes[sizeNdx];
+            CollapseGame game = new CollapseGame(size, 300 + size);
+            
+            for(int move = 0; move < size * 4 && !game.isGameOver(); move++)
+            {
+                CollapsePiece[][] board = copyBoard(game.getTileBoard());
+                
+                game.takeTurn(clicks.nextInt(size + 1), clicks.nextInt(size), result);
+                for(int ndx = 0; ndx < result.getRemovedCount(); ndx++)
+                {
+                    board[result.getRemovedRow(ndx)][result.getRemovedColumn(ndx)] =
+                        CollapsePiece.empty;
+                }
+                for(int ndx = 0; ndx < result.getFallCount(); ndx++)
+                {
+                    int col = result.getFallColumn(ndx);
+                    board[result.getFallToRow(ndx)][col] =
+                        board[result.getFallFromRow(ndx)][col];
+                    board[result.getFallFromRow(ndx)][col] = CollapsePiece.empty;
+                }
+                for(int ndx = 0; ndx < result.getColumnMoveCount(); ndx++)
+                {
+                    for(int row = 0; row < size; row++)
+                    {
+                        board[row][result.getColumnMovedTo(ndx)] =
+                            board[row][result.getColumnMovedFrom(ndx)];
+                        board[row][result.getColumnMovedFrom(ndx)] = CollapsePiece.empty;
+                    }
+                }
+                
+                assertBoardEquals(board, game);
+                assertEquals(game.getTilesLeft(), result.getTilesLeft());
+            }
+        }
+        
+        CollapseGame game = new CollapseGame(4, 1);
+        assertFalse(game.takeTurn(4, 0, result).isValidTurn());
+        assertEquals(0, result.getRemovedCount());
+        assertEquals(16, result.getTilesLeft());
+    }
+    
+    /**
+     * Tests that undoing every move walks back through the same boards and
+     * that redoing them walks forward again
+     */
+    public void testUndoRedo()
+    {
+        java.util.Random clicks = new java.util.Random(11);
+        int[] sizes = {5, 8, 12};
+        
+        for(int sizeNdx = 0; sizeNdx < sizes.length; sizeNdx++)
+        {
+            int size = sizes[sizeNdx];
+            CollapseGame game = new CollapseGame(size, 500 + size);
+            java.util.ArrayList<CollapsePiece[][]> boards =
+                new java.util.ArrayList<CollapsePiece[][]>();
+            
+            boards.add(copyBoard(game.getTileBoard()));
+            assertFalse(game.canUndo());
+            while(!game.isGameOver() && boards.size() < size * 4)
+            {
+                if(game.takeTurn(clicks.nextInt(size), clicks.nextInt(size)))
+                {
+                    boards.add(copyBoard(game.getTileBoard()));
+                }
+            }
+            
+            for(int moves = boards.size() - 1; moves > 0; moves--)
+            {
+                assertTrue(game.undo());
+                assertEquals(moves - 1, game.getNumberOfMoves());
+                assertBoardEquals(boards.get(moves - 1), game);
+                assertEquals(game.getColumnsLeft() > 0, game.getTilesLeft() > 0);
+            }
+            assertFalse(game.undo());
+            assertEquals(size * size, game.getTilesLeft());
+            
+            for(int moves = 1; moves < boards.size(); moves++)
+            {
+                assertTrue(game.redo());
+                assertEquals(moves, game.getNumberOfMoves());
+                assertBoardEquals(boards.get(moves), game);
+            }
+            assertFalse(game.canRedo());
+        }
+        
+        CollapseGame game = new CollapseGame(4, 3);
+        game.takeTurn(3, 0);
+        game.undo();
+        assertTrue(game.canRedo());
+        game.cheat();
+        assertFalse(game.canUndo());
+        assertFalse(game.canRedo());
+    }
+    
+    /**
+     * Tests that the position hash depends only on the tiles on the board
+     */
+    public void testPositionHash()
+    {
+        CollapseGame game = new CollapseGame(2, 8);
+        CollapseGame game2 = new CollapseGame(2, 3);
+        assertTrue(game.positionHash() != game2.positionHash());
+        game.takeTurn(0, 0);
+        game2.cheat();
+        game2.takeTurn(0, 0);
+        assertEquals(game.positionHash(), game2.positionHash());
+        
+        CollapseGame game3 = new CollapseGame(6, 40);
+        CollapseGame game4 = new CollapseGame(6, 41);
+        game3.cheat();
+        game4.cheat();
+        assertEquals(game3.positionHash(), game4.positionHash());
+        
+        java.util.Random clicks = new java.util.Random(5);
+        java.util.HashSet<Long> hashes = new java.util.HashSet<Long>();
+        CollapseGame game5 = new CollapseGame(10, 77);
+        long start = game5.positionHash();
+        hashes.add(start);
+        while(!game5.isGameOver() && game5.getNumberOfMoves() < 40)
+        {
+            int tiles = game5.getTilesLeft();
+            long hash = game5.positionHash();
+            
+            game5.takeTurn(clicks.nextInt(10), clicks.nextInt(10));
+            assertEquals(tiles == game5.getTilesLeft(), hash == game5.positionHash());
+            hashes.add(game5.positionHash());
+        }
+        while(game5.undo())
+        {
+            assertTrue(hashes.contains(game5.positionHash()));
+        }
+        assertEquals(start, game5.positionHash());
+    }
+    
+    /**
+     * Tests that listGroups finds every group once with its size and color
+     */
+    public void testListGroups()
+    {
+        java.util.Random clicks = new java.util.Random(3);
+        GroupList groups = new GroupList();
+        int[] sizes = {1, 3, 8, 15};
+        
+        CollapseGame game = new CollapseGame(2, 5);
+        game.listGroups(groups);
+        assertEquals(2, groups.getGroupCount());
+        assertEquals(1, groups.getMoveCount());
+        assertEquals(1, game.getGroupMovesLeft());
+        assertEquals(3, game.getGroupSize(0, 0));
+        assertEquals(1, game.getGroupSize(0, 1));
+        game.takeTurn(0, 0);
+        assertEquals(0, game.getGroupSize(0, 0));
+        assertEquals(1, game.getGroupSize(1, 1));
+        assertEquals(0, game.getGroupMovesLeft());
+        
+        for(int sizeNdx = 0; sizeNdx < sizes.length; sizeNdx++)
+        {
+            int size = sizes[sizeNdx];
+            game = new CollapseGame(size, 60 + size);
+            
+            while(!game.isGameOver() && game.getNumberOfMoves() < size * 3)
+            {
+                boolean[][] seen = new boolean[size][size];
+                int tiles = 0;
+                int moves = 0;
+                
+                game.listGroups(groups);
+                for(int ndx = 0; ndx < groups.getGroupCount(); ndx++)
+                {
+                    int row = groups.getGroupRow(ndx);
+                    int col = groups.getGroupColumn(ndx);
+                    
+                    assertFalse(seen[row][col]);
+                    assertEquals(game.getPiece(row, col), groups.getGroupColor(ndx));
+                    assertEquals(groups.getGroupSize(ndx), referenceFill(game, seen, row, col));
+                    tiles += groups.getGroupSize(ndx);
+                    if(groups.getGroupSize(ndx) > 1)
+                    {
+                        moves++;
+                    }
+                }
+                assertEquals(game.getTilesLeft(), tiles);
+                assertEquals(moves, groups.getMoveCount());
+                assertEquals(moves, game.getGroupMovesLeft());
+                
+                game.takeTurn(clicks.nextInt(size), clicks.nextInt(size));
+            }
+        }
+    }
+    
+    /**
+     * Tests that a board with tiles but no moves left is reported as stuck
+     */
+    public void testStuck()
+    {
+        MoveResult result = new MoveResult();
+        CollapseGame game = new CollapseGame(2, 2);
+        assertTrue(game.isStuck());
+        assertFalse(game.isGameOver());
+        
+        game = new CollapseGame(2, 5);
+        assertFalse(game.isStuck());
+        assertTrue(game.takeTurn(0, 0, result).isStuck());
+        assertTrue(game.isStuck());
+        game.undo();
+        assertFalse(game.isStuck());
+        
+        game = new CollapseGame(2, 8);
+        assertFalse(game.takeTurn(0, 0, result).isStuck());
+        assertFalse(game.isStuck());
+        assertTrue(game.isGameOver());
+    }
+    
+    /**
+     * Tests that resetting a game in place gives the same game as a new one
+     */
+    public void testReset()
+    {
+        java.util.Random clicks = new java.util.Random(8);
+        CollapseGame game = new CollapseGame(9, 1);
+        
+        for(int boardNum = 2; boardNum < 12; boardNum++)
+        {
+            CollapseGame fresh = new CollapseGame(9, boardNum);
+            
+            for(int move = 0; move < 10; move++)
+            {
+                game.takeTurn(clicks.nextInt(9), clicks.nextInt(9));
+            }
+            game.reset(boardNum);
+            
+            assertBoardEquals(fresh.getTileBoard(), game);
+            assertEquals(0, game.getNumberOfMoves());
+            assertEquals(fresh.positionHash(), game.positionHash());
+            assertEquals(fresh.getGroupMovesLeft(), game.getGroupMovesLeft());
+            assertEquals(fresh.isStuck(), game.isStuck());
+            assertFalse(game.canUndo());
+            assertEquals(fresh.getTilesLeft(CollapsePiece.red),
+                game.getTilesLeft(CollapsePiece.red));
+        }
+        
+        CollapseGame cached = new CollapseGame(9, 5);
+        CollapseGame again = new CollapseGame(9, 5);
+        again.takeTurn(4, 4);
+        again.reset(5);
+        assertBoardEquals(cached.getTileBoard(), again);
+        assertEquals(new String(cached.getCharacterBoard()[3]),
+            new String(again.getCharacterBoard()[3]));
+    }
+    
+    /**
+     * Tests that a copy is in the same position and is played apart from
+     * the game it was copied from
+     */
+    public void testCopy()
+    {
+        java.util.Random clicks = new java.util.Random(3);
+        CollapseGame game = new CollapseGame(10, 7);
+        
+        for(int move = 0; move < 12; move++)
+        {
+            game.takeTurn(clicks.nextInt(10), clicks.nextInt(10));
+        }
+        CollapseGame copy = new CollapseGame(game);
+        
+        assertBoardEquals(game.getTileBoard(), copy);
+        assertEquals(game.getNumberOfMoves(), copy.getNumberOfMoves());
+        assertEquals(game.positionHash(), copy.positionHash());
+        assertEquals(game.getGroupMovesLeft(), copy.getGroupMovesLeft());
+        assertFalse(copy.canUndo());
+        
+        CollapsePiece[][] before = copyBoard(game.getTileBoard());
+        for(int move = 0; move < 12; move++)
+        {
+            copy.takeTurn(clicks.nextInt(10), clicks.nextInt(10));
+        }
+        assertBoardEquals(before, game);
+    }
+    
+    /**
+     * Tests that the largest board can be played and undone, and that
+     * bigger boards are refused
+     */
+    public void testLargestBoard()
+    {
+        CollapseGame game = new CollapseGame(CollapseGame.kMaxSize, 3);
+        int cells = CollapseGame.kMaxSize * CollapseGame.kMaxSize;
+        long hash = game.positionHash();
+        
+        int col = 0;
+        
+        assertEquals(cells, game.getTilesLeft());
+        while(!game.hasAdjacentTiles(999, col))
+        {
+            col++;
+        }
+        assertTrue(game.takeTurn(999, col));
+        assertTrue(game.getTilesLeft() < cells);
+        assertEquals(CollapsePiece.empty, game.getPiece(0, col));
+        assertEquals(' ', game.getSymbol(0, col));
+        assertTrue(game.undo());
+        assertEquals(cells, game.getTilesLeft());
+        assertEquals(hash, game.positionHash());
+        
+        try
+        {
+            new CollapseGame(CollapseGame.kMaxSize + 1, 3);
+            fail();
+        }
+        catch(IllegalArgumentException e)
+        {
+            assertNotNull(e.getMessage());
+        }
+    }
+    
+    /**
+     * Tests boards with other numbers of colors
+     */
+    public void testColors()
+    {
+        java.util.Random clicks = new java.util.Random(19);
+        
+        for(int colors = CollapseGame.kMinColors; colors <= CollapseGame.kMaxColors; colors++)
+        {
+            CollapseGame game = new CollapseGame(12, 5, colors);
+            boolean[] seen = new boolean[CollapsePiece.values().length];
+            int used = 0;
+            
+            assertEquals(colors, game.getColors());
+            for(int row = 0; row < 12; row++)
+            {
+                for(int col = 0; col < 12; col++)
+                {
+                    CollapsePiece piece = game.getPiece(row, col);
+                    assertTrue(piece.ordinal() < colors);
+                    used += seen[piece.ordinal()] ? 0 : 1;
+                    seen[piece.ordinal()] = true;
+                }
+            }
+            assertEquals(colors, used);
+            
+            for(int move = 0; move < 30; move++)
+            {
+                CollapsePiece[][] expected = copyBoard(game.getTileBoard());
+                int row = clicks.nextInt(12);
+                int col = clicks.nextInt(12);
+                
+                if(game.takeTurn(row, col))
+                {
+                    referenceTurn(expected, row, col);
+                }
+                assertBoardEquals(expected, game);
+            }
+            assertEquals(colors, new CollapseGame(game.snapshot()).getColors());
+            game.reset(5);
+            assertBoardEquals(new CollapseGame(12, 5, colors).getTileBoard(), game);
+        }
+        assertBoardEquals(new CollapseGame(9, 8).getTileBoard(), new CollapseGame(9, 8, 3));
+        
+        try
+        {
+            new CollapseGame(8, 1, CollapseGame.kMaxColors + 1);
+            fail();
+        }
+        catch(IllegalArgumentException e)
+        {
+            assertNotNull(e.getMessage());
+        }
+    }
+    
+    /**
+     * Tests that moves on boards too big for the bitboard leave exactly the
+     * same board as the original LinkedList flood fill did
+     */
+    public void testLargeBoardMatchesReference()
+    {
+        java.util.Random clicks = new java.util.Random(42);
+        
+        /*Plays a few random games on each of the larger board sizes*/
+        for(int size = 9; size <= 20; size++)
+        {
+            for(int boardNum = 1; boardNum <= 5; boardNum++)
+            {
+                CollapseGame game = new CollapseGame(size, boardNum * 97);
+                CollapsePiece[][] expected = copyBoard(game.getTileBoard());
+                
+                for(int move = 0; move < size * 3 && !game.isGameOver(); move++)
+                {
+                    int row = clicks.nextInt(size);
+                    int col = clicks.nextInt(size);
+                    
+                    referenceTurn(expected, row, col);
+                    game.takeTurn(row, col);
+                    assertBoardEquals(expected, game);
+                }
+            }
+        }
+    }
+    
+    /* Checks every cell of the game against the expected board */
+    private void assertBoardEquals(CollapsePiece[][] expected, CollapseGame game)
+    {
+        CollapsePiece[][] tBoard = game.getTileBoard();
+        int tilesLeft = 0;
+        
+        for(int row = 0; row < expected.length; row++)
+        {
+            for(int col = 0; col < expected.length; col++)
+            {
+                assertEquals(expected[row][col], tBoard[row][col]);
+                if(expected[row][col] != CollapsePiece.empty)
+                {
+                    tilesLeft++;
+                }
+            }
+        }
+        assertEquals(tilesLeft, game.getTilesLeft());
+    }
+    
+    /* Marks a group in seen with a plain flood fill and returns its size */
+    private int referenceFill(CollapseGame game, boolean[][] seen, int row, int col)
+    {
+        int size = 0;
+        
+        if(!seen[row][col])
+        {
+            int boardSize = game.getBoardSize();
+            CollapsePiece color = game.getPiece(row, col);
+            
+            seen[row][col] = true;
+            size++;
+            if(row > 0 && game.getPiece(row - 1, col) == color)
+            {
+                size += referenceFill(game, seen, row - 1, col);
+            }
+            if(row < boardSize - 1 && game.getPiece(row + 1, col) == color)
+            {
+                size += referenceFill(game, seen, row + 1, col);
+            }
+            if(col > 0 && game.getPiece(row, col - 1) == color)
+            {
+                size += referenceFill(game, seen, row, col - 1);
+            }
+            if(col < boardSize - 1 && game.getPiece(row, col + 1) == color)
+            {
+                size += referenceFill(game, seen, row, col + 1);
+            }
+        }
+        return size;
+    }
+    
+    /* Copies a board so the reference moves can be played on it */
+    private CollapsePiece[][] copyBoard(CollapsePiece[][] board)
+    {
+        CollapsePiece[][] copy = new CollapsePiece[board.length][];
+        
+        for(int row = 0; row < board.length; row++)
+        {
+            copy[row] = board[row].clone();
+        }
+        return copy;
+    }
+    
+    /* The original queue based move, kept as the reference implementation */
+    private void referenceTurn(CollapsePiece[][] board, int rowPos, int colPos)
+    {
+        int size = board.length;
+        CollapsePiece color = board[rowPos][colPos];
+        boolean adjacent = color != CollapsePiece.empty
+            && ((rowPos > 0 && board[rowPos - 1][colPos] == color)
+            || (rowPos < size - 1 && board[rowPos + 1][colPos] == color)
+            || (colPos > 0 && board[rowPos][colPos - 1] == color)
+            || (colPos < size - 1 && board[rowPos][colPos + 1] == color));
+        
+        if(!adjacent)
+        {
+            return;
+        }
+        
+        java.util.LinkedList<TileCoordinates> queue =
+            new java.util.LinkedList<TileCoordinates>();
+        queue.add(new TileCoordinates(rowPos, colPos));
+        while(!queue.isEmpty())
+        {
+            TileCoordinates spot = queue.remove();
+            int row = spot.getRowCoordinate();
+            int col = spot.getColumnCoordinate();
+            
+            if(row < size - 1 && board[row + 1][col] == color)
+            {
+                queue.add(new TileCoordinates(row + 1, col));
+            }
+            if(row > 0 && board[row - 1][col] == color)
+            {
+                queue.add(new TileCoordinates(row - 1, col));
+            }
+            if(col < size - 1 && board[row][col + 1] == color)
+            {
+                queue.add(new TileCoordinates(row, col + 1));
+            }
+            if(col > 0 && board[row][col - 1] == color)
+            {
+                queue.add(new TileCoordinates(row, col - 1));
+            }
+            board[row][col] = CollapsePiece.empty;
+        }
+        
+        for(int row = size - 2; row >= 0; row--)
+        {
+            for(int col = 0; col < size; col++)
+            {
+                if(board[row][col] != CollapsePiece.empty
+                    && board[row + 1][col] == CollapsePiece.empty)
+                {
+                    int spot = row + 1;
+                    while(spot < size - 1 && board[spot + 1][col] == CollapsePiece.empty)
+                    {
+                        spot++;
+                    }
+                    board[spot][col] = board[row][col];
+                    board[row][col] = CollapsePiece.empty;
+                }
+            }
+        }
+        
+        int centerCol = size / 2;
+        for(int ndx = centerCol; ndx < size - 1; ndx++)
+        {
+            referenceShift(board, ndx, 1);
+        }
+        if(size % 2 == 0)
+        {
+            centerCol--;
+        }
+        for(int ndx = centerCol; ndx > 0; ndx--)
+        {
+            referenceShift(board, ndx, -1);
+        }
+    }
+    
+    /* The original column shift, kept as the reference implementation */
+    private void referenceShift(CollapsePiece[][] board, int ndx, int dir)
+    {
+        if(board[board.length - 1][ndx] == CollapsePiece.empty)
+        {
+            int curCol = ndx + dir;
+            while(curCol >= 0 && curCol < board.length
+                && board[board.length - 1][curCol] == CollapsePiece.empty)
+            {
+                curCol = curCol + dir;
+            }
+            if(curCol >= 0 && curCol < board.length)
+            {
+                for(int row = 0; row < board.length; row++)
+                {
+                    board[row][ndx] = board[row][curCol];
+                    board[row][curCol] = CollapsePiece.empty;
+                }
+            }
+        }
+    }
+}
@@ -1,11 +1,14 @@
 
 /**
- * Enumeration class CollapsePiece - represents the different board tiles
+ * Enumeration class CollapsePiece - represents the different board tiles.
+ * A board with fewer colors uses the first ones, and empty is always last,
+ * so every tile fits in four bits.
  * 
  * @author Erik Owen
  * @version 1
  */
 public enum CollapsePiece
 {
-    green, purple, red, empty
+    green, purple, red, blue, yellow, orange, cyan, pink, brown, gray,
+    white, black, teal, lime, navy, empty
 }
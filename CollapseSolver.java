@@ -0,0 +1,478 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class finds the shortest sequence of moves that clears a collapse
+ * board, the same board CollapseGame generates from a board number.  Players
+ * are ranked by their number of moves, so the solver looks for the fewest.
+ *
+ * The search is a depth first branch and bound over the groups of the board.
+ * The first few levels are split into fork-join tasks so that idle workers
+ * steal whole subtrees, and below them each task plays and undoes moves on
+ * its own game.  All of the tasks share one transposition table keyed by the
+ * position hash.  A board that can not be cleared gets the sequence leaving
+ * the fewest tiles, and a search that runs out of time or nodes keeps the
+ * best sequence it found.
+ *
+ * @author Erik Owen
+ * @version 1
+ */
+public class CollapseSolver
+{
+    /*Levels of the search that are split into tasks for other workers*/
+    private final static int kSplitDepth = 3;
+    /*The transposition table has 2^kTableBits entries*/
+    private final static int kTableBits = 20;
+    private final static long kDepthMask = 0xFFFFL;
+    /*Nodes a task searches between looks at the clock*/
+    private final static int kClockInterval = 1024;
+    private final static long kNanosPerMilli = 1000000L;
+    private int boardSize;
+    private int boardNumber;
+    /*Each entry is the upper bits of a position hash and the depth it was searched at*/
+    private AtomicLongArray table;
+    private LongAdder nodes;
+    private long deadline;
+    private long nodeBudget;
+    private volatile boolean timedOut;
+    //Best sequence found so far, scored as tiles left << 32 | moves so
+    //that a lower score is always better
+    private volatile long bestScore;
+    private int[] bestClicks;
+    private long elapsedNanos;
+
+    /**
+     * Constructor for objects of class CollapseSolver
+     *
+     * @param boardSize the size of the board
+     * @param boardNumber the number of the board, as given to CollapseGame
+     */
+    public CollapseSolver(int boardSize, int boardNumber)
+    {
+        this.boardSize = boardSize;
+        this.boardNumber = boardNumber;
+        this.bestClicks = new int[0];
+    }
+
+    /**
+     * Searches for the shortest sequence of moves, on every core, until the
+     * search is complete or the time budget runs out.
+     *
+     * @param timeBudgetMillis how long the search may run, 0 for no limit
+     *
+     * @return true if the sequence found is proven to be the best one
+     */
+    public boolean solve(long timeBudgetMillis)
+    {
+        return solve(timeBudgetMillis, 0);
+    }
+
+    /**
+     * Searches for the shortest sequence of moves, on every core, until the
+     * search is complete or the time or node budget runs out.  The node
+     * budget is checked every few thousand nodes, so the search may go a
+     * little past it.
+     *
+     * @param timeBudgetMillis how long the search may run, 0 for no limit
+     * @param maxNodes how many positions the search may visit, 0 for no limit
+     *
+     * @return true if the sequence found is proven to be the best one
+     */
+    public boolean solve(long timeBudgetMillis, long maxNodes)
+    {
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool();
+        CollapseGame game = new CollapseGame(boardSize, boardNumber);
+
+        table = new AtomicLongArray(1 << kTableBits);
+        nodes = new LongAdder();
+        deadline = timeBudgetMillis > 0 ? start + timeBudgetMillis * kNanosPerMilli
+            : Long.MAX_VALUE;
+        nodeBudget = maxNodes > 0 ? maxNodes : Long.MAX_VALUE;
+        timedOut = false;
+        bestScore = score(game.getTilesLeft(), 0);
+        bestClicks = new int[0];
+
+        try
+        {
+            pool.invoke(new SearchTask(new int[0]));
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        elapsedNanos = System.nanoTime() - start;
+        table = null;
+        return !timedOut;
+    }
+
+    /**
+     * Determines if the last solve finished, so the sequence is the best one.
+     *
+     * @return true if the search was not cut short by a budget
+     */
+    public boolean isOptimal()
+    {
+        return !timedOut;
+    }
+
+    /**
+     * Getter method for the number of moves in the best sequence
+     *
+     * @return the number of moves
+     */
+    public int getMoveCount()
+    {
+        return bestClicks.length;
+    }
+
+    /**
+     * Gets the row of a move in the best sequence.
+     *
+     * @param ndx which move, from 0 to getMoveCount() - 1
+     *
+     * @return the row to click
+     */
+    public int getMoveRow(int ndx)
+    {
+        return bestClicks[ndx] >>> 16;
+    }
+
+    /**
+     * Gets the column of a move in the best sequence.
+     *
+     * @param ndx which move, from 0 to getMoveCount() - 1
+     *
+     * @return the column to click
+     */
+    public int getMoveColumn(int ndx)
+    {
+        return bestClicks[ndx] & 0xFFFF;
+    }
+
+    /**
+     * Getter method for the number of tiles the best sequence leaves
+     *
+     * @return the tiles left, 0 if the sequence clears the board
+     */
+    public int getTilesLeft()
+    {
+        return (int) (bestScore >>> 32);
+    }
+
+    /**
+     * Getter method for the number of positions the last solve searched
+     *
+     * @return the number of nodes searched
+     */
+    public long getNodeCount()
+    {
+        return nodes == null ? 0 : nodes.sum();
+    }
+
+    /**
+     * Getter method for how fast the last solve searched
+     *
+     * @return the nodes searched per second
+     */
+    public long getNodesPerSecond()
+    {
+        return elapsedNanos == 0 ? 0
+            : getNodeCount() * 1000 * kNanosPerMilli / elapsedNanos;
+    }
+
+    /**
+     * Scores a sequence of moves, lower being better.
+     *
+     * @param tilesLeft the tiles left after the sequence
+     * @param moves the number of moves in the sequence
+     *
+     * @return the score of the sequence
+     */
+    private static long score(int tilesLeft, int moves)
+    {
+        return (long) tilesLeft << 32 | moves;
+    }
+
+    /**
+     * Keeps a sequence if it is better than the best one so far.
+     *
+     * @param newScore the score of the sequence
+     * @param path the clicks of the sequence
+     * @param length the number of clicks in the sequence
+     */
+    private synchronized void offer(long newScore, int[] path, int length)
+    {
+        /*Only a better sequence replaces the best one*/
+        if(newScore < bestScore)
+        {
+            bestClicks = Arrays.copyOf(path, length);
+            bestScore = newScore;
+        }
+    }
+
+    /**
+     * Checks the transposition table for a position and records it.  The
+     * subtree of a position reached before in as many moves or fewer can not
+     * hold a better sequence, so it does not have to be searched again.
+     *
+     * @param hash the hash of the position
+     * @param depth the number of moves made to reach it
+     *
+     * @return true if the position was already searched at that depth or less
+     */
+    private boolean seenBefore(long hash, int depth)
+    {
+        int slot = (int) hash & ((1 << kTableBits) - 1);
+        long entry = table.get(slot);
+        boolean seen = ((entry ^ hash) & ~kDepthMask) == 0
+            && (entry & kDepthMask) <= depth;
+
+        /*Records the position unless it was already there*/
+        if(!seen)
+        {
+            table.set(slot, (hash & ~kDepthMask) | Math.min(depth, kDepthMask));
+        }
+
+        return seen;
+    }
+
+    /**
+     * A subtree of the search, rooted at the position a sequence of clicks
+     * leads to.
+     */
+    private class SearchTask extends RecursiveAction
+    {
+        private int[] prefix;
+        private CollapseGame game;
+        private int[] path;
+        /*Moves of each level, as group size << 32 | row << 16 | col*/
+        private long[][] levelMoves;
+        private GroupList groups;
+        private long taskNodes;
+
+        /**
+         * Constructor for objects of class SearchTask
+         *
+         * @param prefix the clicks that lead to the root of the subtree
+         */
+        SearchTask(int[] prefix)
+        {
+            this.prefix = prefix;
+        }
+
+        /**
+         * Replays the prefix on a game of its own and searches the subtree.
+         */
+        @Override
+        protected void compute()
+        {
+            int cells = boardSize * boardSize;
+
+            game = replay(prefix.length);
+            path = Arrays.copyOf(prefix, Math.max(prefix.length, 1) + cells);
+            levelMoves = new long[cells + 1][];
+            groups = new GroupList();
+
+            search(prefix.length);
+            nodes.add(taskNodes % kClockInterval);
+        }
+
+        /**
+         * Builds the game for the first clicks of the path.
+         *
+         * @param length the number of clicks to play
+         *
+         * @return a new game with the clicks played
+         */
+        private CollapseGame replay(int length)
+        {
+            CollapseGame replayed = new CollapseGame(boardSize, boardNumber);
+            int[] clicks = path == null ? prefix : path;
+
+            /*Plays each click of the path in order*/
+            for(int clickNdx = 0; clickNdx < length; clickNdx++)
+            {
+                replayed.takeTurn(clicks[clickNdx] >>> 16, clicks[clickNdx] & 0xFFFF);
+            }
+
+            return replayed;
+        }
+
+        /**
+         * Searches every sequence of moves from the current position.
+         *
+         * @param depth the number of moves made to reach the position
+         */
+        private void search(int depth)
+        {
+            int tiles = game.getTilesLeft();
+
+            taskNodes++;
+            /*Counts the nodes and looks at the clock every so often*/
+            if(taskNodes % kClockInterval == 0)
+            {
+                nodes.add(kClockInterval);
+                /*Cuts the search short once either budget runs out*/
+                if(nodes.sum() > nodeBudget || System.nanoTime() > deadline)
+                {
+                    timedOut = true;
+                }
+            }
+            /*Keeps the position if stopping here beats the best sequence*/
+            if(score(tiles, depth) < bestScore)
+            {
+                offer(score(tiles, depth), path, depth);
+            }
+
+            /*Only searches on while there is time and anything could be better*/
+            if(tiles > 0 && !timedOut && lowerBound(depth) < bestScore
+                && !seenBefore(game.positionHash(), depth))
+            {
+                int moveCount = listMoves(depth);
+                long[] moves = levelMoves[depth];
+
+                /*Splits the levels near the root into tasks for other workers*/
+                if(depth < kSplitDepth)
+                {
+                    SearchTask[] children = new SearchTask[moveCount];
+
+                    /*Makes a task for each move, the biggest group first*/
+                    for(int moveNdx = 0; moveNdx < moveCount; moveNdx++)
+                    {
+                        int[] childPrefix = Arrays.copyOf(path, depth + 1);
+
+                        childPrefix[depth] = (int) moves[moveCount - 1 - moveNdx];
+                        children[moveNdx] = new SearchTask(childPrefix);
+                    }
+                    invokeAll(children);
+                }
+                else
+                {
+                    /*Plays and undoes each move, the biggest group first*/
+                    for(int moveNdx = moveCount - 1; moveNdx >= 0 && !timedOut; moveNdx--)
+                    {
+                        int click = (int) moves[moveNdx];
+
+                        path[depth] = click;
+                        game.takeTurn(click >>> 16, click & 0xFFFF);
+                        search(depth + 1);
+
+                        /*A journal that dropped the move is replaced by a replay*/
+                        if(!game.undo())
+                        {
+                            game = replay(depth);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Gets the lowest score any sequence from the current position could
+         * reach.  A color with one tile left can never be removed, and every
+         * other color needs at least one more move.
+         *
+         * @param depth the number of moves made to reach the position
+         *
+         * @return a score no sequence below the position can beat
+         */
+        private long lowerBound(int depth)
+        {
+            int colorsLeft = 0;
+            int loneTiles = 0;
+
+            /*Counts the colors still on the board and the lone tiles*/
+            for(int colorNdx = 0; colorNdx < game.getColors(); colorNdx++)
+            {
+                int count = game.getTilesLeft(CollapsePiece.values()[colorNdx]);
+
+                /*Determines if the color is left at all*/
+                if(count > 0)
+                {
+                    colorsLeft++;
+                }
+                /*Determines if the color is down to one tile*/
+                if(count == 1)
+                {
+                    loneTiles++;
+                }
+            }
+
+            return loneTiles > 0 ? score(loneTiles, depth + 1) : score(0, depth + colorsLeft);
+        }
+
+        /**
+         * Lists one click for every group of two or more tiles, sorted by
+         * the size of the group so the biggest ends up last.
+         *
+         * @param depth the level the moves are listed for
+         *
+         * @return the number of moves listed
+         */
+        private int listMoves(int depth)
+        {
+            int moveCount = 0;
+
+            game.listGroups(groups);
+            /*Each level keeps its own list, since deeper levels reuse theirs*/
+            if(levelMoves[depth] == null)
+            {
+                levelMoves[depth] = new long[boardSize * boardSize / 2 + 1];
+            }
+
+            /*Iterates through each group of the board*/
+            for(int groupNdx = 0; groupNdx < groups.getGroupCount(); groupNdx++)
+            {
+                /*Lone tiles are not worth a move*/
+                if(groups.getGroupSize(groupNdx) > 1)
+                {
+                    levelMoves[depth][moveCount++] = (long) groups.getGroupSize(groupNdx) << 32
+                        | groups.getGroupRow(groupNdx) << 16 | groups.getGroupColumn(groupNdx);
+                }
+            }
+
+            Arrays.sort(levelMoves[depth], 0, moveCount);
+            return moveCount;
+        }
+    }
+
+    /**
+     * Solves a range of boards and prints the best sequence of each, so the
+     * optimum of every board can be kept for reference.
+     *
+     * @param args board size, first board, last board and the time budget
+     * per board in milliseconds, which default to 6 1 5000 and 10000
+     */
+    public static void main(String[] args)
+    {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+        int first = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        int last = args.length > 2 ? Integer.parseInt(args[2]) : 5000;
+        long budget = args.length > 3 ? Long.parseLong(args[3]) : 10000;
+
+        /*Solves each board of the range in order*/
+        for(int boardNum = first; boardNum <= last; boardNum++)
+        {
+            CollapseSolver solver = new CollapseSolver(size, boardNum);
+            StringBuilder line = new StringBuilder();
+
+            solver.solve(budget);
+            line.append(boardNum).append(' ').append(solver.getMoveCount())
+                .append(solver.isOptimal() ? " optimal " : " best ")
+                .append(solver.getTilesLeft()).append(" left ")
+                .append(solver.getNodesPerSecond()).append(" nodes/s");
+            /*Writes each move the way the console takes it*/
+            for(int moveNdx = 0; moveNdx < solver.getMoveCount(); moveNdx++)
+            {
+                line.append(' ').append((char) ('A' + solver.getMoveRow(moveNdx)))
+                    .append(solver.getMoveColumn(moveNdx) + 1);
+            }
+            System.out.println(line);
+        }
+    }
+}
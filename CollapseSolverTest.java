@@ -0,0 +1,62 @@
+
+
+/**
+ * The test class CollapseSolverTest.
+ *
+ * @author  Erik Owen
+ * @version 1
+ */
+public class CollapseSolverTest extends junit.framework.TestCase
+{
+    /**
+     * Default constructor for test class CollapseSolverTest
+     */
+    public CollapseSolverTest()
+    {
+    }
+
+    /**
+     * Tests that the solver finds the fewest moves on small boards
+     */
+    public void testSmallBoards()
+    {
+        int[] boardNums = {2, 5, 6};
+        int[] expectedMoves = {3, 6, 4};
+        int[] expectedTiles = {0, 0, 1};
+
+        for(int ndx = 0; ndx < boardNums.length; ndx++)
+        {
+            CollapseSolver solver = new CollapseSolver(4, boardNums[ndx]);
+            assertTrue(solver.solve(0));
+            assertTrue(solver.isOptimal());
+            assertEquals(expectedMoves[ndx], solver.getMoveCount());
+            assertEquals(expectedTiles[ndx], solver.getTilesLeft());
+            assertTrue(solver.getNodeCount() > 0);
+            assertEquals(expectedTiles[ndx], replay(solver, 4, boardNums[ndx]));
+        }
+    }
+
+    /**
+     * Tests that a search cut short still returns a sequence that works
+     */
+    public void testTimeBudget()
+    {
+        CollapseSolver solver = new CollapseSolver(14, 9);
+        assertFalse(solver.solve(0, 20000));
+        assertFalse(solver.isOptimal());
+        assertTrue(solver.getMoveCount() > 0);
+        assertEquals(solver.getTilesLeft(), replay(solver, 14, 9));
+    }
+
+    /* Plays the solver's moves on a new game and returns the tiles left */
+    private int replay(CollapseSolver solver, int size, int boardNum)
+    {
+        CollapseGame game = new CollapseGame(size, boardNum);
+
+        for(int move = 0; move < solver.getMoveCount(); move++)
+        {
+            assertTrue(game.takeTurn(solver.getMoveRow(move), solver.getMoveColumn(move)));
+        }
+        return game.getTilesLeft();
+    }
+}
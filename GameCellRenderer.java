@@ -43,6 +43,11 @@ public class GameCellRenderer extends DefaultTableCellRenderer
     	{
     		setIcon(images[kRed]);
     	}
+    	// Boards with more colors use the tile made for each one
+    	else if(piece != CollapsePiece.empty)
+    	{
+    		setIcon(images[piece.ordinal()]);
+    	}
 
     }
 }
@@ -0,0 +1,411 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class is the replay of a game: the board it was played on and the
+ * cell clicked for each move, in order.  A replay is stored in a few bytes,
+ * as varints of the board size, the number of colors, the board number, the
+ * number of moves and the cell of each move, numbered row by row.  Most
+ * numbers fit in one or two bytes, so a whole game on the usual board takes
+ * about twenty bytes.  Replays of finished games are appended to a replay
+ * file one after another, and a score keeps where its replay starts so the
+ * replay can be read back and checked again.
+ *
+ * @author Erik Owen
+ * @version 1
+ */
+public final class GameReplay
+{
+    /*File the replays of finished games are appended to*/
+    public final static String kReplayPath = "collapse/replays.bin";
+    /*Bits of a varint byte that hold the number, the rest says more follow*/
+    private final static int kVarintBits = 7;
+    private final static int kVarintMask = (1 << kVarintBits) - 1;
+    private final static int kVarintMore = 1 << kVarintBits;
+    /*Most bytes an int takes as a varint*/
+    private final static int kMaxVarintBytes = 5;
+    /*Bytes first read for a replay at an offset, doubled until it fits*/
+    private final static int kFirstRead = 64;
+    private final int boardSize;
+    private final int colors;
+    private final int boardNumber;
+    private final int[] cells;
+
+    /**
+     * Constructor for objects of class GameReplay
+     *
+     * @param boardSize the size of the board
+     * @param colors the number of tile colors of the board
+     * @param boardNumber the number of the board
+     * @param cells the cell of each move, row * boardSize + column, which
+     * the replay keeps
+     */
+    public GameReplay(int boardSize, int colors, int boardNumber, int[] cells)
+    {
+        this.boardSize = boardSize;
+        this.colors = colors;
+        this.boardNumber = boardNumber;
+        this.cells = cells;
+    }
+
+    /**
+     * Getter method for the size of the board
+     *
+     * @return the board size
+     */
+    public int getBoardSize()
+    {
+        return boardSize;
+    }
+
+    /**
+     * Getter method for the number of tile colors of the board
+     *
+     * @return the number of colors
+     */
+    public int getColors()
+    {
+        return colors;
+    }
+
+    /**
+     * Getter method for the number of the board
+     *
+     * @return the board number
+     */
+    public int getBoardNumber()
+    {
+        return boardNumber;
+    }
+
+    /**
+     * Getter method for the number of moves of the replay
+     *
+     * @return the number of moves
+     */
+    public int getMoveCount()
+    {
+        return cells.length;
+    }
+
+    /**
+     * Gets the row clicked by a move.
+     *
+     * @param moveNdx the move, from 0
+     *
+     * @return the row
+     */
+    public int getRow(int moveNdx)
+    {
+        return cells[moveNdx] / boardSize;
+    }
+
+    /**
+     * Gets the column clicked by a move.
+     *
+     * @param moveNdx the move, from 0
+     *
+     * @return the column
+     */
+    public int getColumn(int moveNdx)
+    {
+        return cells[moveNdx] % boardSize;
+    }
+
+    /**
+     * Gets how many bytes the replay takes when it is written.
+     *
+     * @return the number of bytes
+     */
+    public int getEncodedLength()
+    {
+        int length = varintLength(boardSize) + varintLength(colors)
+            + varintLength(boardNumber) + varintLength(cells.length);
+
+        /*Adds the bytes of each move*/
+        for(int moveNdx = 0; moveNdx < cells.length; moveNdx++)
+        {
+            length += varintLength(cells[moveNdx]);
+        }
+
+        return length;
+    }
+
+    /**
+     * Writes the replay into a buffer.
+     *
+     * @param buffer the buffer, with room for getEncodedLength bytes
+     */
+    public void write(ByteBuffer buffer)
+    {
+        writeVarint(buffer, boardSize);
+        writeVarint(buffer, colors);
+        writeVarint(buffer, boardNumber);
+        writeVarint(buffer, cells.length);
+        /*Writes the cell of each move*/
+        for(int moveNdx = 0; moveNdx < cells.length; moveNdx++)
+        {
+            writeVarint(buffer, cells[moveNdx]);
+        }
+    }
+
+    /**
+     * Gets the bytes of the replay.
+     *
+     * @return the replay as it is written
+     */
+    public byte[] toBytes()
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(getEncodedLength());
+
+        write(buffer);
+        return buffer.array();
+    }
+
+    /**
+     * Reads a replay from a buffer.
+     *
+     * @param buffer the buffer, positioned at the start of the replay
+     *
+     * @return the replay
+     *
+     * @throws IllegalArgumentException if the bytes are not a replay
+     */
+    public static GameReplay read(ByteBuffer buffer)
+    {
+        try
+        {
+            int size = readVarint(buffer);
+            int colors = readVarint(buffer);
+            int boardNumber = readVarint(buffer);
+            int moves = readVarint(buffer);
+            int[] cells;
+
+            /*Every move takes at least a byte, so more moves than bytes left is no replay*/
+            if(size < 1 || size > CollapseGame.kMaxSize || moves > buffer.remaining())
+            {
+                throw new IllegalArgumentException("Not a replay");
+            }
+            cells = new int[moves];
+            /*Reads the cell of each move*/
+            for(int moveNdx = 0; moveNdx < moves; moveNdx++)
+            {
+                cells[moveNdx] = readVarint(buffer);
+            }
+
+            return new GameReplay(size, colors, boardNumber, cells);
+        }
+        catch(java.nio.BufferUnderflowException e)
+        {
+            throw new IllegalArgumentException("Replay is cut short", e);
+        }
+    }
+
+    /**
+     * Appends the replay to a replay file.  The file is locked while the
+     * replay is written, so replays appended by other processes at the same
+     * time do not get between where it starts and its bytes.
+     *
+     * @param path the path of the file, which is made if it does not exist
+     *
+     * @return where the replay starts in the file
+     *
+     * @throws IOException if the file can not be written
+     */
+    public long appendTo(String path) throws IOException
+    {
+        FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+        try
+        {
+            FileLock lock = channel.lock();
+            ByteBuffer buffer = ByteBuffer.wrap(toBytes());
+            long offset = channel.size();
+
+            try
+            {
+                /*Writes until the whole replay is out*/
+                while(buffer.hasRemaining())
+                {
+                    channel.write(buffer);
+                }
+            }
+            finally
+            {
+                lock.release();
+            }
+
+            return offset;
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+
+    /**
+     * Reads the replay that starts at a place in a replay file.
+     *
+     * @param path the path of the file
+     * @param offset where the replay starts, as appendTo returned it
+     *
+     * @return the replay
+     *
+     * @throws IOException if the file can not be read
+     * @throws IllegalArgumentException if there is no whole replay there
+     */
+    public static GameReplay readAt(String path, long offset) throws IOException
+    {
+        FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+
+        try
+        {
+            GameReplay replay = null;
+            int length = kFirstRead;
+
+            /*Reads more of the file each time the replay runs past what was read*/
+            while(replay == null)
+            {
+                ByteBuffer buffer = ByteBuffer.allocate(
+                    (int) Math.max(0, Math.min(length, channel.size() - offset)));
+                int read = 0;
+
+                /*Reads until the buffer is full or the file ends*/
+                while(buffer.hasRemaining() && read >= 0)
+                {
+                    read = channel.read(buffer, offset + buffer.position());
+                }
+                buffer.flip();
+                try
+                {
+                    replay = read(buffer);
+                }
+                catch(IllegalArgumentException e)
+                {
+                    /*Only a replay cut short by the read is read again with more*/
+                    if(offset + buffer.limit() >= channel.size())
+                    {
+                        throw e;
+                    }
+                    length *= 2;
+                }
+            }
+
+            return replay;
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+
+    /**
+     * Reads every replay of a replay file.  A replay cut short at the end of
+     * the file, by a write that did not finish, is left out.
+     *
+     * @param path the path of the file
+     *
+     * @return the replays, in the order they were written
+     *
+     * @throws IOException if the file can not be read
+     */
+    public static List<GameReplay> readAll(String path) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(new File(path).toPath()));
+        List<GameReplay> replays = new ArrayList<GameReplay>();
+
+        /*Reads replays until the bytes run out*/
+        while(buffer.hasRemaining())
+        {
+            try
+            {
+                replays.add(read(buffer));
+            }
+            catch(IllegalArgumentException e)
+            {
+                break;
+            }
+        }
+
+        return replays;
+    }
+
+    /**
+     * Gets how many bytes a number takes as a varint.
+     *
+     * @param value the number, which must not be negative
+     *
+     * @return the number of bytes
+     */
+    private static int varintLength(int value)
+    {
+        int length = 1;
+
+        /*Each byte holds seven more bits*/
+        while((value >>>= kVarintBits) != 0)
+        {
+            length++;
+        }
+
+        return length;
+    }
+
+    /**
+     * Writes a number as a varint, seven bits a byte from the lowest, with
+     * the high bit set on every byte but the last.
+     *
+     * @param buffer the buffer written to
+     * @param value the number, which must not be negative
+     */
+    private static void writeVarint(ByteBuffer buffer, int value)
+    {
+        /*Writes the bytes that have more bytes after them*/
+        while((value & ~kVarintMask) != 0)
+        {
+            buffer.put((byte) ((value & kVarintMask) | kVarintMore));
+            value >>>= kVarintBits;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Reads a varint.
+     *
+     * @param buffer the buffer read from
+     *
+     * @return the number
+     *
+     * @throws IllegalArgumentException if the varint is too long for an int
+     */
+    private static int readVarint(ByteBuffer buffer)
+    {
+        int value = 0;
+        int shift = 0;
+        int next;
+
+        /*Adds seven bits from each byte until the last byte*/
+        do
+        {
+            /*Only five bytes fit in an int*/
+            if(shift == kMaxVarintBytes * kVarintBits)
+            {
+                throw new IllegalArgumentException("Varint is too long");
+            }
+            next = buffer.get();
+            value |= (next & kVarintMask) << shift;
+            shift += kVarintBits;
+        }
+        while((next & kVarintMore) != 0);
+
+        return value;
+    }
+}
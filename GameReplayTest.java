@@ -0,0 +1,138 @@
+import java.nio.ByteBuffer;
+
+/**
+ * The test class GameReplayTest.
+ *
+ * @author  Erik Owen
+ * @version 1
+ */
+public class GameReplayTest extends junit.framework.TestCase
+{
+    /**
+     * Default constructor for test class GameReplayTest
+     */
+    public GameReplayTest()
+    {
+    }
+
+    /**
+     * Plays a board until it is cleared, trying random games.
+     *
+     * @param game the game, which is left cleared
+     * @param boardNum the board played
+     */
+    private void clear(CollapseGame game, int boardNum)
+    {
+        GroupList groups = new GroupList();
+        java.util.Random random = new java.util.Random(boardNum);
+
+        /*Starts over until a game clears the board*/
+        do
+        {
+            game.reset(boardNum);
+            /*Keeps playing while anything can still be removed*/
+            while(!game.isGameOver() && !game.isStuck())
+            {
+                game.listGroups(groups);
+                int groupNdx;
+
+                /*Picks a random group that is a move*/
+                do
+                {
+                    groupNdx = random.nextInt(groups.getGroupCount());
+                }
+                while(groups.getGroupSize(groupNdx) < 2);
+                game.takeTurn(groups.getGroupRow(groupNdx), groups.getGroupColumn(groupNdx));
+            }
+        }
+        while(!game.isGameOver());
+    }
+
+    /**
+     * Tests that a replay survives its bytes and checks out
+     */
+    public void testRoundTrip()
+    {
+        CollapseGame game = new CollapseGame(4, 2);
+        ReplayVerifier verifier = new ReplayVerifier();
+
+        clear(game, 2);
+        GameReplay replay = game.getReplay();
+        GameReplay read = GameReplay.read(ByteBuffer.wrap(replay.toBytes()));
+
+        assertEquals(4, read.getBoardSize());
+        assertEquals(3, read.getColors());
+        assertEquals(2, read.getBoardNumber());
+        assertEquals(game.getNumberOfMoves(), read.getMoveCount());
+        /*Every move reads back the same*/
+        for(int moveNdx = 0; moveNdx < read.getMoveCount(); moveNdx++)
+        {
+            assertEquals(replay.getRow(moveNdx), read.getRow(moveNdx));
+            assertEquals(replay.getColumn(moveNdx), read.getColumn(moveNdx));
+        }
+
+        assertTrue(verifier.verify(read, game.getNumberOfMoves()));
+        assertFalse(verifier.verify(read, game.getNumberOfMoves() - 1));
+        assertFalse(verifier.verify(new GameReplay(4, 3, 2, new int[] {0}), 1));
+
+        boolean[] verified = verifier.verifyAll(new GameReplay[] {read, read},
+            new int[] {read.getMoveCount(), read.getMoveCount() + 1});
+        assertTrue(verified[0]);
+        assertFalse(verified[1]);
+    }
+
+    /**
+     * Tests that undone moves are left out of the replay
+     */
+    public void testUndo()
+    {
+        CollapseGame game = new CollapseGame(4, 2);
+
+        clear(game, 2);
+        int moves = game.getNumberOfMoves();
+        assertTrue(game.undo());
+        assertEquals(moves - 1, game.getReplay().getMoveCount());
+        assertTrue(game.redo());
+        assertTrue(new ReplayVerifier().verify(game.getReplay(), moves));
+
+        game.cheat();
+        assertNull(game.getReplay());
+    }
+
+    /**
+     * Tests that a stored score is checked again against its replay
+     */
+    public void testStoredScore() throws java.io.IOException
+    {
+        java.io.File file = java.io.File.createTempFile("replays", ".bin");
+        CollapseGame game = new CollapseGame(4, 2);
+        ReplayVerifier verifier = new ReplayVerifier();
+
+        try
+        {
+            clear(game, 2);
+            GameReplay replay = game.getReplay();
+            int moves = game.getNumberOfMoves();
+            long first = replay.appendTo(file.getPath());
+            long second = new GameReplay(4, 3, 5, new int[] {0, 1}).appendTo(file.getPath());
+
+            assertEquals(0, first);
+            assertEquals(replay.getEncodedLength(), second);
+            assertEquals(5, GameReplay.readAt(file.getPath(), second).getBoardNumber());
+            assertTrue(verifier.verify(new ScoreRecord(moves, "Ann", 1L, 4, 3, 2, first),
+                file.getPath()));
+            assertFalse(verifier.verify(new ScoreRecord(moves - 1, "Bob", 1L, 4, 3, 2, first),
+                file.getPath()));
+            assertFalse(verifier.verify(new ScoreRecord(moves, "Cal", 1L, 4, 3, 3, first),
+                file.getPath()));
+            assertFalse(verifier.verify(new ScoreRecord(moves, "Dee", 1L, 4, 3, 2),
+                file.getPath()));
+            assertFalse(verifier.verify(new ScoreRecord(moves, "Eve", 1L, 4, 3, 2, 1000L),
+                file.getPath()));
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+}
@@ -4,22 +4,22 @@ public class GameTableModel extends AbstractTableModel
 {
 
     private String[] columnNames = {"","","","","","","","","",""};   
-    private CollapsePiece[][] gameBoard;
+    private CollapseGame game;
 
     public GameTableModel(CollapseGame game)
     {
-        gameBoard = game.getTileBoard();
+        this.game = game;
     }
 
     public int getColumnCount()
     {
         //return columnNames.length;
-    	return gameBoard[0].length;
+    	return game.getBoardSize();
     }
 
     public int getRowCount()
     {
-        return gameBoard.length;
+        return game.getBoardSize();
     }
 
     public String getColumnName(int col)
@@ -29,7 +29,33 @@ public class GameTableModel extends AbstractTableModel
 
     public Object getValueAt(int row, int col)
     {
-        return gameBoard[row][col];
+        return game.getPiece(row, col);
+    }
+
+    /*
+     * Tells the table about every cell a move changed, so only those
+     * cells are repainted instead of the whole board.
+     */
+    public void fireMoveChanged(MoveResult result)
+    {
+        for (int ndx = 0; ndx < result.getRemovedCount(); ndx++)
+        {
+            fireTableCellUpdated(result.getRemovedRow(ndx), result.getRemovedColumn(ndx));
+        }
+        for (int ndx = 0; ndx < result.getFallCount(); ndx++)
+        {
+            fireTableCellUpdated(result.getFallFromRow(ndx), result.getFallColumn(ndx));
+            fireTableCellUpdated(result.getFallToRow(ndx), result.getFallColumn(ndx));
+        }
+        // A moved column repaints both the column it left and the one it took
+        for (int ndx = 0; ndx < result.getColumnMoveCount(); ndx++)
+        {
+            for (int row = 0; row < getRowCount(); row++)
+            {
+                fireTableCellUpdated(row, result.getColumnMovedFrom(ndx));
+                fireTableCellUpdated(row, result.getColumnMovedTo(ndx));
+            }
+        }
     }
 
     /*
@@ -0,0 +1,145 @@
+/**
+ * This class lists the groups of a collapse board: every connected set of
+ * tiles of the same color, with its size, its color and one of its cells,
+ * in no particular order.  Clicking the cell of a group of two or more
+ * tiles removes the group, so those groups are the moves that can be made.
+ * Coordinates are screen coordinates.
+ *
+ * A GroupList is meant to be reused for every listing, so its arrays only
+ * grow and are never reallocated once they are big enough for the board.
+ *
+ * @author Erik Owen
+ * @version 1
+ */
+public class GroupList
+{
+    private int groupCount;
+    private int moveCount;
+    private int[] sizes;
+    private CollapsePiece[] colors;
+    private int[] rows;
+    private int[] cols;
+
+    /**
+     * Constructor for objects of class GroupList
+     */
+    public GroupList()
+    {
+        this.sizes = new int[0];
+        this.colors = new CollapsePiece[0];
+        this.rows = new int[0];
+        this.cols = new int[0];
+    }
+
+    /**
+     * Empties the list before a listing, growing the arrays if the board
+     * is bigger than any board this list has been used for.
+     *
+     * @param boardSize the size of the board being listed
+     */
+    protected void clear(int boardSize)
+    {
+        /*Only grows the arrays when they are too small*/
+        if(sizes.length < boardSize * boardSize)
+        {
+            sizes = new int[boardSize * boardSize];
+            colors = new CollapsePiece[boardSize * boardSize];
+            rows = new int[boardSize * boardSize];
+            cols = new int[boardSize * boardSize];
+        }
+
+        groupCount = 0;
+        moveCount = 0;
+    }
+
+    /**
+     * Adds a group to the list.
+     *
+     * @param color the color of the group's tiles
+     * @param row the row of a cell of the group
+     * @param col the column of a cell of the group
+     * @param size the number of tiles in the group
+     */
+    protected void add(CollapsePiece color, int row, int col, int size)
+    {
+        sizes[groupCount] = size;
+        colors[groupCount] = color;
+        rows[groupCount] = row;
+        cols[groupCount] = col;
+        groupCount++;
+
+        /*A group of two or more tiles is a move*/
+        if(size > 1)
+        {
+            moveCount++;
+        }
+    }
+
+    /**
+     * Getter method for the number of groups on the board
+     *
+     * @return the number of groups, lone tiles included
+     */
+    public int getGroupCount()
+    {
+        return this.groupCount;
+    }
+
+    /**
+     * Getter method for the number of groups that can be removed
+     *
+     * @return the number of groups of two or more tiles
+     */
+    public int getMoveCount()
+    {
+        return this.moveCount;
+    }
+
+    /**
+     * Gets the number of tiles in a group.
+     *
+     * @param ndx which group, from 0 to getGroupCount() - 1
+     *
+     * @return the size of the group
+     */
+    public int getGroupSize(int ndx)
+    {
+        return sizes[ndx];
+    }
+
+    /**
+     * Gets the color of a group.
+     *
+     * @param ndx which group, from 0 to getGroupCount() - 1
+     *
+     * @return the color of the group's tiles
+     */
+    public CollapsePiece getGroupColor(int ndx)
+    {
+        return colors[ndx];
+    }
+
+    /**
+     * Gets the row of the cell that represents a group.
+     *
+     * @param ndx which group, from 0 to getGroupCount() - 1
+     *
+     * @return the row of a cell of the group
+     */
+    public int getGroupRow(int ndx)
+    {
+        return rows[ndx];
+    }
+
+    /**
+     * Gets the column of the cell that represents a group.
+     *
+     * @param ndx which group, from 0 to getGroupCount() - 1
+     *
+     * @return the column of a cell of the group
+     */
+    public int getGroupColumn(int ndx)
+    {
+        return cols[ndx];
+    }
+}
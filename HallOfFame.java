@@ -0,0 +1,109 @@
+/**
+ * This class keeps the best few high scores out of any number offered to
+ * it, in order from best to worst.  Only the scores kept are stored, so a
+ * score file of millions of lines is read through it without holding on to
+ * more than a handful of scores, and nothing is ever sorted.
+ *
+ * @author Erik Owen
+ * @version 1
+ */
+public class HallOfFame
+{
+    private HighScore[] scores;
+    private int count;
+    private HighScoreComparator comparator;
+
+    /**
+     * Constructor for objects of class HallOfFame
+     *
+     * @param capacity how many scores are kept
+     */
+    public HallOfFame(int capacity)
+    {
+        this.scores = new HighScore[capacity];
+        this.comparator = new HighScoreComparator();
+    }
+
+    /**
+     * Offers a score, which is kept if it is among the best so far.  A score
+     * that ties the worst score kept in both score and name is not kept, as
+     * the two would read the same.
+     *
+     * @param score the score offered
+     *
+     * @return true if the score was kept
+     */
+    public boolean offer(HighScore score)
+    {
+        int slot = count;
+
+        /*A full hall only takes scores better than its worst*/
+        if(count == scores.length
+            && (count == 0 || comparator.compare(score, scores[count - 1]) >= 0))
+        {
+            return false;
+        }
+
+        /*Moves the worse scores down to make room, dropping the worst if full*/
+        while(slot > 0 && comparator.compare(score, scores[slot - 1]) < 0)
+        {
+            /*The worst score falls off the end of a full hall*/
+            if(slot < scores.length)
+            {
+                scores[slot] = scores[slot - 1];
+            }
+            slot--;
+        }
+        scores[slot] = score;
+        count = Math.min(count + 1, scores.length);
+
+        return true;
+    }
+
+    /**
+     * Getter method for the most scores kept
+     *
+     * @return the capacity
+     */
+    public int capacity()
+    {
+        return scores.length;
+    }
+
+    /**
+     * Getter method for the number of scores kept
+     *
+     * @return the number of scores
+     */
+    public int size()
+    {
+        return count;
+    }
+
+    /**
+     * Gets one of the scores kept.
+     *
+     * @param rank the place of the score, 0 being the best
+     *
+     * @return the score
+     */
+    public HighScore get(int rank)
+    {
+        /*Only the places that hold a score can be read*/
+        if(rank < 0 || rank >= count)
+        {
+            throw new IndexOutOfBoundsException("No score in place " + rank);
+        }
+
+        return scores[rank];
+    }
+
+    /**
+     * Drops every score kept.
+     */
+    public void clear()
+    {
+        java.util.Arrays.fill(scores, null);
+        count = 0;
+    }
+}
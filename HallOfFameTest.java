@@ -0,0 +1,56 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * The test class HallOfFameTest.
+ *
+ * @author  Erik Owen
+ * @version 1
+ */
+public class HallOfFameTest extends junit.framework.TestCase
+{
+    /**
+     * Default constructor for test class HallOfFameTest
+     */
+    public HallOfFameTest()
+    {
+    }
+
+    /**
+     * Tests that the hall keeps the same scores as sorting them all would
+     */
+    public void testOffer()
+    {
+        HallOfFame hall = new HallOfFame(5);
+        ArrayList<HighScore> all = new ArrayList<HighScore>();
+        Random random = new Random(7);
+
+        assertTrue(hall.offer(new HighScore(40, "Sue")));
+        assertEquals(1, hall.size());
+        assertEquals("Sue", hall.get(0).getName());
+        all.add(hall.get(0));
+
+        /*Offers scores with plenty of ties*/
+        for(int scoreNdx = 0; scoreNdx < 2000; scoreNdx++)
+        {
+            HighScore score = new HighScore(1 + random.nextInt(50), "p" + random.nextInt(20));
+
+            hall.offer(score);
+            all.add(score);
+        }
+        Collections.sort(all, new HighScoreComparator());
+
+        assertEquals(5, hall.size());
+        /*Each place holds the score sorting puts there*/
+        for(int rank = 0; rank < hall.size(); rank++)
+        {
+            assertEquals(all.get(rank).getScore(), hall.get(rank).getScore());
+            assertEquals(all.get(rank).getName(), hall.get(rank).getName());
+        }
+        assertFalse(hall.offer(new HighScore(51, "Zed")));
+
+        hall.clear();
+        assertEquals(0, hall.size());
+    }
+}
@@ -1,98 +1,234 @@
+import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileReader;
 import java.io.IOException;
-import java.io.Reader;
-import java.io.Writer;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Scanner;
+import java.util.List;
 
 
 public class HighScores {
 
     /*Path to high scores directory*/
     private final static String kHallOfFameDirPath = "collapse";
-    /*Path to high scores file*/
+    /*Path to the text high scores file, which is read once into the score log*/
     private final static String kHallOfFamePath = "collapse/halloffame.ser";
     /*How many hall of fame entries to return */
     public final static int kHallSize = 5;
-	
+    /*Scores of the text file written to the score log at a time*/
+    private final static int kImportBatch = 10000;
+    //Binary log the scores are kept in, opened the first time it is used
+    private static ScoreLog scoreLog;
+    //Best scores of the score log, kept between calls, and the stamp of the
+    //score files they were read from, so the files are only read again
+    //when they changed
+    private static HallOfFame hallOfFame = new HallOfFame(kHallSize);
+    private static String loadedScores;
+    private static long loadedStamp;
+
     /** Adds a new high score to the high scores file
-     * 
+     *
      * @param name The name of the score with the high score
      * @param score The score the player receieved
      */
     public static void addHighScore(String name, int score) throws IOException
     {
-        File highScoresFile = new File(kHallOfFamePath);
-        boolean createdDir = false, createdFile = false;
+        addHighScore(name, score, 0, 0, ScoreRecord.kUnknownBoard);
+    }
+
+    /** Adds a new high score to the score log, with the board it was made on
+     *
+     * @param name The name of the score with the high score
+     * @param score The score the player receieved
+     * @param boardSize the size of the board
+     * @param colors the number of tile colors of the board
+     * @param boardNumber the number of the board
+     */
+    public static void addHighScore(String name, int score, int boardSize,
+        int colors, int boardNumber) throws IOException
+    {
+        addHighScore(name, score, boardSize, colors, boardNumber, ScoreRecord.kNoReplay);
+    }
+
+    /** Adds a new high score to the score log, with the board it was made on
+     *  and where the replay that confirmed it starts in the replay file
+     *
+     * @param name The name of the score with the high score
+     * @param score The score the player receieved
+     * @param boardSize the size of the board
+     * @param colors the number of tile colors of the board
+     * @param boardNumber the number of the board
+     * @param replayOffset where the replay starts, as GameReplay.appendTo
+     * returned it, or ScoreRecord.kNoReplay for an unverified score
+     */
+    public static synchronized void addHighScore(String name, int score, int boardSize,
+        int colors, int boardNumber, long replayOffset) throws IOException
+    {
+        ScoreRecord record = new ScoreRecord(score, name, System.currentTimeMillis(),
+            boardSize, colors, boardNumber, replayOffset);
+
+        openScoreLog().append(record);
+        //Another process may have added scores just before this one, so the
+        //hall of fame is read again rather than brought up to date here
+        loadedScores = null;
+    }
 
-        /*Creates a high scores file if it does not exist*/
-        if(!highScoresFile.exists())
-        {       
-            createdFile = highScoresFile.createNewFile();
+    /** Opens the score log the first time it is needed, filling a new one
+     *  with the scores of the text high scores file if there is one.
+     *
+     * @return the score log
+     */
+    private static ScoreLog openScoreLog() throws IOException
+    {
+        /*Only opens the score log once*/
+        if(scoreLog == null)
+        {
+            File dir = new File(kHallOfFameDirPath);
+
+            dir.mkdirs();
+            scoreLog = new ScoreLog(dir);
+            /*Brings the scores of the text file over to a new score log*/
+            if(scoreLog.isEmpty() && new File(kHallOfFamePath).exists())
+            {
+                importTextScores(new File(kHallOfFamePath), scoreLog);
+            }
         }
-            
-        /*Writes to the high score file*/
-        FileWriter highScoreWriter = new FileWriter(highScoresFile, true);
-        highScoreWriter.write(score + " " + name + "\n");
-        highScoreWriter.close();
+
+        return scoreLog;
     }
-    
-    private static String parseAndSortHighScores(File highScoresFile) throws IOException
+
+    /** Writes every score of a text high scores file, one "score name" a
+     *  line, to the score log.  Lines that are not scores are skipped.
+     *
+     * @param highScoresFile the text high scores file
+     * @param log the score log
+     */
+    private static void importTextScores(File highScoresFile, ScoreLog log) throws IOException
     {
-        String highScoresString = "";
-        ArrayList<HighScore> scoresList = new ArrayList<HighScore>();
-        
-        Scanner scan = new Scanner(highScoresFile);
-        
-        /*Reads all of the scores in the high scores file*/
-        while(scan.hasNextLine())
+        BufferedReader reader = new BufferedReader(new FileReader(highScoresFile));
+        List<ScoreRecord> batch = new ArrayList<ScoreRecord>();
+        long modified = highScoresFile.lastModified();
+
+        try
+        {
+            String curLine;
+
+            /*Reads all of the scores in the high scores file*/
+            while((curLine = reader.readLine()) != null)
+            {
+                int space = curLine.indexOf(" ");
+
+                try
+                {
+                    batch.add(new ScoreRecord(Integer.parseInt(curLine.substring(0, space)),
+                        curLine.substring(space + 1), modified, 0, 0, ScoreRecord.kUnknownBoard));
+                }
+                catch(RuntimeException e)
+                {
+                    continue;
+                }
+                /*Writes the scores a batch at a time*/
+                if(batch.size() == kImportBatch)
+                {
+                    log.appendAll(batch);
+                    batch.clear();
+                }
+            }
+            log.appendAll(batch);
+        }
+        finally
         {
-            String curLine = scan.nextLine();
-            scoresList.add(new HighScore(Integer.parseInt(curLine.substring(0,
-                 curLine.indexOf(" "))), curLine.substring(curLine.indexOf(" ") + 1,
-                      curLine.length())));
+            reader.close();
         }
-        
-        scan.close();
-        Collections.sort(scoresList, new HighScoreComparator());
-        
+    }
+
+    /** Formats the scores of a hall of fame, one per line.
+     *
+     * @param hall the hall of fame
+     * @return the scores, with a blank line after them
+     */
+    private static String formatHallOfFame(HallOfFame hall)
+    {
+        StringBuilder highScoresString = new StringBuilder();
+
         /*Gets the top 5 best scores*/
-        for(int scoreNdx = 0; scoreNdx < kHallSize && scoreNdx < scoresList.size();
-            scoreNdx++)
+        for(int scoreNdx = 0; scoreNdx < hall.size(); scoreNdx++)
         {
-            HighScore curScore = scoresList.get(scoreNdx);
-            highScoresString = highScoresString.concat(String.format("%10s",
+            HighScore curScore = hall.get(scoreNdx);
+            highScoresString.append(String.format("%10s",
                  curScore.getScore()) + "    " + curScore.getName() + "\n");
         }
-        highScoresString = highScoresString.concat("\n");
-        return highScoresString;
+        highScoresString.append("\n");
+        return highScoresString.toString();
     }
-    
-    /** Return a string representation of the top five high scores. 
+
+    /** Return a string representation of the top five high scores.
      *  @return string is the top scores, one per line, with the
      *  score and name (in that order), separated by one or more blanks.
      *  Name is twenty characters max.  Leading blanks are allowed.
      */
-    public static String getHighScores()
+    public static synchronized String getHighScores()
     {
-        File highScoresFile = new File(kHallOfFamePath);
         String highScoresString = "";
-        
+
         try
         {
-            /*Gets the high scores if the file exists*/
-            if (highScoresFile.exists())
+            ScoreLog log = openScoreLog();
+
+            /*Gets the high scores if any were ever saved*/
+            if (!log.isEmpty())
             {
-                highScoresString = parseAndSortHighScores(highScoresFile);
+                long stamp = log.getStamp();
+
+                /*Reads the score log again only if it changed since it was read*/
+                if(loadedScores == null || stamp != loadedStamp)
+                {
+                    loadedScores = null;
+                    hallOfFame.clear();
+                    log.top(hallOfFame);
+                    loadedScores = formatHallOfFame(hallOfFame);
+                    loadedStamp = stamp;
+                }
+                highScoresString = loadedScores;
             }
         }
         catch(Exception e)
         {
+            loadedScores = null;
             highScoresString = "";
         }
-        
+
+        return highScoresString;
+    }
+
+    /** Return a string representation of the top five high scores of one
+     *  board, in the same form as the overall high scores.  The scores are
+     *  looked up in the leaderboard index, so no other scores are read.
+     *
+     * @param boardSize the size of the board
+     * @param colors the number of tile colors of the board
+     * @param boardNumber the number of the board
+     * @return string is the top scores of the board, one per line
+     */
+    public static synchronized String getHighScores(int boardSize, int colors, int boardNumber)
+    {
+        String highScoresString = "";
+
+        try
+        {
+            HallOfFame board = new HallOfFame(kHallSize);
+
+            openScoreLog().topForBoard(boardSize, colors, boardNumber, board);
+            /*Formats the board's scores if it has any*/
+            if(board.size() > 0)
+            {
+                highScoresString = formatHallOfFame(board);
+            }
+        }
+        catch(Exception e)
+        {
+            highScoresString = "";
+        }
+
         return highScoresString;
     }
 }
@@ -0,0 +1,314 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * This class is the on-disk index of the best scores of each board, for
+ * the per-board leaderboards.  A board is its size, its number of colors
+ * and its number.  The file holds a table of the boards that have scores,
+ * sorted by board, and after it the best scores of each board in score log
+ * records.  The file is read into memory and a board is found by binary
+ * search of the table, so a lookup reads a few entries of the table and
+ * the board's own scores, however many scores there are.
+ *
+ * The index is built from the scores of the score log's segment, each time
+ * a segment is written, and records which logs the segment holds so that a
+ * stale index is noticed.  The builder of an index also serves as the
+ * leaderboards of the scores not yet compacted.
+ *
+ * @author Erik Owen
+ * @version 1
+ */
+public class LeaderboardIndex
+{
+    /*Best scores kept for each board*/
+    public final static int kEntriesPerBoard = 10;
+    private final static int kMagic = 0x434C4249;
+    private final static short kVersion = 2;
+    /*Magic, version, entries per board, last log held and board count*/
+    private final static int kHeaderBytes = 24;
+    /*Board, where its scores start and how many there are*/
+    private final static int kTableEntry = 16;
+    private ByteBuffer index;
+    private long generation;
+    private int boardCount;
+
+    /**
+     * Constructor for objects of class LeaderboardIndex
+     *
+     * @param index the contents of the index file
+     */
+    private LeaderboardIndex(ByteBuffer index)
+    {
+        this.index = index;
+        this.generation = index.getLong(8);
+        this.boardCount = index.getInt(16);
+    }
+
+    /**
+     * Gets the key a board is indexed by.
+     *
+     * @param boardSize the size of the board
+     * @param colors the number of tile colors of the board
+     * @param boardNumber the number of the board
+     *
+     * @return the key
+     */
+    public static long key(int boardSize, int colors, int boardNumber)
+    {
+        return (long) boardSize << 40 | (long) colors << 32 | (boardNumber & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Opens an index file.
+     *
+     * @param file the index file
+     *
+     * @return the index, null if there is none or it is not an index
+     *
+     * @throws IOException if the file can not be read
+     */
+    public static LeaderboardIndex open(File file) throws IOException
+    {
+        ByteBuffer index = ScoreLog.readFile(file, Long.MAX_VALUE);
+
+        /*Only a file with the header of an index is an index*/
+        if(index == null || index.limit() < kHeaderBytes || index.getInt(0) != kMagic
+            || index.getShort(4) != kVersion
+            || index.limit() < kHeaderBytes + (long) index.getInt(16) * kTableEntry)
+        {
+            return null;
+        }
+
+        return new LeaderboardIndex(index);
+    }
+
+    /**
+     * Getter method for the number of the last score log the index was built
+     * from
+     *
+     * @return the number of the log
+     */
+    public long getGeneration()
+    {
+        return generation;
+    }
+
+    /**
+     * Getter method for the number of boards with scores
+     *
+     * @return the number of boards
+     */
+    public int getBoardCount()
+    {
+        return boardCount;
+    }
+
+    /**
+     * Offers the best scores of a board to a hall of fame.
+     *
+     * @param key the key of the board
+     * @param hall the hall of fame
+     */
+    public void top(long key, HallOfFame hall)
+    {
+        int low = 0;
+        int high = boardCount - 1;
+
+        /*Binary searches the table for the board*/
+        while(low <= high)
+        {
+            int middle = (low + high) >>> 1;
+            long found = index.getLong(kHeaderBytes + middle * kTableEntry);
+
+            /*Halves the part of the table the board can be in*/
+            if(found < key)
+            {
+                low = middle + 1;
+            }
+            else if(found > key)
+            {
+                high = middle - 1;
+            }
+            else
+            {
+                int pos = index.getInt(kHeaderBytes + middle * kTableEntry + 8);
+                int count = index.getInt(kHeaderBytes + middle * kTableEntry + 12);
+
+                /*Offers each score of the board*/
+                for(int entryNdx = 0; entryNdx < count; entryNdx++)
+                {
+                    ScoreRecord record = ScoreLog.decode(index, pos);
+
+                    /*A damaged entry ends the board's scores*/
+                    if(record == null)
+                    {
+                        return;
+                    }
+                    hall.offer(record);
+                    pos += ScoreLog.recordLength(index, pos);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Collects the best scores of each board and writes them to an index.
+     */
+    public static class Builder
+    {
+        private TreeMap<Long, HallOfFame> boards;
+
+        /**
+         * Constructor for objects of class Builder
+         */
+        public Builder()
+        {
+            this.boards = new TreeMap<Long, HallOfFame>();
+        }
+
+        /**
+         * Offers a score to the leaderboard of its board.  Scores whose
+         * board is not known are left out.
+         *
+         * @param record the score
+         */
+        public void offer(ScoreRecord record)
+        {
+            long key;
+            HallOfFame hall;
+
+            /*Only scores of a known board have a leaderboard*/
+            if(record.getBoardNumber() == ScoreRecord.kUnknownBoard)
+            {
+                return;
+            }
+            key = key(record.getBoardSize(), record.getColors(), record.getBoardNumber());
+            hall = boards.get(key);
+            /*Makes the leaderboard of a board's first score*/
+            if(hall == null)
+            {
+                hall = new HallOfFame(kEntriesPerBoard);
+                boards.put(key, hall);
+            }
+            hall.offer(record);
+        }
+
+        /**
+         * Offers the best scores collected for a board to a hall of fame.
+         *
+         * @param key the key of the board
+         * @param hall the hall of fame
+         */
+        public void top(long key, HallOfFame hall)
+        {
+            HallOfFame board = boards.get(key);
+
+            /*Offers each score of the board, if it has any*/
+            for(int rank = 0; board != null && rank < board.size(); rank++)
+            {
+                hall.offer(board.get(rank));
+            }
+        }
+
+        /**
+         * Makes the index in memory, without writing it.
+         *
+         * @param generation the number of the last score log the scores came
+         * from
+         *
+         * @return the index
+         */
+        public LeaderboardIndex toIndex(long generation)
+        {
+            return new LeaderboardIndex(encode(generation));
+        }
+
+        /**
+         * Writes the index.
+         *
+         * @param file the index file, which is replaced
+         * @param generation the number of the last score log the scores came
+         * from
+         *
+         * @throws IOException if the file can not be written
+         */
+        public void write(File file, long generation) throws IOException
+        {
+            ByteBuffer buffer = encode(generation);
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+            try
+            {
+                /*Writes until the whole buffer is out*/
+                while(buffer.hasRemaining())
+                {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            finally
+            {
+                channel.close();
+            }
+        }
+
+        /**
+         * Lays out the index.
+         *
+         * @param generation the number of the last score log the scores came
+         * from
+         *
+         * @return the index, ready to be read
+         */
+        private ByteBuffer encode(long generation)
+        {
+            int length = kHeaderBytes + boards.size() * kTableEntry;
+            ByteBuffer buffer;
+            int pos;
+
+            /*Adds up the lengths of the scores*/
+            for(HallOfFame hall : boards.values())
+            {
+                /*Adds the length of each score of the board*/
+                for(int rank = 0; rank < hall.size(); rank++)
+                {
+                    length += ScoreLog.encodedLength((ScoreRecord) hall.get(rank));
+                }
+            }
+            buffer = ByteBuffer.allocate(length);
+            buffer.putInt(kMagic).putShort(kVersion).putShort((short) kEntriesPerBoard)
+                .putLong(generation).putInt(boards.size()).putInt(0);
+
+            pos = kHeaderBytes + boards.size() * kTableEntry;
+            /*Writes the table entry of each board*/
+            for(Map.Entry<Long, HallOfFame> board : boards.entrySet())
+            {
+                buffer.putLong(board.getKey()).putInt(pos).putInt(board.getValue().size());
+                /*Moves past the scores of the board*/
+                for(int rank = 0; rank < board.getValue().size(); rank++)
+                {
+                    pos += ScoreLog.encodedLength((ScoreRecord) board.getValue().get(rank));
+                }
+            }
+            /*Writes the scores of each board, best first*/
+            for(HallOfFame hall : boards.values())
+            {
+                /*Writes each score of the board*/
+                for(int rank = 0; rank < hall.size(); rank++)
+                {
+                    ScoreLog.encode((ScoreRecord) hall.get(rank), buffer);
+                }
+            }
+            buffer.flip();
+
+            return buffer;
+        }
+    }
+}
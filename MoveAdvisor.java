@@ -0,0 +1,558 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class suggests the next move of a collapse game, for hints and for
+ * tools that play without a player.  It runs a Monte Carlo tree search from
+ * the position for as long as it is given, and the move it suggests is the
+ * one the search looked at the most, which is the one with the fewest moves
+ * expected by the end of the game.  A tile left on a stuck board counts as
+ * one more move, so clearing the board is always worth more than ending
+ * early.
+ *
+ * Every core grows its own tree from its own copy of the position, playing
+ * random games below the tree and undoing them to get back to the root, and
+ * the statistics of the root moves are added together when time is up.  The
+ * search can be stopped at any time and still has an answer, since the
+ * clock is checked before every playout and between the moves of every
+ * random game, and a game cut short before any tree counted a playout still
+ * counts with each tile left as a move.  A longer budget only makes the
+ * answer better.
+ *
+ * @author Erik Owen
+ * @version 1
+ */
+public class MoveAdvisor
+{
+    /*How much the search favors moves it has looked at less*/
+    private final static double kExploration = 0.3;
+    private final static long kNanosPerMilli = 1000000L;
+    private CollapseGame position;
+    private int tilesAtRoot;
+    /*The moves of the position, as row << 16 | col*/
+    private int[] clicks;
+    private long[] visits;
+    private double[] totalMoves;
+    private int bestMove;
+    private LongAdder playouts;
+    private long seed;
+    private long deadline;
+    private volatile boolean stopped;
+    private long elapsedNanos;
+
+    /**
+     * Constructor for objects of class MoveAdvisor.  The position is copied,
+     * so the game can keep being played while the advisor thinks.
+     *
+     * @param game the game in the position to suggest a move for
+     */
+    public MoveAdvisor(CollapseGame game)
+    {
+        GroupList groups = new GroupList();
+        int moveNdx = 0;
+
+        this.position = new CollapseGame(game);
+        this.tilesAtRoot = position.getTilesLeft();
+        this.seed = position.positionHash();
+        position.listGroups(groups);
+        this.clicks = new int[groups.getMoveCount()];
+        this.visits = new long[clicks.length];
+        this.totalMoves = new double[clicks.length];
+        this.bestMove = -1;
+
+        /*Keeps the groups of two or more tiles, which are the moves*/
+        for(int groupNdx = 0; groupNdx < groups.getGroupCount(); groupNdx++)
+        {
+            /*Lone tiles can not be clicked*/
+            if(groups.getGroupSize(groupNdx) > 1)
+            {
+                clicks[moveNdx++] = groups.getGroupRow(groupNdx) << 16
+                    | groups.getGroupColumn(groupNdx);
+            }
+        }
+    }
+
+    /**
+     * Searches for the best move on every core until the time budget runs
+     * out or the search is stopped.  It can be called again to keep
+     * searching, but each call starts new trees and replaces the statistics
+     * of the last one.
+     *
+     * @param timeBudgetMillis how long the search may run
+     *
+     * @return true if the position has a move to suggest
+     */
+    public boolean think(long timeBudgetMillis)
+    {
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool();
+        int workers = pool.getParallelism();
+        TreeTask[] tasks = new TreeTask[workers];
+
+        deadline = start + timeBudgetMillis * kNanosPerMilli;
+        stopped = false;
+        playouts = new LongAdder();
+        java.util.Arrays.fill(visits, 0);
+        java.util.Arrays.fill(totalMoves, 0);
+        bestMove = -1;
+
+        /*Only searches if the position has a move*/
+        if(clicks.length > 0)
+        {
+            /*Gives each worker its own tree and random numbers*/
+            for(int taskNdx = 0; taskNdx < workers; taskNdx++)
+            {
+                tasks[taskNdx] = new TreeTask(
+                    CollapseGame.mix(seed + (taskNdx + 1) * CollapseGame.kGamma));
+            }
+
+            try
+            {
+                pool.invoke(new RecursiveAction()
+                {
+                    @Override
+                    protected void compute()
+                    {
+                        invokeAll(tasks);
+                    }
+                });
+            }
+            finally
+            {
+                pool.shutdown();
+            }
+
+            /*Adds the root statistics of every tree together*/
+            for(int taskNdx = 0; taskNdx < workers; taskNdx++)
+            {
+                /*Iterates through each move of the root*/
+                for(int moveNdx = 0; moveNdx < clicks.length; moveNdx++)
+                {
+                    visits[moveNdx] += tasks[taskNdx].rootVisits[moveNdx];
+                    totalMoves[moveNdx] += tasks[taskNdx].rootTotals[moveNdx];
+                }
+            }
+        }
+        else
+        {
+            pool.shutdown();
+        }
+
+        /*The move looked at the most is the best, the fewer moves breaking ties*/
+        for(int moveNdx = 0; moveNdx < clicks.length; moveNdx++)
+        {
+            /*Keeps the move if it beats the best so far*/
+            if(bestMove < 0 || visits[moveNdx] > visits[bestMove]
+                || visits[moveNdx] == visits[bestMove]
+                && getExpectedMoves(moveNdx) < getExpectedMoves(bestMove))
+            {
+                bestMove = moveNdx;
+            }
+        }
+
+        elapsedNanos = System.nanoTime() - start;
+        return bestMove >= 0;
+    }
+
+    /**
+     * Stops a search that is running, from any thread.  The search returns
+     * with the best move it has found so far.
+     */
+    public void stop()
+    {
+        stopped = true;
+    }
+
+    /**
+     * Getter method for the row of the suggested move
+     *
+     * @return the row to click, -1 if there is no move
+     */
+    public int getBestRow()
+    {
+        return bestMove < 0 ? -1 : getMoveRow(bestMove);
+    }
+
+    /**
+     * Getter method for the column of the suggested move
+     *
+     * @return the column to click, -1 if there is no move
+     */
+    public int getBestColumn()
+    {
+        return bestMove < 0 ? -1 : getMoveColumn(bestMove);
+    }
+
+    /**
+     * Getter method for the index of the suggested move
+     *
+     * @return which move is suggested, -1 if there is no move
+     */
+    public int getBestMove()
+    {
+        return bestMove;
+    }
+
+    /**
+     * Getter method for the number of moves of the position
+     *
+     * @return the number of groups of two or more tiles
+     */
+    public int getMoveCount()
+    {
+        return clicks.length;
+    }
+
+    /**
+     * Gets the row of a move of the position.
+     *
+     * @param ndx which move, from 0 to getMoveCount() - 1
+     *
+     * @return the row to click
+     */
+    public int getMoveRow(int ndx)
+    {
+        return clicks[ndx] >>> 16;
+    }
+
+    /**
+     * Gets the column of a move of the position.
+     *
+     * @param ndx which move, from 0 to getMoveCount() - 1
+     *
+     * @return the column to click
+     */
+    public int getMoveColumn(int ndx)
+    {
+        return clicks[ndx] & 0xFFFF;
+    }
+
+    /**
+     * Gets how many random games the last search played after a move.
+     *
+     * @param ndx which move, from 0 to getMoveCount() - 1
+     *
+     * @return the number of visits of the move
+     */
+    public long getVisits(int ndx)
+    {
+        return visits[ndx];
+    }
+
+    /**
+     * Gets the number of moves the game is expected to end with after a
+     * move, counting the moves already taken and a move for every tile a
+     * stuck game leaves.
+     *
+     * @param ndx which move, from 0 to getMoveCount() - 1
+     *
+     * @return the mean of the games played after the move, 0 if it was not
+     * visited
+     */
+    public double getExpectedMoves(int ndx)
+    {
+        return visits[ndx] == 0 ? 0 : totalMoves[ndx] / visits[ndx];
+    }
+
+    /**
+     * Getter method for the number of random games the last search played
+     *
+     * @return the number of playouts
+     */
+    public long getPlayoutCount()
+    {
+        return playouts == null ? 0 : playouts.sum();
+    }
+
+    /**
+     * Getter method for how fast the last search played
+     *
+     * @return the playouts played per second
+     */
+    public long getPlayoutsPerSecond()
+    {
+        return elapsedNanos == 0 ? 0 : getPlayoutCount() * 1000 * kNanosPerMilli / elapsedNanos;
+    }
+
+    /**
+     * A position of a tree, reached by a move from its parent.
+     */
+    private static class Node
+    {
+        private int click;
+        /*The positions after each move, null until the node is expanded*/
+        private Node[] children;
+        private long visits;
+        private double totalMoves;
+
+        /**
+         * Constructor for objects of class Node
+         *
+         * @param click the move that reaches the position, as row << 16 | col
+         */
+        Node(int click)
+        {
+            this.click = click;
+        }
+    }
+
+    /**
+     * The tree one worker grows until time is up.
+     */
+    private class TreeTask extends RecursiveAction
+    {
+        private long random;
+        private CollapseGame game;
+        private GroupList groups;
+        private Node[] path;
+        private long[] rootVisits;
+        private double[] rootTotals;
+
+        /**
+         * Constructor for objects of class TreeTask
+         *
+         * @param random the first random number of the worker
+         */
+        TreeTask(long random)
+        {
+            this.random = random;
+            this.groups = new GroupList();
+            this.rootVisits = new long[clicks.length];
+            this.rootTotals = new double[clicks.length];
+        }
+
+        /**
+         * Grows the tree one playout at a time until time is up.
+         */
+        @Override
+        protected void compute()
+        {
+            Node root = new Node(-1);
+
+            game = new CollapseGame(position);
+            path = new Node[tilesAtRoot / 2 + 2];
+            root.children = new Node[clicks.length];
+
+            /*The root moves are the same for every tree*/
+            for(int moveNdx = 0; moveNdx < clicks.length; moveNdx++)
+            {
+                root.children[moveNdx] = new Node(clicks[moveNdx]);
+            }
+
+            /*Plays until time is up, and until some tree counted a playout*/
+            while(playouts.sum() == 0 || !timeUp())
+            {
+                /*Counts the playouts that added to the tree*/
+                if(playout(root))
+                {
+                    playouts.increment();
+                }
+            }
+
+            /*Keeps the statistics of the root moves to be added together*/
+            for(int moveNdx = 0; moveNdx < clicks.length; moveNdx++)
+            {
+                rootVisits[moveNdx] = root.children[moveNdx].visits;
+                rootTotals[moveNdx] = root.children[moveNdx].totalMoves;
+            }
+        }
+
+        /**
+         * Determines if the search should stop.
+         *
+         * @return true if the search was stopped or the time budget ran out
+         */
+        private boolean timeUp()
+        {
+            return stopped || System.nanoTime() >= deadline;
+        }
+
+        /**
+         * Walks down the tree to a position not looked at yet, plays a random
+         * game from it, and adds how it ended to every node on the way.  The
+         * random game is cut short when time is up, and then only adds to the
+         * tree if no tree has counted a playout yet, so there is an answer.
+         *
+         * @param root the node of the position being advised on
+         *
+         * @return true if the playout added to the tree
+         */
+        private boolean playout(Node root)
+        {
+            Node node = root;
+            int depth = 0;
+            int played = 0;
+            boolean counted = true;
+
+            path[depth++] = root;
+            /*Walks down while the node has been expanded and has moves*/
+            while(node.children != null && node.children.length > 0)
+            {
+                node = select(node);
+                game.takeTurn(node.click >>> 16, node.click & 0xFFFF);
+                path[depth++] = node;
+                played++;
+            }
+
+            /*Expands a node the second time it is reached*/
+            if(node.visits > 0 && node.children == null)
+            {
+                expand(node);
+            }
+
+            /*Plays random moves while anything can still be removed*/
+            while(!game.isGameOver() && !game.isStuck())
+            {
+                /*Gives up the game once time is up*/
+                if(timeUp())
+                {
+                    counted = false;
+                    break;
+                }
+                random += CollapseGame.kGamma;
+                game.listGroups(groups);
+                int groupNdx = pickGroup(CollapseGame.mix(random));
+
+                game.takeTurn(groups.getGroupRow(groupNdx), groups.getGroupColumn(groupNdx));
+                played++;
+            }
+
+            //A game cut short only counts while there is no answer, with each
+            //tile left as a move, as if it were stuck
+            counted |= playouts.sum() == 0;
+            /*Adds the result to every node on the path*/
+            for(int pathNdx = 0; counted && pathNdx < depth; pathNdx++)
+            {
+                path[pathNdx].visits++;
+                path[pathNdx].totalMoves += game.getNumberOfMoves() + game.getTilesLeft();
+            }
+
+            /*Undoes the moves, or copies the position again if the journal lost some*/
+            while(played > 0 && game.undo())
+            {
+                played--;
+            }
+            if(played > 0)
+            {
+                game = new CollapseGame(position);
+            }
+
+            return counted;
+        }
+
+        /**
+         * Picks the move of a node to walk down, by the upper confidence bound
+         * of how few moves the games after it took.  Moves never looked at
+         * are picked first.
+         *
+         * @param node the node being walked down
+         *
+         * @return the child to walk to
+         */
+        private Node select(Node node)
+        {
+            double logVisits = Math.log(node.visits);
+            double bestBound = Double.NEGATIVE_INFINITY;
+            Node best = null;
+
+            /*Iterates through each move of the node*/
+            for(Node child : node.children)
+            {
+                /*A move never looked at is always looked at first*/
+                if(child.visits == 0)
+                {
+                    return child;
+                }
+
+                //The reward is the share of the root's tiles not spent on
+                //moves, so it stays between 0 and 1 for every board size
+                double reward = 1 - child.totalMoves / child.visits / (tilesAtRoot + 1);
+                double bound = reward + kExploration * Math.sqrt(logVisits / child.visits);
+
+                /*Keeps the child with the highest bound*/
+                if(bound > bestBound)
+                {
+                    bestBound = bound;
+                    best = child;
+                }
+            }
+
+            return best;
+        }
+
+        /**
+         * Adds a child for every move of a node's position, which is the
+         * position the game is in.
+         *
+         * @param node the node being expanded
+         */
+        private void expand(Node node)
+        {
+            int childNdx = 0;
+
+            game.listGroups(groups);
+            node.children = new Node[groups.getMoveCount()];
+            /*Adds a child for every group of two or more tiles*/
+            for(int groupNdx = 0; groupNdx < groups.getGroupCount(); groupNdx++)
+            {
+                /*Lone tiles are not moves*/
+                if(groups.getGroupSize(groupNdx) > 1)
+                {
+                    node.children[childNdx++] = new Node(groups.getGroupRow(groupNdx) << 16
+                        | groups.getGroupColumn(groupNdx));
+                }
+            }
+        }
+
+        /**
+         * Picks one of the groups of two or more tiles at random.
+         *
+         * @param number a random number
+         *
+         * @return the index of the group picked
+         */
+        private int pickGroup(long number)
+        {
+            int pick = (int) ((number >>> 1) % groups.getMoveCount());
+            int groupNdx = 0;
+
+            /*Walks to the picked move, skipping the lone tiles*/
+            while(groups.getGroupSize(groupNdx) < 2 || pick-- > 0)
+            {
+                groupNdx++;
+            }
+
+            return groupNdx;
+        }
+    }
+
+    /**
+     * Plays a board with the advisor choosing every move, and prints the
+     * moves it chose and how it did.
+     *
+     * @param args board size, board number and milliseconds per move, which
+     * default to 8 1 and 1000
+     */
+    public static void main(String[] args)
+    {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int boardNum = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        long budget = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+        CollapseGame game = new CollapseGame(size, boardNum);
+
+        /*Asks for a move while the game can still go on*/
+        while(!game.isGameOver() && !game.isStuck())
+        {
+            MoveAdvisor advisor = new MoveAdvisor(game);
+
+            advisor.think(budget);
+            System.out.printf("%d-%d: expected %.2f moves, %d playouts, %d/s%n",
+                advisor.getBestRow(), advisor.getBestColumn(),
+                advisor.getExpectedMoves(advisor.getBestMove()),
+                advisor.getPlayoutCount(), advisor.getPlayoutsPerSecond());
+            game.takeTurn(advisor.getBestRow(), advisor.getBestColumn());
+        }
+        System.out.println("Moves: " + game.getNumberOfMoves() + " Tiles left: " + game.getTilesLeft());
+    }
+}
@@ -0,0 +1,59 @@
+
+
+/**
+ * The test class MoveAdvisorTest.
+ *
+ * @author  Erik Owen
+ * @version 1
+ */
+public class MoveAdvisorTest extends junit.framework.TestCase
+{
+    /**
+     * Default constructor for test class MoveAdvisorTest
+     */
+    public MoveAdvisorTest()
+    {
+    }
+
+    /**
+     * Tests that the suggested move is a group of the board and that every
+     * move was looked at
+     */
+    public void testSuggestion()
+    {
+        CollapseGame game = new CollapseGame(6, 3);
+        MoveAdvisor advisor = new MoveAdvisor(game);
+        long visits = 0;
+
+        assertTrue(advisor.think(100));
+        assertTrue(advisor.getMoveCount() > 0);
+        assertTrue(game.getGroupSize(advisor.getBestRow(), advisor.getBestColumn()) > 1);
+        for(int move = 0; move < advisor.getMoveCount(); move++)
+        {
+            assertTrue(advisor.getVisits(move) > 0);
+            assertTrue(advisor.getExpectedMoves(move) > 0);
+            visits += advisor.getVisits(move);
+        }
+        assertEquals(advisor.getPlayoutCount(), visits);
+        assertEquals(0, game.getNumberOfMoves());
+    }
+
+    /**
+     * Tests that the advisor finds the only move that clears a board
+     */
+    public void testEndgame()
+    {
+        CollapseGame game = new CollapseGame(4, 2);
+        CollapseSolver solver = new CollapseSolver(4, 2);
+
+        solver.solve(0);
+        for(int move = 0; move < solver.getMoveCount() - 1; move++)
+        {
+            game.takeTurn(solver.getMoveRow(move), solver.getMoveColumn(move));
+        }
+        MoveAdvisor advisor = new MoveAdvisor(game);
+        assertTrue(advisor.think(50));
+        game.takeTurn(advisor.getBestRow(), advisor.getBestColumn());
+        assertTrue(game.isGameOver());
+    }
+}
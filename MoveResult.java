@@ -0,0 +1,270 @@
+/**
+ * This class describes what a single turn changed on the board: the cells
+ * that were removed, the tiles that fell and the columns that moved towards
+ * the center.  All coordinates are screen coordinates, the falls use the
+ * column the tile was in before the columns moved.
+ *
+ * A MoveResult is meant to be reused for every turn, so its arrays only
+ * grow and are never reallocated once they are big enough for the board.
+ *
+ * @author Erik Owen
+ * @version 1
+ */
+public class MoveResult
+{
+    private boolean validTurn;
+    private boolean stuck;
+    private int tilesLeft;
+    private int removedCount;
+    private int[] removedRows;
+    private int[] removedCols;
+    private int fallCount;
+    private int[] fallCols;
+    private int[] fallFromRows;
+    private int[] fallToRows;
+    private int columnMoveCount;
+    private int[] columnsFrom;
+    private int[] columnsTo;
+
+    /**
+     * Constructor for objects of class MoveResult
+     */
+    public MoveResult()
+    {
+        this.removedRows = new int[0];
+        this.removedCols = new int[0];
+        this.fallCols = new int[0];
+        this.fallFromRows = new int[0];
+        this.fallToRows = new int[0];
+        this.columnsFrom = new int[0];
+        this.columnsTo = new int[0];
+    }
+
+    /**
+     * Empties the result before a turn, growing the arrays if the board
+     * is bigger than any board this result has been used for.
+     *
+     * @param boardSize the size of the board the turn is taken on
+     */
+    protected void clear(int boardSize)
+    {
+        /*Only grows the arrays when they are too small*/
+        if(removedRows.length < boardSize * boardSize)
+        {
+            removedRows = new int[boardSize * boardSize];
+            removedCols = new int[boardSize * boardSize];
+            fallCols = new int[boardSize * boardSize];
+            fallFromRows = new int[boardSize * boardSize];
+            fallToRows = new int[boardSize * boardSize];
+            columnsFrom = new int[boardSize];
+            columnsTo = new int[boardSize];
+        }
+
+        validTurn = false;
+        stuck = false;
+        tilesLeft = 0;
+        removedCount = 0;
+        fallCount = 0;
+        columnMoveCount = 0;
+    }
+
+    /**
+     * Records the outcome of the turn.
+     *
+     * @param valid true if the turn was taken on a tile
+     * @param tiles the number of tiles left after the turn
+     * @param noMovesLeft true if tiles are left but none can be removed
+     */
+    protected void finish(boolean valid, int tiles, boolean noMovesLeft)
+    {
+        this.validTurn = valid;
+        this.tilesLeft = tiles;
+        this.stuck = noMovesLeft;
+    }
+
+    /**
+     * Records a cell that was removed.
+     *
+     * @param row the row of the cell
+     * @param col the column of the cell
+     */
+    protected void addRemoved(int row, int col)
+    {
+        removedRows[removedCount] = row;
+        removedCols[removedCount] = col;
+        removedCount++;
+    }
+
+    /**
+     * Records a tile that fell down its column.
+     *
+     * @param col the column of the tile
+     * @param fromRow the row the tile fell from
+     * @param toRow the row the tile landed on
+     */
+    protected void addFall(int col, int fromRow, int toRow)
+    {
+        fallCols[fallCount] = col;
+        fallFromRows[fallCount] = fromRow;
+        fallToRows[fallCount] = toRow;
+        fallCount++;
+    }
+
+    /**
+     * Records a column that moved towards the center.
+     *
+     * @param fromCol the column it was in
+     * @param toCol the column it moved to
+     */
+    protected void addColumnMove(int fromCol, int toCol)
+    {
+        columnsFrom[columnMoveCount] = fromCol;
+        columnsTo[columnMoveCount] = toCol;
+        columnMoveCount++;
+    }
+
+    /**
+     * Determines if the turn was taken on a tile of the board.
+     *
+     * @return true if the turn counted as a move
+     */
+    public boolean isValidTurn()
+    {
+        return this.validTurn;
+    }
+
+    /**
+     * Determines if the turn left the board stuck, with tiles that can no
+     * longer be removed.
+     *
+     * @return true if no moves are left after the turn
+     */
+    public boolean isStuck()
+    {
+        return this.stuck;
+    }
+
+    /**
+     * Getter method for the number of tiles left after the turn
+     *
+     * @return the number of tiles left
+     */
+    public int getTilesLeft()
+    {
+        return this.tilesLeft;
+    }
+
+    /**
+     * Getter method for the number of cells the turn removed
+     *
+     * @return the number of removed cells
+     */
+    public int getRemovedCount()
+    {
+        return this.removedCount;
+    }
+
+    /**
+     * Gets the row of a removed cell.
+     *
+     * @param ndx which removed cell, from 0 to getRemovedCount() - 1
+     *
+     * @return the row of the cell
+     */
+    public int getRemovedRow(int ndx)
+    {
+        return removedRows[ndx];
+    }
+
+    /**
+     * Gets the column of a removed cell.
+     *
+     * @param ndx which removed cell, from 0 to getRemovedCount() - 1
+     *
+     * @return the column of the cell
+     */
+    public int getRemovedColumn(int ndx)
+    {
+        return removedCols[ndx];
+    }
+
+    /**
+     * Getter method for the number of tiles that fell
+     *
+     * @return the number of falls
+     */
+    public int getFallCount()
+    {
+        return this.fallCount;
+    }
+
+    /**
+     * Gets the column of a tile that fell, before the columns moved.
+     *
+     * @param ndx which fall, from 0 to getFallCount() - 1
+     *
+     * @return the column of the tile
+     */
+    public int getFallColumn(int ndx)
+    {
+        return fallCols[ndx];
+    }
+
+    /**
+     * Gets the row a tile fell from.
+     *
+     * @param ndx which fall, from 0 to getFallCount() - 1
+     *
+     * @return the row the tile was in
+     */
+    public int getFallFromRow(int ndx)
+    {
+        return fallFromRows[ndx];
+    }
+
+    /**
+     * Gets the row a tile landed on.
+     *
+     * @param ndx which fall, from 0 to getFallCount() - 1
+     *
+     * @return the row the tile is in now
+     */
+    public int getFallToRow(int ndx)
+    {
+        return fallToRows[ndx];
+    }
+
+    /**
+     * Getter method for the number of columns that moved
+     *
+     * @return the number of column moves
+     */
+    public int getColumnMoveCount()
+    {
+        return this.columnMoveCount;
+    }
+
+    /**
+     * Gets the column a moved column came from.
+     *
+     * @param ndx which column move, from 0 to getColumnMoveCount() - 1
+     *
+     * @return the column it was in
+     */
+    public int getColumnMovedFrom(int ndx)
+    {
+        return columnsFrom[ndx];
+    }
+
+    /**
+     * Gets the column a moved column went to.
+     *
+     * @param ndx which column move, from 0 to getColumnMoveCount() - 1
+     *
+     * @return the column it is in now
+     */
+    public int getColumnMovedTo(int ndx)
+    {
+        return columnsTo[ndx];
+    }
+}
@@ -0,0 +1,22 @@
+/**
+ * This interface picks the moves of a playout, for the games PlayoutRunner
+ * plays without a player.
+ *
+ * @author Erik Owen
+ * @version 1
+ */
+public interface PlayoutPolicy
+{
+    /**
+     * Picks the next move of a game.
+     *
+     * @param game the game being played, which must not be changed
+     * @param groups the groups of the game, at least one of them a move
+     * @param random a new random number for every move, for policies that
+     * need one
+     *
+     * @return the index in groups of the group to remove, which must have
+     * two or more tiles
+     */
+    int chooseGroup(CollapseGame game, GroupList groups, long random);
+}
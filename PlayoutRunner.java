@@ -0,0 +1,379 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class plays a large number of games without a player, on every core,
+ * to rate how hard the boards are.  Every board of a range is played a
+ * number of times by a policy, random by default, until it is cleared or
+ * stuck, and the final move counts of each board are collected.
+ *
+ * Each worker thread keeps one game that is reset in place for every
+ * playout, so the games are never rebuilt.
+ *
+ * @author Erik Owen
+ * @version 1
+ */
+public class PlayoutRunner
+{
+    /*Playouts a task plays itself instead of splitting*/
+    private final static int kChunkSize = 64;
+    private final static long kNanosPerSecond = 1000000000L;
+    private int boardSize;
+    private int colors;
+    private int firstBoard;
+    private int lastBoard;
+    private int gamesPerBoard;
+    private long seed;
+    private PlayoutPolicy policy;
+    private ThreadLocal<Playout> playouts;
+    /*Games per final move count, by (board - firstBoard) * bins + moves*/
+    private AtomicIntegerArray histogram;
+    private AtomicIntegerArray cleared;
+    private int bins;
+    private LongAdder moves;
+    private long elapsedNanos;
+
+    /**
+     * Constructor for objects of class PlayoutRunner, which plays random
+     * moves.
+     *
+     * @param boardSize the size of the boards
+     * @param firstBoard the first board number played
+     * @param lastBoard the last board number played
+     * @param gamesPerBoard how many times each board is played
+     * @param seed the seed the random moves are drawn from
+     */
+    public PlayoutRunner(int boardSize, int firstBoard, int lastBoard,
+        int gamesPerBoard, long seed)
+    {
+        this(boardSize, firstBoard, lastBoard, gamesPerBoard, seed, new RandomPolicy());
+    }
+
+    /**
+     * Constructor for objects of class PlayoutRunner
+     *
+     * @param boardSize the size of the boards
+     * @param firstBoard the first board number played
+     * @param lastBoard the last board number played
+     * @param gamesPerBoard how many times each board is played
+     * @param seed the seed of the random numbers handed to the policy
+     * @param policy picks the moves of every game
+     */
+    public PlayoutRunner(int boardSize, int firstBoard, int lastBoard,
+        int gamesPerBoard, long seed, PlayoutPolicy policy)
+    {
+        this(boardSize, CollapseGame.kDefaultColors, firstBoard, lastBoard,
+            gamesPerBoard, seed, policy);
+    }
+
+    /**
+     * Constructor for objects of class PlayoutRunner with a number of colors
+     *
+     * @param boardSize the size of the boards
+     * @param colors the number of tile colors of the boards
+     * @param firstBoard the first board number played
+     * @param lastBoard the last board number played
+     * @param gamesPerBoard how many times each board is played
+     * @param seed the seed of the random numbers handed to the policy
+     * @param policy picks the moves of every game
+     */
+    public PlayoutRunner(int boardSize, int colors, int firstBoard, int lastBoard,
+        int gamesPerBoard, long seed, PlayoutPolicy policy)
+    {
+        this.boardSize = boardSize;
+        this.colors = colors;
+        this.firstBoard = firstBoard;
+        this.lastBoard = lastBoard;
+        this.gamesPerBoard = gamesPerBoard;
+        this.seed = seed;
+        this.policy = policy;
+        this.bins = boardSize * boardSize / 2 + 2;
+        this.playouts = new ThreadLocal<Playout>();
+    }
+
+    /**
+     * Plays every game on every core and collects the results.
+     */
+    public void run()
+    {
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool();
+        int boards = lastBoard - firstBoard + 1;
+
+        histogram = new AtomicIntegerArray(boards * bins);
+        cleared = new AtomicIntegerArray(boards);
+        moves = new LongAdder();
+
+        try
+        {
+            pool.invoke(new PlayoutTask(0, (long) boards * gamesPerBoard));
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        elapsedNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Getter method for the number of games the last run played
+     *
+     * @return the number of games
+     */
+    public long getGamesPlayed()
+    {
+        return (long) (lastBoard - firstBoard + 1) * gamesPerBoard;
+    }
+
+    /**
+     * Getter method for the number of moves the last run played
+     *
+     * @return the number of moves
+     */
+    public long getMovesPlayed()
+    {
+        return moves == null ? 0 : moves.sum();
+    }
+
+    /**
+     * Getter method for how fast the last run played games
+     *
+     * @return the games played per second
+     */
+    public double getGamesPerSecond()
+    {
+        return elapsedNanos == 0 ? 0 : getGamesPlayed() * (double) kNanosPerSecond / elapsedNanos;
+    }
+
+    /**
+     * Getter method for how fast the last run played moves
+     *
+     * @return the moves played per second
+     */
+    public double getMovesPerSecond()
+    {
+        return elapsedNanos == 0 ? 0 : getMovesPlayed() * (double) kNanosPerSecond / elapsedNanos;
+    }
+
+    /**
+     * Gets how many games of a board ended after each number of moves.
+     *
+     * @param boardNumber the board, from the first to the last board played
+     *
+     * @return the number of games by final move count
+     */
+    public int[] getMoveCounts(int boardNumber)
+    {
+        int[] counts = new int[bins];
+        int offset = (boardNumber - firstBoard) * bins;
+
+        /*Copies the histogram of the board*/
+        for(int moveNdx = 0; moveNdx < bins; moveNdx++)
+        {
+            counts[moveNdx] = histogram.get(offset + moveNdx);
+        }
+
+        return counts;
+    }
+
+    /**
+     * Gets how many games of a board cleared every tile.
+     *
+     * @param boardNumber the board, from the first to the last board played
+     *
+     * @return the number of games that were won
+     */
+    public int getGamesCleared(int boardNumber)
+    {
+        return cleared.get(boardNumber - firstBoard);
+    }
+
+    /**
+     * The game and the group list a worker thread plays all of its games on.
+     */
+    private class Playout
+    {
+        private CollapseGame game;
+        private GroupList groups;
+
+        /**
+         * Constructor for objects of class Playout
+         */
+        Playout()
+        {
+            this.game = new CollapseGame(boardSize, firstBoard, colors);
+            this.groups = new GroupList();
+        }
+
+        /**
+         * Plays one game of a board until it is cleared or stuck.
+         *
+         * @param boardNumber the board being played
+         * @param stream the random numbers of this game
+         *
+         * @return the number of moves the game took
+         */
+        int play(int boardNumber, long stream)
+        {
+            long random = stream;
+
+            game.reset(boardNumber);
+            /*Keeps playing while anything can still be removed*/
+            while(!game.isGameOver() && !game.isStuck())
+            {
+                random += CollapseGame.kGamma;
+                int groupNdx = policy.chooseGroup(game, game.listGroups(groups),
+                    CollapseGame.mix(random));
+
+                game.takeTurn(groups.getGroupRow(groupNdx), groups.getGroupColumn(groupNdx));
+            }
+
+            return game.getNumberOfMoves();
+        }
+    }
+
+    /**
+     * A range of the playouts, numbered board by board.
+     */
+    private class PlayoutTask extends RecursiveAction
+    {
+        private long from;
+        private long to;
+
+        /**
+         * Constructor for objects of class PlayoutTask
+         *
+         * @param from the first playout of the range
+         * @param to the playout after the last one of the range
+         */
+        PlayoutTask(long from, long to)
+        {
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Plays the range, or splits it in half for other workers to steal.
+         */
+        @Override
+        protected void compute()
+        {
+            /*Small ranges are played by this worker*/
+            if(to - from <= kChunkSize)
+            {
+                Playout playout = playouts.get();
+                long movesPlayed = 0;
+
+                /*Makes the worker's game the first time the worker plays*/
+                if(playout == null)
+                {
+                    playout = new Playout();
+                    playouts.set(playout);
+                }
+
+                /*Plays each game of the range*/
+                for(long gameNdx = from; gameNdx < to; gameNdx++)
+                {
+                    int board = (int) (gameNdx / gamesPerBoard);
+                    int gameMoves = playout.play(firstBoard + board,
+                        CollapseGame.mix(seed + gameNdx * CollapseGame.kGamma));
+
+                    histogram.incrementAndGet(board * bins + Math.min(gameMoves, bins - 1));
+                    /*Counts the games that were won*/
+                    if(playout.game.isGameOver())
+                    {
+                        cleared.incrementAndGet(board);
+                    }
+                    movesPlayed += gameMoves;
+                }
+                moves.add(movesPlayed);
+            }
+            else
+            {
+                long middle = (from + to) >>> 1;
+
+                invokeAll(new PlayoutTask(from, middle), new PlayoutTask(middle, to));
+            }
+        }
+    }
+
+    /**
+     * Plays a uniformly random move.
+     */
+    static class RandomPolicy implements PlayoutPolicy
+    {
+        /**
+         * Picks one of the groups of two or more tiles at random.
+         *
+         * @param game the game being played
+         * @param groups the groups of the game
+         * @param random a random number
+         *
+         * @return the index of the group picked
+         */
+        @Override
+        public int chooseGroup(CollapseGame game, GroupList groups, long random)
+        {
+            int pick = (int) ((random >>> 1) % groups.getMoveCount());
+            int groupNdx = 0;
+
+            /*Walks to the picked move, skipping the lone tiles*/
+            while(groups.getGroupSize(groupNdx) < 2 || pick-- > 0)
+            {
+                groupNdx++;
+            }
+
+            return groupNdx;
+        }
+    }
+
+    /**
+     * Plays random games of a range of boards and prints how fast they were
+     * played and how many moves each board took.
+     *
+     * @param args board size, first board, last board, games per board and
+     * colors, which default to 8 1 5000 200 and 3
+     */
+    public static void main(String[] args)
+    {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int first = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        int last = args.length > 2 ? Integer.parseInt(args[2]) : 5000;
+        int games = args.length > 3 ? Integer.parseInt(args[3]) : 200;
+        int colors = args.length > 4 ? Integer.parseInt(args[4]) : CollapseGame.kDefaultColors;
+        PlayoutRunner runner = new PlayoutRunner(size, colors, first, last, games, 1,
+            new RandomPolicy());
+
+        runner.run();
+        System.out.printf("%d games, %d moves: %.0f games/s, %.0f moves/s%n",
+            runner.getGamesPlayed(), runner.getMovesPlayed(),
+            runner.getGamesPerSecond(), runner.getMovesPerSecond());
+
+        /*Prints the fewest, mean and most moves of each board*/
+        for(int boardNum = first; boardNum <= last; boardNum++)
+        {
+            int[] counts = runner.getMoveCounts(boardNum);
+            long total = 0;
+            int fewest = -1;
+            int most = 0;
+
+            /*Iterates through each final move count*/
+            for(int moveNdx = 0; moveNdx < counts.length; moveNdx++)
+            {
+                /*Only move counts some game ended with matter*/
+                if(counts[moveNdx] > 0)
+                {
+                    fewest = fewest < 0 ? moveNdx : fewest;
+                    most = moveNdx;
+                    total += (long) counts[moveNdx] * moveNdx;
+                }
+            }
+            System.out.printf("%d: fewest %d mean %.2f most %d cleared %d/%d%n",
+                boardNum, fewest, total / (double) games, most,
+                runner.getGamesCleared(boardNum), games);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+
+
+/**
+ * The test class PlayoutRunnerTest.
+ *
+ * @author  Erik Owen
+ * @version 1
+ */
+public class PlayoutRunnerTest extends junit.framework.TestCase
+{
+    /**
+     * Default constructor for test class PlayoutRunnerTest
+     */
+    public PlayoutRunnerTest()
+    {
+    }
+
+    /**
+     * Tests that every game is counted once in its board's move counts
+     */
+    public void testMoveCounts()
+    {
+        PlayoutRunner runner = new PlayoutRunner(6, 10, 19, 50, 3);
+        runner.run();
+        assertEquals(500, runner.getGamesPlayed());
+        assertTrue(runner.getMovesPerSecond() > 0);
+        
+        long moves = 0;
+        for(int boardNum = 10; boardNum <= 19; boardNum++)
+        {
+            int[] counts = runner.getMoveCounts(boardNum);
+            int games = 0;
+            
+            for(int moveNdx = 0; moveNdx < counts.length; moveNdx++)
+            {
+                games += counts[moveNdx];
+                moves += (long) counts[moveNdx] * moveNdx;
+            }
+            assertEquals(50, games);
+            assertTrue(runner.getGamesCleared(boardNum) <= games);
+        }
+        assertEquals(runner.getMovesPlayed(), moves);
+    }
+
+    /**
+     * Tests that the same seed plays the same games
+     */
+    public void testSameSeed()
+    {
+        PlayoutRunner runner = new PlayoutRunner(5, 1, 4, 30, 9);
+        PlayoutRunner runner2 = new PlayoutRunner(5, 1, 4, 30, 9);
+        runner.run();
+        runner2.run();
+        
+        assertEquals(runner.getMovesPlayed(), runner2.getMovesPlayed());
+        for(int boardNum = 1; boardNum <= 4; boardNum++)
+        {
+            assertTrue(java.util.Arrays.equals(runner.getMoveCounts(boardNum),
+                runner2.getMoveCounts(boardNum)));
+        }
+    }
+}
@@ -8,6 +8,7 @@ import org.ini4j.Ini;
 public class Preferences {
 
 	private final static String kPreferencesPath = "collapse/preferences.ini";
+	private final static int kDefaultColors = 3;
 	
 	public Preferences()
 	{
@@ -24,4 +25,26 @@ public class Preferences {
         
         return prefSize;
     }
+    
+    /**
+     * Reads the number of tile colors a board has, from the count in the
+     * Colors section.
+     * 
+     * @return the number of colors, 3 if the preferences do not say
+     */
+    public static int getPreferenceColors() throws IOException
+    {
+        Ini ini = new Ini();
+        int colors = kDefaultColors;
+        
+        ini.load(new FileReader(new File(kPreferencesPath)));
+        Ini.Section section = ini.get("Colors");
+        /*Only a count that is there replaces the default*/
+        if(section != null && section.get("count") != null)
+        {
+            colors = Integer.parseInt(section.get("count"));
+        }
+        
+        return colors;
+    }
 }
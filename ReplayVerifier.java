@@ -0,0 +1,291 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class checks replays, to confirm the scores they are sent with.  A
+ * replay is played through takeTurn from the start of its board, and it is
+ * good only if every move was a turn that could be taken, the board was
+ * cleared by the last move and not before, and it took as many moves as the
+ * score says.  A stored score is checked again by reading its replay back
+ * from the replay file.
+ *
+ * Batches of replays are checked on every core.  Each worker thread keeps
+ * one game that is reset in place for every replay, so games are only built
+ * when a replay is of another board size or number of colors.
+ *
+ * @author Erik Owen
+ * @version 1
+ */
+public class ReplayVerifier
+{
+    /*Replays a task checks itself instead of splitting*/
+    private final static int kChunkSize = 256;
+    private final static long kNanosPerSecond = 1000000000L;
+    private ThreadLocal<CollapseGame> games;
+
+    /**
+     * Constructor for objects of class ReplayVerifier
+     */
+    public ReplayVerifier()
+    {
+        this.games = new ThreadLocal<CollapseGame>();
+    }
+
+    /**
+     * Checks a replay against the score it was sent with.
+     *
+     * @param replay the replay
+     * @param claimedMoves the number of moves the score says the game took
+     *
+     * @return true if the replay clears its board in that many moves
+     */
+    public boolean verify(GameReplay replay, int claimedMoves)
+    {
+        int size = replay.getBoardSize();
+        int moves = replay.getMoveCount();
+        CollapseGame game;
+
+        /*Only replays of boards that can be played can be checked*/
+        if(moves != claimedMoves || size < 1 || size > CollapseGame.kMaxSize
+            || replay.getColors() < CollapseGame.kMinColors
+            || replay.getColors() > CollapseGame.kMaxColors || replay.getBoardNumber() < 0)
+        {
+            return false;
+        }
+
+        game = gameFor(size, replay.getColors());
+        game.reset(replay.getBoardNumber());
+        /*Takes each turn of the replay, none of them after the board is clear*/
+        for(int moveNdx = 0; moveNdx < moves; moveNdx++)
+        {
+            /*A turn that can not be taken spoils the replay*/
+            if(game.isGameOver()
+                || !game.takeTurn(replay.getRow(moveNdx), replay.getColumn(moveNdx)))
+            {
+                return false;
+            }
+        }
+
+        return game.isGameOver() && game.getNumberOfMoves() == claimedMoves;
+    }
+
+    /**
+     * Checks a stored score again against the replay it was saved with.
+     *
+     * @param record the score
+     * @param replayPath the replay file the score's replay was appended to
+     *
+     * @return true if the replay is of the score's board and clears it in
+     * the score's number of moves
+     */
+    public boolean verify(ScoreRecord record, String replayPath)
+    {
+        GameReplay replay;
+
+        /*Only a score saved with a replay can be checked*/
+        if(record.getReplayOffset() == ScoreRecord.kNoReplay)
+        {
+            return false;
+        }
+        try
+        {
+            replay = GameReplay.readAt(replayPath, record.getReplayOffset());
+        }
+        catch(IOException e)
+        {
+            return false;
+        }
+        catch(IllegalArgumentException e)
+        {
+            return false;
+        }
+
+        return replay.getBoardSize() == record.getBoardSize()
+            && replay.getColors() == record.getColors()
+            && replay.getBoardNumber() == record.getBoardNumber()
+            && verify(replay, record.getScore());
+    }
+
+    /**
+     * Checks a batch of replays on every core.
+     *
+     * @param replays the replays
+     * @param claimedMoves the number of moves of the score each replay was
+     * sent with
+     *
+     * @return whether each replay is good
+     */
+    public boolean[] verifyAll(GameReplay[] replays, int[] claimedMoves)
+    {
+        boolean[] verified = new boolean[replays.length];
+
+        ForkJoinPool.commonPool().invoke(
+            new VerifyTask(replays, claimedMoves, verified, 0, replays.length));
+        return verified;
+    }
+
+    /**
+     * Gets the game of the current thread, made anew only if the board size
+     * or number of colors changed.
+     *
+     * @param size the size of the board
+     * @param colors the number of tile colors of the board
+     *
+     * @return the game, on some board of that size and colors
+     */
+    private CollapseGame gameFor(int size, int colors)
+    {
+        CollapseGame game = games.get();
+
+        /*Makes a game when the thread has none of this size and colors*/
+        if(game == null || game.getBoardSize() != size || game.getColors() != colors)
+        {
+            game = new CollapseGame(size, 1, colors);
+            games.set(game);
+        }
+
+        return game;
+    }
+
+    /**
+     * A range of a batch of replays.
+     */
+    private class VerifyTask extends RecursiveAction
+    {
+        private GameReplay[] replays;
+        private int[] claimedMoves;
+        private boolean[] verified;
+        private int from;
+        private int to;
+
+        /**
+         * Constructor for objects of class VerifyTask
+         *
+         * @param replays the replays of the batch
+         * @param claimedMoves the claimed moves of each replay
+         * @param verified where whether each replay is good is put
+         * @param from the first replay of the range
+         * @param to the replay after the last one of the range
+         */
+        VerifyTask(GameReplay[] replays, int[] claimedMoves, boolean[] verified,
+            int from, int to)
+        {
+            this.replays = replays;
+            this.claimedMoves = claimedMoves;
+            this.verified = verified;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Checks the range, or splits it in half for other workers to steal.
+         */
+        @Override
+        protected void compute()
+        {
+            /*Small ranges are checked by this worker*/
+            if(to - from <= kChunkSize)
+            {
+                /*Checks each replay of the range*/
+                for(int replayNdx = from; replayNdx < to; replayNdx++)
+                {
+                    verified[replayNdx] = verify(replays[replayNdx], claimedMoves[replayNdx]);
+                }
+            }
+            else
+            {
+                int middle = (from + to) >>> 1;
+
+                invokeAll(new VerifyTask(replays, claimedMoves, verified, from, middle),
+                    new VerifyTask(replays, claimedMoves, verified, middle, to));
+            }
+        }
+    }
+
+    /**
+     * Records a replay of a random game that cleared each board of a range,
+     * then reads them all back from their bytes and checks them, and prints
+     * how fast that was.
+     *
+     * @param args board size, first board, last board and colors, which
+     * default to 8 1 5000 and 3
+     */
+    public static void main(String[] args)
+    {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int first = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        int last = args.length > 2 ? Integer.parseInt(args[2]) : 5000;
+        int colors = args.length > 3 ? Integer.parseInt(args[3]) : CollapseGame.kDefaultColors;
+        List<GameReplay> recorded = new ArrayList<GameReplay>();
+        PlayoutPolicy policy = new PlayoutRunner.RandomPolicy();
+        CollapseGame game = new CollapseGame(size, first, colors);
+        GroupList groups = new GroupList();
+        java.util.Random random = new java.util.Random(1);
+        int bytes = 0;
+
+        /*Plays each board until a random game clears it, a few times at most*/
+        for(int boardNum = first; boardNum <= last; boardNum++)
+        {
+            game.reset(boardNum);
+            /*Starts over until the board is cleared or the tries run out*/
+            for(int tryNdx = 0; tryNdx < 64 && !game.isGameOver(); tryNdx++)
+            {
+                game.reset(boardNum);
+                /*Keeps playing while anything can still be removed*/
+                while(!game.isGameOver() && !game.isStuck())
+                {
+                    int groupNdx = policy.chooseGroup(game, game.listGroups(groups), random.nextLong());
+
+                    game.takeTurn(groups.getGroupRow(groupNdx), groups.getGroupColumn(groupNdx));
+                }
+            }
+            /*Keeps the games that were won*/
+            if(game.isGameOver())
+            {
+                recorded.add(game.getReplay());
+                bytes += recorded.get(recorded.size() - 1).getEncodedLength();
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(bytes);
+        ReplayVerifier verifier = new ReplayVerifier();
+
+        /*Writes every replay into one buffer*/
+        for(GameReplay replay : recorded)
+        {
+            replay.write(buffer);
+        }
+        System.out.printf("%d replays in %d bytes%n", recorded.size(), bytes);
+
+        /*Reads and checks the replays a few times, so the later runs are warmed up*/
+        for(int runNdx = 0; runNdx < 5; runNdx++)
+        {
+            long start = System.nanoTime();
+            GameReplay[] replays = new GameReplay[recorded.size()];
+            int[] claimed = new int[replays.length];
+            int good = 0;
+
+            buffer.rewind();
+            /*Reads each replay back*/
+            for(int replayNdx = 0; replayNdx < replays.length; replayNdx++)
+            {
+                replays[replayNdx] = GameReplay.read(buffer);
+                claimed[replayNdx] = replays[replayNdx].getMoveCount();
+            }
+            boolean[] verified = verifier.verifyAll(replays, claimed);
+            long elapsed = System.nanoTime() - start;
+
+            /*Counts the good replays*/
+            for(boolean isGood : verified)
+            {
+                good += isGood ? 1 : 0;
+            }
+            System.out.printf("%d of %d good: %.0f replays/s%n", good, replays.length,
+                replays.length * (double) kNanosPerSecond / elapsed);
+        }
+    }
+}
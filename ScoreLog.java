@@ -0,0 +1,1225 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+
+/**
+ * This class stores high scores as binary records.  New scores are appended
+ * to a log file, and now and then the log is compacted, on a background
+ * thread, into a segment file that holds every older score sorted from best
+ * to worst.  The best scores are then the first records of the segment and
+ * the few records of the log.
+ *
+ * Every record is
+ *
+ *   crc32 (4) | name length (2) | score (4) | timestamp (8) |
+ *   board number (4) | board size (2) | colors (1) | replay offset (8) |
+ *   name (UTF-8)
+ *
+ * with the checksum covering everything after it.  A write that was cut off
+ * leaves a record whose checksum does not match, which reading skips by
+ * looking for the next good record a byte further on, so a torn write only
+ * loses its own record.  The torn end of the log is cut off when the log is
+ * opened again.  Segments are written to a temporary file and moved into
+ * place, so a segment is never torn.
+ *
+ * The logs are numbered.  Compaction seals the log being written and starts
+ * the next one, merges the sealed logs into a new segment, and then deletes
+ * them.  The segment records the number of the last log it holds, so logs
+ * left behind by a compaction that was interrupted are deleted when the
+ * score log is opened.
+ *
+ * Processes can share the files.  Appends, reads, and the sealing and
+ * swapping steps of a compaction hold a lock on part of a lock file, and
+ * every append goes to the newest log, so no process writes a log after a
+ * compaction sealed it.  A compaction also holds a lock on another part of
+ * the lock file the whole time, so only one runs at a time.  Only one score
+ * log of a directory should be open in a process, as a process can not
+ * wait on its own file locks.  The files are read into memory rather than
+ * mapped, so a compaction can replace and delete them on every system.
+ *
+ * Each compaction also writes a leaderboard index of the segment, which
+ * holds the best scores of each board, and the best scores of each board in
+ * the logs are kept in memory, so the leaderboard of a board is found
+ * without reading every score.
+ *
+ * @author Erik Owen
+ * @version 1
+ */
+public class ScoreLog
+{
+    /*Bytes of a record before its name*/
+    private final static int kRecordHeader = 33;
+    private final static int kSegmentMagic = 0x43534547;
+    private final static short kSegmentVersion = 2;
+    /*Magic, version, reserved, last log merged and record count*/
+    private final static int kSegmentHeader = 24;
+    private final static String kSegmentName = "scores.seg";
+    private final static String kLogPrefix = "scores-";
+    private final static String kLogSuffix = ".log";
+    private final static String kTempSuffix = ".tmp";
+    private final static String kIndexName = "leaderboards.idx";
+    private final static String kLockName = "scores.lock";
+    /*Bytes of the lock file locked for the logs and for compaction*/
+    private final static long kLogRegion = 0;
+    private final static long kCompactRegion = 1;
+    /*Bytes of the segment first read for its best scores*/
+    private final static int kTopBytes = 1 << 16;
+    /*The log is compacted once it grows past this*/
+    private final static long kCompactBytes = 1L << 20;
+    /*Bytes merged records are written out in*/
+    private final static int kWriteBuffer = 1 << 16;
+    /*Longest name kept, so every record fits the buffer of a merge*/
+    final static int kMaxNameBytes = kWriteBuffer - kRecordHeader;
+    private File dir;
+    private FileChannel lockChannel;
+    private FileChannel active;
+    private long activeNumber;
+    /*Serializes compactions, which run without the lock of the log*/
+    private final Object compactLock = new Object();
+    private ExecutorService compactor;
+    private boolean compactionQueued;
+    //Best scores of each board in the segment, and in the logs it does not
+    //hold, by the key of the board
+    private LeaderboardIndex leaderboards;
+    private LeaderboardIndex.Builder loggedBoards;
+    /*Stamp of the score files the leaderboards were read from*/
+    private long boardsStamp;
+
+    /**
+     * Constructor for objects of class ScoreLog, which opens the score files
+     * of a directory and repairs what an interrupted write or compaction
+     * left behind.
+     *
+     * @param dir the directory of the score files
+     *
+     * @throws IOException if the files can not be read or repaired
+     */
+    public ScoreLog(File dir) throws IOException
+    {
+        FileLock lock;
+
+        this.dir = dir;
+        this.lockChannel = FileChannel.open(new File(dir, kLockName).toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        lock = lockChannel.lock(kCompactRegion, 1, false);
+        try
+        {
+            //No compaction is running, so the temporary files were left by
+            //one that was interrupted
+            new File(dir, kSegmentName + kTempSuffix).delete();
+            new File(dir, kIndexName + kTempSuffix).delete();
+            rebuildIndex();
+        }
+        finally
+        {
+            lock.release();
+        }
+
+        lock = lockChannel.lock(kLogRegion, 1, false);
+        try
+        {
+            long merged = readSegmentLog();
+
+            /*Drops the logs the segment already holds*/
+            for(long number : listLogs())
+            {
+                /*Logs up to the last one merged are in the segment*/
+                if(number <= merged)
+                {
+                    logFile(number).delete();
+                }
+            }
+            activeNumber = newestLog();
+            repairTail(logFile(activeNumber));
+            loadBoards();
+        }
+        finally
+        {
+            lock.release();
+        }
+    }
+
+    /**
+     * Determines if no score was ever stored.
+     *
+     * @return true if there is no segment and no log
+     */
+    public synchronized boolean isEmpty()
+    {
+        return !new File(dir, kSegmentName).exists() && listLogs().isEmpty();
+    }
+
+    /**
+     * Appends a score to the log.
+     *
+     * @param record the score
+     *
+     * @throws IOException if the log can not be written
+     */
+    public void append(ScoreRecord record) throws IOException
+    {
+        appendAll(Collections.singletonList(record));
+    }
+
+    /**
+     * Appends scores to the newest log in one write, and starts a compaction
+     * in the background if the log has grown too big.
+     *
+     * @param records the scores
+     *
+     * @throws IOException if the log can not be written
+     */
+    public synchronized void appendAll(List<ScoreRecord> records) throws IOException
+    {
+        int length = 0;
+        ByteBuffer buffer;
+        FileLock lock;
+        long logSize;
+
+        /*Adds up the lengths of the records*/
+        for(ScoreRecord record : records)
+        {
+            length += encodedLength(record);
+        }
+        buffer = ByteBuffer.allocate(length);
+        /*Encodes each record*/
+        for(ScoreRecord record : records)
+        {
+            encode(record, buffer);
+        }
+        buffer.flip();
+
+        lock = lockChannel.lock(kLogRegion, 1, false);
+        try
+        {
+            boolean current = getStamp() == boardsStamp;
+            long newest = newestLog();
+
+            /*Opens the newest log, which another process may have started*/
+            if(active == null || activeNumber != newest)
+            {
+                closeActive();
+                activeNumber = newest;
+                active = FileChannel.open(logFile(activeNumber).toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+            }
+            /*Writes until the whole buffer is out*/
+            while(buffer.hasRemaining())
+            {
+                active.write(buffer);
+            }
+            logSize = active.size();
+            /*Adds each record to the leaderboard of its board*/
+            for(ScoreRecord record : records)
+            {
+                loggedBoards.offer(record);
+            }
+            /*The leaderboards stay current unless another process changed the files*/
+            if(current)
+            {
+                boardsStamp = getStamp();
+            }
+        }
+        finally
+        {
+            lock.release();
+        }
+
+        /*Compacts a log that grew too big, once*/
+        if(logSize > kCompactBytes && !compactionQueued)
+        {
+            compactInBackground();
+        }
+    }
+
+    /**
+     * Reads the best scores: the first of the segment, which is sorted, and
+     * every score of the logs.
+     *
+     * @param hall the hall of fame the scores are offered to, which keeps
+     * the best of them
+     *
+     * @throws IOException if the files can not be read
+     */
+    public synchronized void top(HallOfFame hall) throws IOException
+    {
+        FileLock lock = lockChannel.lock(kLogRegion, 1, false);
+
+        try
+        {
+            ByteBuffer segment = readSegment(kTopBytes);
+            List<ScoreRecord> best = new ArrayList<ScoreRecord>();
+
+            firstRecords(segment, hall.capacity(), best);
+            /*Reads the whole segment if its first bytes held too few of its records*/
+            if(segment != null && best.size() < Math.min(hall.capacity(), segment.getLong(16)))
+            {
+                segment = readSegment(Long.MAX_VALUE);
+                best.clear();
+                firstRecords(segment, hall.capacity(), best);
+            }
+            /*Offers the best scores of the segment*/
+            for(ScoreRecord record : best)
+            {
+                hall.offer(record);
+            }
+            /*Offers every score of the logs*/
+            for(long number : listLogs())
+            {
+                /*Only logs the segment does not hold are read*/
+                if(segment == null || number > segment.getLong(8))
+                {
+                    scanFile(logFile(number), hall, null);
+                }
+            }
+        }
+        finally
+        {
+            lock.release();
+        }
+    }
+
+    /**
+     * Reads the best scores of one board, from the leaderboard index and the
+     * leaderboards of the logs, without reading the other scores.  The
+     * leaderboards are read again first if another process changed the
+     * score files.
+     *
+     * @param boardSize the size of the board
+     * @param colors the number of tile colors of the board
+     * @param boardNumber the number of the board
+     * @param hall the hall of fame the scores are offered to, which keeps
+     * the best of them
+     *
+     * @throws IOException if the files can not be read
+     */
+    public synchronized void topForBoard(int boardSize, int colors, int boardNumber,
+        HallOfFame hall) throws IOException
+    {
+        long key = LeaderboardIndex.key(boardSize, colors, boardNumber);
+
+        /*Reads the leaderboards again if the files changed under them*/
+        if(getStamp() != boardsStamp)
+        {
+            FileLock lock = lockChannel.lock(kLogRegion, 1, false);
+
+            try
+            {
+                loadBoards();
+            }
+            finally
+            {
+                lock.release();
+            }
+        }
+
+        /*Offers the board's scores in the segment, if there is an index*/
+        if(leaderboards != null)
+        {
+            leaderboards.top(key, hall);
+        }
+        loggedBoards.top(key, hall);
+    }
+
+    /**
+     * Reads every score, in no particular order.
+     *
+     * @param records the list the scores are added to
+     *
+     * @throws IOException if the files can not be read
+     */
+    public synchronized void readAll(List<ScoreRecord> records) throws IOException
+    {
+        FileLock lock = lockChannel.lock(kLogRegion, 1, false);
+
+        try
+        {
+            ByteBuffer segment = readSegment(Long.MAX_VALUE);
+
+            /*Reads the segment, then the logs it does not hold*/
+            if(segment != null)
+            {
+                scan(segment, kSegmentHeader, null, records);
+            }
+            for(long number : listLogs())
+            {
+                /*Only logs the segment does not hold are read*/
+                if(segment == null || number > segment.getLong(8))
+                {
+                    scanFile(logFile(number), null, records);
+                }
+            }
+        }
+        finally
+        {
+            lock.release();
+        }
+    }
+
+    /**
+     * Gets a number that changes whenever the score files change, also when
+     * another process changed them.
+     *
+     * @return the stamp of the score files
+     */
+    public synchronized long getStamp()
+    {
+        File segment = new File(dir, kSegmentName);
+        long stamp = segment.length() * 31 + segment.lastModified();
+
+        /*Mixes in the number and length of each log*/
+        for(long number : listLogs())
+        {
+            File log = logFile(number);
+
+            stamp = (stamp * 31 + number) * 31 + log.length();
+            stamp = stamp * 31 + log.lastModified();
+        }
+
+        return stamp;
+    }
+
+    /**
+     * Compacts the logs into the segment on a background thread, unless a
+     * compaction is already waiting to run.
+     */
+    public synchronized void compactInBackground()
+    {
+        /*Makes the compaction thread the first time it is needed*/
+        if(compactor == null)
+        {
+            compactor = Executors.newSingleThreadExecutor(new ThreadFactory()
+            {
+                public Thread newThread(Runnable task)
+                {
+                    Thread thread = new Thread(task, "score-compaction");
+
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        compactionQueued = true;
+        compactor.execute(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    compact();
+                }
+                catch(IOException e)
+                {
+                    e.printStackTrace();
+                }
+            }
+        });
+    }
+
+    /**
+     * Seals the newest log and merges every sealed log into a new sorted
+     * segment.  Scores can be appended while the merge runs.
+     *
+     * @throws IOException if the files can not be read or written
+     */
+    public void compact() throws IOException
+    {
+        synchronized(compactLock)
+        {
+            FileLock compacting = lockChannel.lock(kCompactRegion, 1, false);
+
+            try
+            {
+                compactSealed();
+            }
+            finally
+            {
+                compacting.release();
+            }
+        }
+    }
+
+    /**
+     * Does the work of compact, while no other compaction can run.
+     *
+     * @throws IOException if the files can not be read or written
+     */
+    private void compactSealed() throws IOException
+    {
+        long sealed;
+        ByteBuffer segment;
+        long merged;
+        List<ScoreRecord> logged = new ArrayList<ScoreRecord>();
+        File temp = new File(dir, kSegmentName + kTempSuffix);
+        File indexTemp = new File(dir, kIndexName + kTempSuffix);
+        LeaderboardIndex.Builder builder = new LeaderboardIndex.Builder();
+        LeaderboardIndex index;
+
+        /*Starts a new log so the sealed ones no longer change*/
+        synchronized(this)
+        {
+            FileLock lock = lockChannel.lock(kLogRegion, 1, false);
+
+            try
+            {
+                boolean scored = false;
+
+                compactionQueued = false;
+                sealed = newestLog();
+                merged = readSegmentLog();
+                /*Looks for a log the segment does not hold with a score in it*/
+                for(long number : listLogs())
+                {
+                    scored |= number > merged && logFile(number).length() > 0;
+                }
+                /*Only logs with scores in them need merging*/
+                if(!scored)
+                {
+                    return;
+                }
+                closeActive();
+                activeNumber = sealed + 1;
+                //Makes the next log, so every process appends to it from now on
+                logFile(activeNumber).createNewFile();
+            }
+            finally
+            {
+                lock.release();
+            }
+        }
+
+        segment = readSegment(Long.MAX_VALUE);
+        /*Reads the sealed logs, which the segment does not hold*/
+        for(long number : listLogs())
+        {
+            /*Only the sealed logs are merged*/
+            if(number > merged && number <= sealed)
+            {
+                scanFile(logFile(number), null, logged);
+            }
+        }
+        Collections.sort(logged, new HighScoreComparator());
+        writeSegment(temp, segment, logged, sealed, builder);
+        builder.write(indexTemp, sealed);
+        index = LeaderboardIndex.open(indexTemp);
+
+        /*Puts the new segment in place of the logs it holds*/
+        synchronized(this)
+        {
+            FileLock lock = lockChannel.lock(kLogRegion, 1, false);
+
+            try
+            {
+                try
+                {
+                    Files.move(temp.toPath(), new File(dir, kSegmentName).toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+                catch(IOException e)
+                {
+                    //The sealed logs still hold their scores, so nothing is
+                    //lost and the next compaction merges them again
+                    temp.delete();
+                    indexTemp.delete();
+                    throw e;
+                }
+                try
+                {
+                    Files.move(indexTemp.toPath(), new File(dir, kIndexName).toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+                catch(IOException e)
+                {
+                    //An index older than the segment is built again when
+                    //the score log is next opened
+                    indexTemp.delete();
+                }
+                leaderboards = index;
+                /*Deletes the logs the new segment holds*/
+                for(long number : listLogs())
+                {
+                    //Only the sealed logs are in the segment, and one that
+                    //can not be deleted yet is skipped by every read and
+                    //deleted when the score log is next opened
+                    if(number <= sealed)
+                    {
+                        logFile(number).delete();
+                    }
+                }
+                readLoggedBoards(sealed);
+                boardsStamp = getStamp();
+            }
+            finally
+            {
+                lock.release();
+            }
+        }
+    }
+
+    /**
+     * Closes the log being written and the lock file.
+     *
+     * @throws IOException if the files can not be closed
+     */
+    public synchronized void close() throws IOException
+    {
+        closeActive();
+        lockChannel.close();
+    }
+
+    /**
+     * Merges the sorted records of the old segment and the sorted records of
+     * the logs into a new segment.
+     *
+     * @param file the file of the new segment
+     * @param segment the old segment, null if there is none
+     * @param logged the records of the logs, sorted
+     * @param sealed the number of the last log merged
+     * @param builder the leaderboard index each record is offered to
+     *
+     * @throws IOException if the segment can not be written
+     */
+    private void writeSegment(File file, ByteBuffer segment, List<ScoreRecord> logged,
+        long sealed, LeaderboardIndex.Builder builder) throws IOException
+    {
+        HighScoreComparator comparator = new HighScoreComparator();
+        ByteBuffer buffer = ByteBuffer.allocate(kWriteBuffer);
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        int pos = segment == null ? 0 : skipTo(segment, kSegmentHeader);
+        int logNdx = 0;
+        long count = 0;
+
+        try
+        {
+            ScoreRecord next = recordAt(segment, pos);
+
+            channel.position(kSegmentHeader);
+            /*Writes the better of the next segment and log records each time*/
+            while(next != null || logNdx < logged.size())
+            {
+                ScoreRecord record;
+
+                /*Takes the segment's record unless the log's is better*/
+                if(next != null && (logNdx == logged.size()
+                    || comparator.compare(next, logged.get(logNdx)) <= 0))
+                {
+                    record = next;
+                    pos = skipTo(segment, pos + recordLength(segment, pos));
+                    next = recordAt(segment, pos);
+                }
+                else
+                {
+                    record = logged.get(logNdx++);
+                }
+
+                /*Writes out the buffer when the record does not fit*/
+                if(buffer.remaining() < encodedLength(record))
+                {
+                    flush(channel, buffer);
+                }
+                encode(record, buffer);
+                builder.offer(record);
+                count++;
+            }
+            flush(channel, buffer);
+
+            buffer.putInt(kSegmentMagic).putShort(kSegmentVersion).putShort((short) 0)
+                .putLong(sealed).putLong(count);
+            buffer.flip();
+            /*Writes the header last, so a segment that was cut off has none*/
+            while(buffer.hasRemaining())
+            {
+                channel.write(buffer, kSegmentHeader - buffer.remaining());
+            }
+            channel.force(true);
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+
+    /**
+     * Gets the good record that starts at a place in a segment.
+     *
+     * @param segment the segment, null if there is none
+     * @param pos where the record starts, the limit if there are no more
+     *
+     * @return the record, null if there are no more
+     */
+    private static ScoreRecord recordAt(ByteBuffer segment, int pos)
+    {
+        return segment == null || pos >= segment.limit() ? null : decode(segment, pos);
+    }
+
+    /**
+     * Skips the damaged bytes before the next good record.
+     *
+     * @param buffer the records
+     * @param pos where to start looking
+     *
+     * @return where the next good record starts, the limit if there is none
+     */
+    private static int skipTo(ByteBuffer buffer, int pos)
+    {
+        int start = pos;
+
+        /*Moves on a byte at a time until a record checks out*/
+        while(start < buffer.limit() && decode(buffer, start) == null)
+        {
+            start++;
+        }
+
+        return start;
+    }
+
+    /**
+     * Writes out what a buffer holds and empties it.
+     *
+     * @param channel the channel written to
+     * @param buffer the buffer
+     *
+     * @throws IOException if the channel can not be written
+     */
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException
+    {
+        buffer.flip();
+        /*Writes until the whole buffer is out*/
+        while(buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Reads every good record of a file.
+     *
+     * @param file the file
+     * @param hall where the records are offered, or null
+     * @param records where the records are added, or null
+     *
+     * @throws IOException if the file can not be read
+     */
+    private static void scanFile(File file, HallOfFame hall, List<ScoreRecord> records)
+        throws IOException
+    {
+        ByteBuffer buffer = readFile(file, Long.MAX_VALUE);
+
+        /*A log that was deleted meanwhile has no records*/
+        if(buffer != null)
+        {
+            scan(buffer, 0, hall, records);
+        }
+    }
+
+    /**
+     * Reads the first good records of a segment.
+     *
+     * @param segment the segment, or the first part of it, null if there is
+     * none
+     * @param count how many records to read
+     * @param records where the records are added
+     */
+    private static void firstRecords(ByteBuffer segment, int count, List<ScoreRecord> records)
+    {
+        int pos = kSegmentHeader;
+
+        /*The first records of the segment are its best scores*/
+        while(segment != null && records.size() < count && pos < segment.limit())
+        {
+            ScoreRecord record = decode(segment, pos);
+
+            /*Skips a damaged byte to find the next good record*/
+            if(record == null)
+            {
+                pos++;
+            }
+            else
+            {
+                records.add(record);
+                pos += recordLength(segment, pos);
+            }
+        }
+    }
+
+    /**
+     * Reads every good record of a buffer, skipping damaged bytes.
+     *
+     * @param buffer the records
+     * @param from where the first record starts
+     * @param hall where the records are offered, or null
+     * @param records where the records are added, or null
+     *
+     * @return where the last good record ends
+     */
+    private static int scan(ByteBuffer buffer, int from, HallOfFame hall,
+        List<ScoreRecord> records)
+    {
+        int pos = from;
+        int end = from;
+
+        /*Decodes records until the bytes run out*/
+        while(pos < buffer.limit())
+        {
+            ScoreRecord record = decode(buffer, pos);
+
+            /*Skips a damaged byte to find the next good record*/
+            if(record == null)
+            {
+                pos++;
+            }
+            else
+            {
+                /*Hands the record to whoever wants it*/
+                if(hall != null)
+                {
+                    hall.offer(record);
+                }
+                if(records != null)
+                {
+                    records.add(record);
+                }
+                pos += recordLength(buffer, pos);
+                end = pos;
+            }
+        }
+
+        return end;
+    }
+
+    /**
+     * Encodes a record.
+     *
+     * @param record the record
+     * @param buffer the buffer the record is put in
+     */
+    static void encode(ScoreRecord record, ByteBuffer buffer)
+    {
+        byte[] name = nameBytes(record);
+        int start = buffer.position();
+        CRC32 crc = new CRC32();
+
+        buffer.putInt(0).putShort((short) name.length).putInt(record.getScore())
+            .putLong(record.getTimestamp()).putInt(record.getBoardNumber())
+            .putShort((short) record.getBoardSize()).put((byte) record.getColors())
+            .putLong(record.getReplayOffset()).put(name);
+        crc.update(buffer.array(), buffer.arrayOffset() + start + 4,
+            kRecordHeader - 4 + name.length);
+        buffer.putInt(start, (int) crc.getValue());
+    }
+
+    /**
+     * Decodes the record at a place in a buffer, if there is a whole record
+     * there whose checksum matches.
+     *
+     * @param buffer the records
+     * @param pos where the record starts
+     *
+     * @return the record, null if there is none
+     */
+    static ScoreRecord decode(ByteBuffer buffer, int pos)
+    {
+        int length = recordLength(buffer, pos);
+        CRC32 crc = new CRC32();
+        ByteBuffer covered;
+        byte[] name;
+
+        /*A record that runs past the end was cut off*/
+        if(length < 0 || pos + length > buffer.limit())
+        {
+            return null;
+        }
+        covered = buffer.duplicate();
+        covered.limit(pos + length).position(pos + 4);
+        crc.update(covered);
+        /*Only a record whose checksum matches is a record*/
+        if((int) crc.getValue() != buffer.getInt(pos))
+        {
+            return null;
+        }
+
+        name = new byte[length - kRecordHeader];
+        covered.position(pos + kRecordHeader);
+        covered.get(name);
+        return new ScoreRecord(buffer.getInt(pos + 6), new String(name, StandardCharsets.UTF_8),
+            buffer.getLong(pos + 10), buffer.getShort(pos + 22) & 0xFFFF,
+            buffer.get(pos + 24) & 0xFF, buffer.getInt(pos + 18), buffer.getLong(pos + 25));
+    }
+
+    /**
+     * Gets the length of the record at a place in a buffer.
+     *
+     * @param buffer the records
+     * @param pos where the record starts
+     *
+     * @return the length, -1 if not even the header fits
+     */
+    static int recordLength(ByteBuffer buffer, int pos)
+    {
+        /*The header says how long the name is*/
+        if(pos + kRecordHeader > buffer.limit())
+        {
+            return -1;
+        }
+
+        return kRecordHeader + (buffer.getShort(pos + 4) & 0xFFFF);
+    }
+
+    /**
+     * Gets the length a record is encoded in.
+     *
+     * @param record the record
+     *
+     * @return the length
+     */
+    static int encodedLength(ScoreRecord record)
+    {
+        return kRecordHeader + nameBytes(record).length;
+    }
+
+    /**
+     * Gets the name of a record as UTF-8, cut short if it is too long.
+     *
+     * @param record the record
+     *
+     * @return the bytes of the name
+     */
+    private static byte[] nameBytes(ScoreRecord record)
+    {
+        byte[] name = record.getName().getBytes(StandardCharsets.UTF_8);
+        int end = kMaxNameBytes;
+
+        /*A name that is too long is cut short*/
+        if(name.length <= kMaxNameBytes)
+        {
+            return name;
+        }
+        /*Backs up over continuation bytes so the cut falls between characters*/
+        while((name[end] & 0xC0) == 0x80)
+        {
+            end--;
+        }
+
+        return Arrays.copyOf(name, end);
+    }
+
+    /**
+     * Reads the segment, or its first bytes, if there is one with a good
+     * header.
+     *
+     * @param maxBytes the most bytes to read
+     *
+     * @return the segment, null if there is none
+     *
+     * @throws IOException if the segment can not be read
+     */
+    private ByteBuffer readSegment(long maxBytes) throws IOException
+    {
+        ByteBuffer segment = readFile(new File(dir, kSegmentName), maxBytes);
+
+        /*Only a segment whose header was written is a segment*/
+        if(segment == null || segment.limit() < kSegmentHeader
+            || segment.getInt(0) != kSegmentMagic || segment.getShort(4) != kSegmentVersion)
+        {
+            return null;
+        }
+
+        return segment;
+    }
+
+    /**
+     * Builds the leaderboard index again from the segment if it is missing
+     * or was built from another segment.  A compaction must not be running.
+     *
+     * @throws IOException if the files can not be read or written
+     */
+    private void rebuildIndex() throws IOException
+    {
+        File file = new File(dir, kIndexName);
+        File temp = new File(dir, kIndexName + kTempSuffix);
+        ByteBuffer segment = readSegment(kSegmentHeader);
+        LeaderboardIndex index = LeaderboardIndex.open(file);
+
+        /*Builds the index again when it does not match the segment*/
+        if(segment != null && (index == null || index.getGeneration() != segment.getLong(8)))
+        {
+            segment = readSegment(Long.MAX_VALUE);
+            indexSegment(segment).write(temp, segment.getLong(8));
+            try
+            {
+                Files.move(temp.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch(IOException e)
+            {
+                //The index is built in memory whenever it is read until it
+                //can be replaced
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * Reads the leaderboard index, or builds it in memory if it does not
+     * match the segment, and the leaderboards of the logs.  The lock of the
+     * logs must be held.
+     *
+     * @throws IOException if the files can not be read
+     */
+    private void loadBoards() throws IOException
+    {
+        ByteBuffer segment = readSegment(kSegmentHeader);
+        long merged = segment == null ? 0 : segment.getLong(8);
+
+        leaderboards = segment == null ? null : LeaderboardIndex.open(new File(dir, kIndexName));
+        /*Builds the index in memory when the file does not match the segment*/
+        if(segment != null && (leaderboards == null || leaderboards.getGeneration() != merged))
+        {
+            leaderboards = indexSegment(readSegment(Long.MAX_VALUE)).toIndex(merged);
+        }
+        readLoggedBoards(merged);
+        boardsStamp = getStamp();
+    }
+
+    /**
+     * Collects the best scores of each board of a segment.
+     *
+     * @param segment the segment
+     *
+     * @return the builder of the segment's leaderboard index
+     */
+    private static LeaderboardIndex.Builder indexSegment(ByteBuffer segment)
+    {
+        List<ScoreRecord> records = new ArrayList<ScoreRecord>();
+        LeaderboardIndex.Builder builder = new LeaderboardIndex.Builder();
+
+        scan(segment, kSegmentHeader, null, records);
+        /*Offers each score of the segment*/
+        for(ScoreRecord record : records)
+        {
+            builder.offer(record);
+        }
+
+        return builder;
+    }
+
+    /**
+     * Reads the best scores of each board from the logs the segment does
+     * not hold.
+     *
+     * @param merged the number of the last log the segment holds
+     *
+     * @throws IOException if the logs can not be read
+     */
+    private void readLoggedBoards(long merged) throws IOException
+    {
+        List<ScoreRecord> records = new ArrayList<ScoreRecord>();
+
+        loggedBoards = new LeaderboardIndex.Builder();
+        /*Reads the logs the segment does not hold*/
+        for(long number : listLogs())
+        {
+            /*Only logs after the last one merged are read*/
+            if(number > merged)
+            {
+                scanFile(logFile(number), null, records);
+            }
+        }
+        /*Offers each score of the logs*/
+        for(ScoreRecord record : records)
+        {
+            loggedBoards.offer(record);
+        }
+    }
+
+    /**
+     * Gets the number of the last log the segment holds.
+     *
+     * @return the number, 0 if there is no segment
+     *
+     * @throws IOException if the segment can not be read
+     */
+    private long readSegmentLog() throws IOException
+    {
+        ByteBuffer segment = readSegment(kSegmentHeader);
+
+        return segment == null ? 0 : segment.getLong(8);
+    }
+
+    /**
+     * Gets the number of the log scores are appended to: the newest log, or
+     * the one after the segment if there is none.
+     *
+     * @return the number of the log
+     *
+     * @throws IOException if the segment can not be read
+     */
+    private long newestLog() throws IOException
+    {
+        long newest = readSegmentLog() + 1;
+
+        /*Iterates through each log to find the newest*/
+        for(long number : listLogs())
+        {
+            newest = Math.max(newest, number);
+        }
+
+        return newest;
+    }
+
+    /**
+     * Reads a file, or its first bytes, into memory.
+     *
+     * @param file the file
+     * @param maxBytes the most bytes to read
+     *
+     * @return the contents, null if the file does not exist
+     *
+     * @throws IOException if the file can not be read
+     */
+    static ByteBuffer readFile(File file, long maxBytes) throws IOException
+    {
+        FileChannel channel;
+
+        try
+        {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        }
+        catch(NoSuchFileException e)
+        {
+            return null;
+        }
+        try
+        {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(channel.size(), maxBytes));
+            int read = 0;
+
+            /*Reads until the buffer is full or the file ends*/
+            while(buffer.hasRemaining() && read >= 0)
+            {
+                read = channel.read(buffer);
+            }
+            buffer.flip();
+
+            return buffer;
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+
+    /**
+     * Cuts a log back to the end of its last good record, dropping a record
+     * a write did not finish.  The lock of the logs must be held.
+     *
+     * @param file the log
+     *
+     * @throws IOException if the log can not be repaired
+     */
+    private static void repairTail(File file) throws IOException
+    {
+        ByteBuffer buffer = readFile(file, Long.MAX_VALUE);
+        int end;
+
+        /*A log that is not there needs no repair*/
+        if(buffer == null)
+        {
+            return;
+        }
+        end = scan(buffer, 0, null, null);
+        /*Cuts off whatever follows the last good record*/
+        if(end < buffer.limit())
+        {
+            FileChannel output = FileChannel.open(file.toPath(), StandardOpenOption.WRITE);
+
+            try
+            {
+                output.truncate(end);
+            }
+            finally
+            {
+                output.close();
+            }
+        }
+    }
+
+    /**
+     * Closes the log being written, if it is open.
+     *
+     * @throws IOException if the log can not be closed
+     */
+    private void closeActive() throws IOException
+    {
+        /*Only an open log has to be closed*/
+        if(active != null)
+        {
+            active.close();
+            active = null;
+        }
+    }
+
+    /**
+     * Gets the file of a log.
+     *
+     * @param number the number of the log
+     *
+     * @return the file
+     */
+    private File logFile(long number)
+    {
+        return new File(dir, kLogPrefix + number + kLogSuffix);
+    }
+
+    /**
+     * Lists the numbers of the logs there are.
+     *
+     * @return the numbers, in order
+     */
+    private List<Long> listLogs()
+    {
+        List<Long> numbers = new ArrayList<Long>();
+        String[] names = dir.list();
+
+        /*Keeps the names that are logs*/
+        for(int nameNdx = 0; names != null && nameNdx < names.length; nameNdx++)
+        {
+            String name = names[nameNdx];
+
+            /*Log names are the prefix, a number and the suffix*/
+            if(name.startsWith(kLogPrefix) && name.endsWith(kLogSuffix))
+            {
+                try
+                {
+                    numbers.add(Long.parseLong(name.substring(kLogPrefix.length(),
+                        name.length() - kLogSuffix.length())));
+                }
+                catch(NumberFormatException e)
+                {
+                    continue;
+                }
+            }
+        }
+        Collections.sort(numbers);
+
+        return numbers;
+    }
+}
@@ -0,0 +1,253 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The test class ScoreLogTest.
+ *
+ * @author  Erik Owen
+ * @version 1
+ */
+public class ScoreLogTest extends junit.framework.TestCase
+{
+    private File dir;
+
+    /**
+     * Default constructor for test class ScoreLogTest
+     */
+    public ScoreLogTest()
+    {
+    }
+
+    /**
+     * Makes an empty directory for the score files.
+     */
+    protected void setUp() throws IOException
+    {
+        dir = Files.createTempDirectory("scores").toFile();
+    }
+
+    /**
+     * Deletes the score files.
+     */
+    protected void tearDown()
+    {
+        /*Deletes each score file*/
+        for(File file : dir.listFiles())
+        {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    /**
+     * Finds the best scores of a score log.
+     *
+     * @param log the score log
+     *
+     * @return the best five scores
+     */
+    private HallOfFame top(ScoreLog log) throws IOException
+    {
+        HallOfFame hall = new HallOfFame(5);
+
+        log.top(hall);
+        return hall;
+    }
+
+    /**
+     * Tests that scores read back the same before and after compaction
+     */
+    public void testCompact() throws IOException
+    {
+        ScoreLog log = new ScoreLog(dir);
+        List<ScoreRecord> records = new ArrayList<ScoreRecord>();
+
+        assertTrue(log.isEmpty());
+        log.append(new ScoreRecord(30, "Sue", 1000L, 8, 3, 17));
+        /*Adds scores on both sides of the compaction*/
+        for(int scoreNdx = 0; scoreNdx < 100; scoreNdx++)
+        {
+            log.append(new ScoreRecord(40 + scoreNdx % 7, "p" + scoreNdx, scoreNdx, 8, 3, scoreNdx));
+            /*Compacts halfway through*/
+            if(scoreNdx == 50)
+            {
+                log.compact();
+            }
+        }
+        log.append(new ScoreRecord(12, "J\u00f6rg", 2000L, 10, 4, 4999, 123456789012L));
+
+        HallOfFame hall = top(log);
+        assertEquals(12, hall.get(0).getScore());
+        assertEquals("J\u00f6rg", hall.get(0).getName());
+        assertEquals(30, hall.get(1).getScore());
+        ScoreRecord best = (ScoreRecord) hall.get(0);
+        assertEquals(2000L, best.getTimestamp());
+        assertEquals(10, best.getBoardSize());
+        assertEquals(4, best.getColors());
+        assertEquals(4999, best.getBoardNumber());
+        assertEquals(123456789012L, best.getReplayOffset());
+        assertEquals(ScoreRecord.kNoReplay, ((ScoreRecord) hall.get(1)).getReplayOffset());
+
+        log.compact();
+        log.close();
+        log = new ScoreLog(dir);
+        log.readAll(records);
+        assertEquals(102, records.size());
+        assertEquals("J\u00f6rg", top(log).get(0).getName());
+        assertEquals(40, top(log).get(2).getScore());
+    }
+
+    /**
+     * Tests that a torn write loses only its own record
+     */
+    public void testTornWrite() throws IOException
+    {
+        ScoreLog log = new ScoreLog(dir);
+        File file = null;
+
+        log.append(new ScoreRecord(20, "Ann", 1L, 8, 3, 1));
+        log.append(new ScoreRecord(10, "Bob", 2L, 8, 3, 2));
+        log.append(new ScoreRecord(30, "Cal", 3L, 8, 3, 3));
+        log.close();
+        /*Finds the log that was written*/
+        for(File score : dir.listFiles())
+        {
+            file = score.getName().endsWith(".log") ? score : file;
+        }
+
+        RandomAccessFile raw = new RandomAccessFile(file, "rw");
+        raw.seek(10);
+        raw.write(0x55);
+        raw.setLength(raw.length() - 2);
+        raw.close();
+
+        log = new ScoreLog(dir);
+        HallOfFame hall = top(log);
+        assertEquals(1, hall.size());
+        assertEquals("Bob", hall.get(0).getName());
+
+        log.append(new ScoreRecord(5, "Dee", 4L, 8, 3, 4));
+        hall = top(log);
+        assertEquals(2, hall.size());
+        assertEquals("Dee", hall.get(0).getName());
+        assertEquals("Bob", hall.get(1).getName());
+        log.close();
+    }
+
+    /**
+     * Tests that the leaderboard of a board holds only its own scores, from
+     * the logs, the index, and an index built again
+     */
+    public void testLeaderboards() throws IOException
+    {
+        ScoreLog log = new ScoreLog(dir);
+        HallOfFame hall = new HallOfFame(5);
+
+        /*Spreads scores over three boards, each size and colors*/
+        for(int scoreNdx = 0; scoreNdx < 60; scoreNdx++)
+        {
+            log.append(new ScoreRecord(100 - scoreNdx, "p" + scoreNdx, scoreNdx,
+                8 + scoreNdx % 2, 3, scoreNdx % 3));
+        }
+        log.append(new ScoreRecord(1, "Nobody", 0L, 8, 3, ScoreRecord.kUnknownBoard));
+
+        log.topForBoard(8, 3, 2, hall);
+        assertEquals(5, hall.size());
+        assertEquals("p56", hall.get(0).getName());
+        assertEquals("p32", hall.get(4).getName());
+
+        log.compact();
+        log.append(new ScoreRecord(3, "Ann", 99L, 8, 3, 2));
+        hall.clear();
+        log.topForBoard(8, 3, 2, hall);
+        assertEquals("Ann", hall.get(0).getName());
+        assertEquals("p56", hall.get(1).getName());
+
+        log.compact();
+        log.close();
+        new File(dir, "leaderboards.idx").delete();
+        log = new ScoreLog(dir);
+        hall.clear();
+        log.topForBoard(9, 3, 1, hall);
+        assertEquals("p55", hall.get(0).getName());
+        hall.clear();
+        log.topForBoard(9, 4, 1, hall);
+        assertEquals(0, hall.size());
+        log.close();
+    }
+
+    /**
+     * Tests that two score logs of one directory, as two processes would
+     * have, see each other's scores and lose none across a compaction
+     */
+    public void testSharedFiles() throws IOException
+    {
+        ScoreLog first = new ScoreLog(dir);
+        ScoreLog second = new ScoreLog(dir);
+        List<ScoreRecord> records = new ArrayList<ScoreRecord>();
+        HallOfFame hall = new HallOfFame(5);
+
+        first.append(new ScoreRecord(20, "Ann", 1L, 8, 3, 1));
+        second.append(new ScoreRecord(10, "Bob", 2L, 8, 3, 1));
+        first.compact();
+        second.append(new ScoreRecord(5, "Cal", 3L, 8, 3, 1));
+        first.append(new ScoreRecord(30, "Dee", 4L, 8, 3, 1));
+
+        second.topForBoard(8, 3, 1, hall);
+        assertEquals(4, hall.size());
+        assertEquals("Cal", hall.get(0).getName());
+        assertEquals("Dee", hall.get(3).getName());
+
+        second.compact();
+        first.readAll(records);
+        assertEquals(4, records.size());
+        assertEquals("Cal", top(first).get(0).getName());
+        first.close();
+        second.close();
+    }
+
+    /**
+     * Tests that names too long for a record are cut between characters,
+     * and that records with the longest names still compact
+     */
+    public void testLongNames() throws IOException
+    {
+        ScoreLog log = new ScoreLog(dir);
+        List<ScoreRecord> records = new ArrayList<ScoreRecord>();
+        StringBuilder longest = new StringBuilder();
+        StringBuilder accented = new StringBuilder();
+
+        /*Makes a name of exactly the most bytes a record holds*/
+        while(longest.length() < ScoreLog.kMaxNameBytes)
+        {
+            longest.append('x');
+        }
+        /*Makes a name of two-byte and four-byte characters past the limit*/
+        while(accented.length() < ScoreLog.kMaxNameBytes)
+        {
+            accented.append("\u00e9\ud83d\ude00");
+        }
+        log.append(new ScoreRecord(10, longest.toString(), 1L, 8, 3, 1));
+        log.append(new ScoreRecord(20, longest + "yz", 2L, 8, 3, 1));
+        log.append(new ScoreRecord(30, accented.toString(), 3L, 8, 3, 1));
+        log.compact();
+        log.append(new ScoreRecord(40, "Ann", 4L, 8, 3, 1));
+        log.compact();
+
+        log.readAll(records);
+        assertEquals(4, records.size());
+        HallOfFame hall = top(log);
+        assertEquals(longest.toString(), hall.get(0).getName());
+        assertEquals(longest.toString(), hall.get(1).getName());
+        String cut = hall.get(2).getName();
+        assertTrue(accented.toString().startsWith(cut));
+        assertTrue(cut.getBytes("UTF-8").length > ScoreLog.kMaxNameBytes - 4);
+        assertTrue(cut.getBytes("UTF-8").length <= ScoreLog.kMaxNameBytes);
+        assertFalse(Character.isHighSurrogate(cut.charAt(cut.length() - 1)));
+        log.close();
+    }
+}
@@ -0,0 +1,114 @@
+
+/**
+ * This is an immutable class representing a high score as the score log
+ * keeps it, with when it was made, the board it was made on and where the
+ * replay that confirmed it starts in the replay file.
+ *
+ * @author Erik Owen
+ * @version 1
+ */
+public class ScoreRecord extends HighScore
+{
+    /*Board number of a score whose board is not known*/
+    public final static int kUnknownBoard = -1;
+    /*Replay offset of a score that has no replay, so was not verified*/
+    public final static long kNoReplay = -1L;
+    private long timestamp;
+    private int boardSize;
+    private int colors;
+    private int boardNumber;
+    private long replayOffset;
+
+    /**
+     * Constructor for objects of class ScoreRecord
+     *
+     * @param score the number of moves the player made
+     * @param name the name of the player
+     * @param timestamp when the score was made, in milliseconds since 1970
+     * @param boardSize the size of the board, 0 if it is not known
+     * @param colors the number of tile colors of the board, 0 if it is not
+     * known
+     * @param boardNumber the number of the board, kUnknownBoard if it is not
+     * known
+     */
+    public ScoreRecord(int score, String name, long timestamp, int boardSize,
+        int colors, int boardNumber)
+    {
+        this(score, name, timestamp, boardSize, colors, boardNumber, kNoReplay);
+    }
+
+    /**
+     * Constructor for objects of class ScoreRecord with a replay
+     *
+     * @param score the number of moves the player made
+     * @param name the name of the player
+     * @param timestamp when the score was made, in milliseconds since 1970
+     * @param boardSize the size of the board, 0 if it is not known
+     * @param colors the number of tile colors of the board, 0 if it is not
+     * known
+     * @param boardNumber the number of the board, kUnknownBoard if it is not
+     * known
+     * @param replayOffset where the replay of the game starts in the replay
+     * file, kNoReplay if it has none
+     */
+    public ScoreRecord(int score, String name, long timestamp, int boardSize,
+        int colors, int boardNumber, long replayOffset)
+    {
+        super(score, name);
+        this.timestamp = timestamp;
+        this.boardSize = boardSize;
+        this.colors = colors;
+        this.boardNumber = boardNumber;
+        this.replayOffset = replayOffset;
+    }
+
+    /**
+     * Accessor method for when the score was made.
+     *
+     * @return the time in milliseconds since 1970
+     */
+    public long getTimestamp()
+    {
+        return this.timestamp;
+    }
+
+    /**
+     * Accessor method for the size of the board of the score.
+     *
+     * @return the board size, 0 if it is not known
+     */
+    public int getBoardSize()
+    {
+        return this.boardSize;
+    }
+
+    /**
+     * Accessor method for the number of colors of the board of the score.
+     *
+     * @return the number of colors, 0 if it is not known
+     */
+    public int getColors()
+    {
+        return this.colors;
+    }
+
+    /**
+     * Accessor method for the number of the board of the score.
+     *
+     * @return the board number, kUnknownBoard if it is not known
+     */
+    public int getBoardNumber()
+    {
+        return this.boardNumber;
+    }
+
+    /**
+     * Accessor method for where the replay of the score starts.
+     *
+     * @return the offset in the replay file, kNoReplay if it has none
+     */
+    public long getReplayOffset()
+    {
+        return this.replayOffset;
+    }
+}
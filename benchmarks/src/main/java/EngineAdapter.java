@@ -0,0 +1,155 @@
+import bench.Engine;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This class lets the benchmarks, which are in a package, call the game,
+ * which is in the default package.
+ *
+ * @author Erik Owen
+ * @version 1
+ */
+public class EngineAdapter implements Engine
+{
+    private final static String kHallOfFameDirPath = "collapse";
+    private final static int kMaxScore = 200;
+    private final static int kNumBoards = 5000;
+    /*Scores written to the score log at a time*/
+    private final static int kBatch = 10000;
+    private ScoreLog scoreLog;
+
+    @Override
+    public Object newGame(int size, int boardNumber, int colors)
+    {
+        return new CollapseGame(size, boardNumber, colors);
+    }
+
+    @Override
+    public Object generateBoard(Object game, int boardNumber)
+    {
+        return ((CollapseGame) game).generateBoard(boardNumber);
+    }
+
+    @Override
+    public boolean takeTurn(Object game, int row, int col)
+    {
+        return ((CollapseGame) game).takeTurn(row, col);
+    }
+
+    @Override
+    public boolean undo(Object game)
+    {
+        return ((CollapseGame) game).undo();
+    }
+
+    @Override
+    public int getTilesLeft(Object game)
+    {
+        return ((CollapseGame) game).getTilesLeft();
+    }
+
+    @Override
+    public boolean isGameOver(Object game)
+    {
+        return ((CollapseGame) game).isGameOver();
+    }
+
+    @Override
+    public int[] findGroup(Object game, boolean largest)
+    {
+        GroupList groups = ((CollapseGame) game).listGroups(new GroupList());
+        int found = -1;
+
+        /*Keeps the smallest or largest group that is a move*/
+        for(int groupNdx = 0; groupNdx < groups.getGroupCount(); groupNdx++)
+        {
+            int size = groups.getGroupSize(groupNdx);
+
+            /*Only groups of two or more tiles are moves*/
+            if(size > 1 && (found < 0 || (largest ? size > groups.getGroupSize(found)
+                : size < groups.getGroupSize(found))))
+            {
+                found = groupNdx;
+            }
+        }
+
+        return new int[] {groups.getGroupRow(found), groups.getGroupColumn(found)};
+    }
+
+    @Override
+    public void writeScores(int count, long seed) throws IOException
+    {
+        Random random = new Random(seed);
+        File dir = new File(kHallOfFameDirPath);
+        List<ScoreRecord> batch = new ArrayList<ScoreRecord>();
+
+        /*Starts from no scores at all*/
+        for(File file : dir.listFiles())
+        {
+            /*Only the score files are deleted*/
+            if(file.getName().startsWith("scores") || file.getName().equals("halloffame.ser"))
+            {
+                file.delete();
+            }
+        }
+        scoreLog = new ScoreLog(dir);
+        /*Writes the scores a batch at a time*/
+        for(int scoreNdx = 0; scoreNdx < count; scoreNdx++)
+        {
+            batch.add(new ScoreRecord(1 + random.nextInt(kMaxScore), "player" + scoreNdx,
+                scoreNdx, 8, 3, 1 + random.nextInt(kNumBoards)));
+            /*Writes a full batch*/
+            if(batch.size() == kBatch || scoreNdx == count - 1)
+            {
+                scoreLog.appendAll(batch);
+                batch.clear();
+            }
+        }
+        scoreLog.compact();
+    }
+
+    @Override
+    public String getHighScores()
+    {
+        return HighScores.getHighScores();
+    }
+
+    @Override
+    public int loadHighScores() throws IOException
+    {
+        HallOfFame hall = new HallOfFame(HighScores.kHallSize);
+
+        scoreLog.top(hall);
+        return hall.size();
+    }
+
+    @Override
+    public int readAllScores() throws IOException
+    {
+        List<ScoreRecord> records = new ArrayList<ScoreRecord>();
+
+        scoreLog.readAll(records);
+        return records.size();
+    }
+
+    @Override
+    public Object newConsole(Object game, int boardNumber)
+    {
+        CollapseConsole console = new CollapseConsole();
+
+        console.setIOsources(Reader.nullReader(), Writer.nullWriter());
+        console.setGame((CollapseGame) game, boardNumber);
+        return console;
+    }
+
+    @Override
+    public void display(Object console)
+    {
+        ((CollapseConsole) console).displayBoardAndOptions();
+    }
+}
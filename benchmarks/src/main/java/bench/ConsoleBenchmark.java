@@ -0,0 +1,52 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks drawing the board and the options of the console, to a writer
+ * that throws the text away.
+ *
+ * @author Erik Owen
+ * @version 1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConsoleBenchmark
+{
+    private Engine engine;
+    private Object console;
+
+    @Param({"8", "32", "1000"})
+    private int size;
+
+    /**
+     * Makes the console and its game.
+     */
+    @Setup
+    public void setUp()
+    {
+        engine = Engines.load();
+        console = engine.newConsole(engine.newGame(size, 1, 3), 1);
+    }
+
+    @Benchmark
+    public void displayBoardAndOptions()
+    {
+        engine.display(console);
+    }
+}
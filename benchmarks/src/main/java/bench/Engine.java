@@ -0,0 +1,142 @@
+package bench;
+
+import java.io.IOException;
+
+/**
+ * This interface is what the benchmarks see of the game.  The game's classes
+ * are in the default package, which classes of a package can not name, and
+ * JMH only generates code for benchmarks that are in a package.  So the
+ * benchmarks call the game through this interface, which EngineAdapter in
+ * the default package implements, and the games and consoles are passed
+ * around as plain objects.  The interface has a single implementation, so
+ * the JIT inlines its calls and they cost nothing in the measurements.
+ *
+ * @author Erik Owen
+ * @version 1
+ */
+public interface Engine
+{
+    /**
+     * Makes a new game.
+     *
+     * @param size the size of the board
+     * @param boardNumber the number of the board
+     * @param colors the number of tile colors
+     *
+     * @return the game
+     */
+    Object newGame(int size, int boardNumber, int colors);
+
+    /**
+     * Generates the starting tiles of a board without the layout cache.
+     *
+     * @param game a game of the size and colors of the board
+     * @param boardNumber the number of the board
+     *
+     * @return the tiles of the board
+     */
+    Object generateBoard(Object game, int boardNumber);
+
+    /**
+     * Takes a turn of a game.
+     *
+     * @param game the game
+     * @param row the row of the tile clicked
+     * @param col the column of the tile clicked
+     *
+     * @return whether the turn counted as a move, which a click on a lone
+     * tile does even though it removes nothing
+     */
+    boolean takeTurn(Object game, int row, int col);
+
+    /**
+     * Takes back the last turn of a game.
+     *
+     * @param game the game
+     *
+     * @return whether there was a turn to take back
+     */
+    boolean undo(Object game);
+
+    /**
+     * Gets how many tiles a game has left.
+     *
+     * @param game the game
+     *
+     * @return the tiles left
+     */
+    int getTilesLeft(Object game);
+
+    /**
+     * Gets whether a game is over.
+     *
+     * @param game the game
+     *
+     * @return whether every tile was removed
+     */
+    boolean isGameOver(Object game);
+
+    /**
+     * Finds the smallest or the largest group a game can remove.
+     *
+     * @param game the game
+     * @param largest whether the largest group is wanted
+     *
+     * @return the row and column of a tile of the group
+     */
+    int[] findGroup(Object game, boolean largest);
+
+    /**
+     * Replaces the score files with a compacted score log of random scores,
+     * which loadHighScores and readAllScores read.
+     *
+     * @param count the number of scores
+     * @param seed the seed of the scores
+     *
+     * @throws IOException if the hall of fame can not be written
+     */
+    void writeScores(int count, long seed) throws IOException;
+
+    /**
+     * Gets the top scores of the hall of fame.
+     *
+     * @return the top scores, one per line
+     */
+    String getHighScores();
+
+    /**
+     * Reads the best scores of the score files, without the hall of fame
+     * HighScores keeps between calls.
+     *
+     * @return the number of scores found
+     *
+     * @throws IOException if the score files can not be read
+     */
+    int loadHighScores() throws IOException;
+
+    /**
+     * Reads every score of the score files.
+     *
+     * @return the number of scores
+     *
+     * @throws IOException if the score files can not be read
+     */
+    int readAllScores() throws IOException;
+
+    /**
+     * Makes a console showing a game, that writes to nowhere.
+     *
+     * @param game the game
+     * @param boardNumber the number of the board of the game
+     *
+     * @return the console
+     */
+    Object newConsole(Object game, int boardNumber);
+
+    /**
+     * Draws the board and the options of a console.
+     *
+     * @param console the console
+     */
+    void display(Object console);
+}
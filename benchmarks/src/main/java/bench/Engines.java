@@ -0,0 +1,37 @@
+package bench;
+
+/**
+ * This class loads the implementation of Engine, which is in the default
+ * package.
+ *
+ * @author Erik Owen
+ * @version 1
+ */
+public final class Engines
+{
+    private final static String kAdapterName = "EngineAdapter";
+
+    /**
+     * Constructor for objects of class Engines, which are never made.
+     */
+    private Engines()
+    {
+    }
+
+    /**
+     * Makes the engine the benchmarks call the game through.
+     *
+     * @return the engine
+     */
+    public static Engine load()
+    {
+        try
+        {
+            return (Engine) Class.forName(kAdapterName).getDeclaredConstructor().newInstance();
+        }
+        catch(ReflectiveOperationException e)
+        {
+            throw new IllegalStateException("Can not load " + kAdapterName, e);
+        }
+    }
+}
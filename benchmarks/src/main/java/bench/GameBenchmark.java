@@ -0,0 +1,94 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks making games and the questions asked of a game after every
+ * turn.  Making a game goes through the layout cache like the console and
+ * the GUI do, while generateBoard always runs the random generator.  The
+ * board numbers go round all 5000 boards so a small cache can not hold
+ * them all.
+ *
+ * @author Erik Owen
+ * @version 1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark
+{
+    private final static int kNumBoards = 5000;
+    private final static int kColors = 3;
+    private Engine engine;
+    private Object game;
+    private int boardNumber;
+
+    @Param({"8", "32", "1000"})
+    private int size;
+
+    /**
+     * Makes a game and plays it halfway, removing the largest group each turn.
+     */
+    @Setup
+    public void setUp()
+    {
+        engine = Engines.load();
+        game = engine.newGame(size, 1, kColors);
+        /*Plays until half the tiles are gone*/
+        while(engine.getTilesLeft(game) > size * size / 2)
+        {
+            int[] cell = engine.findGroup(game, true);
+
+            engine.takeTurn(game, cell[0], cell[1]);
+        }
+    }
+
+    /**
+     * Gets the next board number, going round all the boards.
+     *
+     * @return the board number
+     */
+    private int nextBoard()
+    {
+        boardNumber = boardNumber % kNumBoards + 1;
+        return boardNumber;
+    }
+
+    @Benchmark
+    public Object construct()
+    {
+        return engine.newGame(size, nextBoard(), kColors);
+    }
+
+    @Benchmark
+    public Object generateBoard()
+    {
+        return engine.generateBoard(game, nextBoard());
+    }
+
+    @Benchmark
+    public int getTilesLeft()
+    {
+        return engine.getTilesLeft(game);
+    }
+
+    @Benchmark
+    public boolean isGameOver()
+    {
+        return engine.isGameOver(game);
+    }
+}
@@ -0,0 +1,69 @@
+package bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks reading the top scores of a hall of fame of random scores:
+ * through HighScores, which keeps them between calls, straight from the
+ * score files, and reading every score.  The score files are written to
+ * collapse in the directory the benchmarks run in, which the build keeps
+ * apart from the project's own.
+ *
+ * @author Erik Owen
+ * @version 1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class HighScoresBenchmark
+{
+    private Engine engine;
+
+    @Param({"10", "1000", "100000", "10000000"})
+    private int entries;
+
+    /**
+     * Writes the hall of fame.
+     *
+     * @throws IOException if the hall of fame can not be written
+     */
+    @Setup
+    public void setUp() throws IOException
+    {
+        engine = Engines.load();
+        engine.writeScores(entries, entries);
+    }
+
+    @Benchmark
+    public String getHighScores()
+    {
+        return engine.getHighScores();
+    }
+
+    @Benchmark
+    public int loadHighScores() throws IOException
+    {
+        return engine.loadHighScores();
+    }
+
+    @Benchmark
+    public int readAllScores() throws IOException
+    {
+        return engine.readAllScores();
+    }
+}
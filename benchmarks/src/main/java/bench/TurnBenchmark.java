@@ -0,0 +1,69 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks one turn removing a group.  The small group is the smallest
+ * move of an 8x8 board and the large group its largest move.  The worst
+ * case is the largest group of a 1000x1000 board of two colors, which
+ * covers a good part of the board.  The turn is taken back before every
+ * invocation, outside of the measurement.
+ *
+ * @author Erik Owen
+ * @version 1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TurnBenchmark
+{
+    private Engine engine;
+    private Object game;
+    private int[] cell;
+
+    @Param({"small", "large", "worst"})
+    private String group;
+
+    /**
+     * Makes the game and finds the group removed.
+     */
+    @Setup
+    public void setUp()
+    {
+        boolean worst = group.equals("worst");
+
+        engine = Engines.load();
+        game = worst ? engine.newGame(1000, 1, 2) : engine.newGame(8, 1, 3);
+        cell = engine.findGroup(game, !group.equals("small"));
+    }
+
+    /**
+     * Takes back the turn of the last invocation.
+     */
+    @Setup(Level.Invocation)
+    public void undo()
+    {
+        engine.undo(game);
+    }
+
+    @Benchmark
+    public boolean takeTurn()
+    {
+        return engine.takeTurn(game, cell[0], cell[1]);
+    }
+}